@@ -0,0 +1,203 @@
+package com.fantacya.kitty.aop;
+
+import com.fantacya.kitty.aop.metrics.SimpleAdvisorMetricsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost that {@link AbstractAnnotationMethodAdvisor} adds to a call: a plain call on the
+ * target, a call on a CGLIB proxy to a method that no advisor matches, and a call to a method
+ * advised by an advisor that only proceeds.
+ * <p>
+ * {@code separateAdvisors} and {@code compositeAdvisor} call a method carrying three annotations,
+ * advised once by three independent advisors and once by a {@link CompositeAnnotationMethodAdvisor}
+ * fusing the same three advisors.
+ * <p>
+ * {@code proxiedAdvisedWithMetrics} is {@code proxiedAdvised} with a {@link SimpleAdvisorMetricsRegistry}
+ * recording every call.
+ * <p>
+ * {@code generatedAdvised} and {@code generatedComposite} make the same calls as {@code proxiedAdvised} and
+ * {@code compositeAdvisor} on a subclass generated by {@link GeneratedProxyFactory}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnnotationMethodAdvisorBenchmark {
+
+    private Service plain;
+
+    private Service proxy;
+
+    private Service measured;
+
+    private Service separate;
+
+    private Service composite;
+
+    private Service generated;
+
+    private Service generatedComposite;
+
+    private int value;
+
+    @Setup
+    public void setUp() throws Exception {
+        plain = new Service();
+        PassThroughAdvisor advisor = new PassThroughAdvisor();
+        advisor.afterPropertiesSet();
+        ProxyFactory factory = new ProxyFactory(new Service());
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(advisor);
+        proxy = (Service) factory.getProxy();
+
+        PassThroughAdvisor measuredAdvisor = new PassThroughAdvisor();
+        measuredAdvisor.setMetricsRegistry(new SimpleAdvisorMetricsRegistry());
+        measuredAdvisor.afterPropertiesSet();
+        factory = new ProxyFactory(new Service());
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(measuredAdvisor);
+        measured = (Service) factory.getProxy();
+
+        factory = new ProxyFactory(new Service());
+        factory.setProxyTargetClass(true);
+        for (AbstractAnnotationMethodAdvisor<?> layer : layers()) {
+            layer.afterPropertiesSet();
+            factory.addAdvisor(layer);
+        }
+        separate = (Service) factory.getProxy();
+
+        CompositeAnnotationMethodAdvisor compositeAdvisor = new CompositeAnnotationMethodAdvisor(layers());
+        compositeAdvisor.afterPropertiesSet();
+        factory = new ProxyFactory(new Service());
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(compositeAdvisor);
+        composite = (Service) factory.getProxy();
+
+        CompositeAnnotationMethodAdvisor single = new CompositeAnnotationMethodAdvisor(new PassThroughAdvisor());
+        single.afterPropertiesSet();
+        generated = new GeneratedProxyFactory(single).getProxy(new Service());
+        generatedComposite = new GeneratedProxyFactory(compositeAdvisor).getProxy(new Service());
+    }
+
+    private static AbstractAnnotationMethodAdvisor<?>[] layers() {
+        return new AbstractAnnotationMethodAdvisor<?>[]{
+                new PassThroughAdvisor(), new SecondPassThroughAdvisor(), new ThirdPassThroughAdvisor()};
+    }
+
+    @Benchmark
+    public int plain() {
+        return plain.advised(value++);
+    }
+
+    @Benchmark
+    public int proxiedNotAdvised() {
+        return proxy.notAdvised(value++);
+    }
+
+    @Benchmark
+    public int proxiedAdvised() {
+        return proxy.advised(value++);
+    }
+
+    @Benchmark
+    public int proxiedAdvisedWithMetrics() {
+        return measured.advised(value++);
+    }
+
+    @Benchmark
+    public int separateAdvisors() {
+        return separate.layered(value++);
+    }
+
+    @Benchmark
+    public int compositeAdvisor() {
+        return composite.layered(value++);
+    }
+
+    @Benchmark
+    public int generatedAdvised() {
+        return generated.advised(value++);
+    }
+
+    @Benchmark
+    public int generatedComposite() {
+        return generatedComposite.layered(value++);
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Benchmarked {
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Second {
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Third {
+    }
+
+    public static class Service {
+
+        @Benchmarked
+        public int advised(int i) {
+            return i + 1;
+        }
+
+        @Benchmarked
+        @Second
+        @Third
+        public int layered(int i) {
+            return i + 1;
+        }
+
+        public int notAdvised(int i) {
+            return i + 1;
+        }
+    }
+
+    public static class PassThroughAdvisor extends AbstractAnnotationMethodAdvisor<Benchmarked> {
+
+        @Override
+        public Object invoke(ReflectiveMethodInvocation invocation, Benchmarked annotation) throws Throwable {
+            return invocation.proceed();
+        }
+    }
+
+    public static class SecondPassThroughAdvisor extends AbstractAnnotationMethodAdvisor<Second> {
+
+        @Override
+        public Object invoke(ReflectiveMethodInvocation invocation, Second annotation) throws Throwable {
+            return invocation.proceed();
+        }
+    }
+
+    public static class ThirdPassThroughAdvisor extends AbstractAnnotationMethodAdvisor<Third> {
+
+        @Override
+        public Object invoke(ReflectiveMethodInvocation invocation, Third annotation) throws Throwable {
+            return invocation.proceed();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.fantacya.kitty.aop;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways a lock or rate limit key can be computed from a call: a SpEL expression
+ * interpreted in a fresh {@code MethodBasedEvaluationContext}, the same expression parsed in
+ * {@code MIXED} compiler mode (still needing the context for its variables), and the
+ * {@link MethodExpression} returned by {@link ExpressionEvaluator#compile(String, Method)}, which
+ * reads the arguments directly for these shapes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodExpressionBenchmark {
+
+    @Param({"#p1", "#order.id", "'order:' + #order.id + ':' + #count"})
+    public String expression;
+
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+
+    private Method method;
+
+    private Object[] args;
+
+    private Expression interpreted;
+
+    private Expression mixed;
+
+    private MethodExpression compiled;
+
+    @Setup
+    public void setUp() throws Exception {
+        method = OrderService.class.getMethod("place", Order.class, int.class);
+        args = new Object[]{new Order(42L), 3};
+        interpreted = new SpelExpressionParser().parseExpression(expression);
+        mixed = evaluator.parseExpression(expression);
+        compiled = evaluator.compile(expression, method);
+    }
+
+    @Benchmark
+    public String interpreted() {
+        return interpreted.getValue(evaluator.createEvaluationContext(null, method, args), String.class);
+    }
+
+    @Benchmark
+    public String mixedCompiled() {
+        return mixed.getValue(evaluator.createEvaluationContext(null, method, args), String.class);
+    }
+
+    @Benchmark
+    public String direct() {
+        return compiled.getStringValue(null, args);
+    }
+
+    public static class OrderService {
+        public void place(Order order, int count) {
+        }
+    }
+
+    public static class Order {
+        private final Long id;
+
+        Order(Long id) {
+            this.id = id;
+        }
+
+        public Long getId() {
+            return id;
+        }
+    }
+}
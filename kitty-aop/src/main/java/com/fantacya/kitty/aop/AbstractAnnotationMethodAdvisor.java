@@ -1,7 +1,8 @@
 package com.fantacya.kitty.aop;
 
+import com.fantacya.kitty.aop.metrics.AdvisorMetricsRegistry;
+import com.fantacya.kitty.aop.metrics.MethodRecorder;
 import org.aopalliance.intercept.MethodInvocation;
-import org.springframework.aop.Pointcut;
 import org.springframework.aop.framework.ReflectiveMethodInvocation;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.ResolvableType;
@@ -37,6 +38,16 @@ public abstract class AbstractAnnotationMethodAdvisor<T extends Annotation> impl
      */
     private AnnotationValidator<T> annotationValidator;
 
+    /**
+     * 延迟的注解校验
+     */
+    private DeferredAnnotationValidation deferredValidation;
+
+    /**
+     * 调用指标的注册中心，默认不记录指标
+     */
+    private volatile AdvisorMetricsRegistry metricsRegistry;
+
     public AbstractAnnotationMethodAdvisor() {
         this(false, false, null);
     }
@@ -51,19 +62,73 @@ public abstract class AbstractAnnotationMethodAdvisor<T extends Annotation> impl
     public void afterPropertiesSet() throws Exception {
         ResolvableType type = ResolvableType.forClass(this.getClass()).as(AbstractAnnotationMethodAdvisor.class);
         @SuppressWarnings("unchecked")
-        Class<T> annType = (Class<T>) type.getGeneric(0).getRawClass();
+        Class<T> annType = (Class<T>) type.getGeneric(0).resolve();
         if (annType == null) {
             throw new IllegalStateException("Class " + getClass().getCanonicalName()
                     + " must assign generic type parameter for AbstractAnnotationMethodAdvisor");
         }
         this.annotationType = annType;
-        this.pointcut = new AnnotationPointcut<>(annotationType, checkInherited, checkClass, annotationValidator);
+        this.pointcut = new AnnotationPointcut<>(annotationType, checkInherited, checkClass, annotationValidator, getPlanCompiler());
+        this.pointcut.setDeferredValidation(deferredValidation);
+        registerCacheSize(metricsRegistry);
     }
 
     @Override
     public final Object invoke(MethodInvocation invocation) throws Throwable {
-        T annotation = pointcut.getAnnotation(invocation.getThis().getClass(), invocation.getMethod());
-        return invoke((ReflectiveMethodInvocation) invocation, annotation);
+        Class<?> targetClass = invocation.getThis().getClass();
+        MatchedMethod<T> matched = pointcut.getMatchedMethod(targetClass, invocation.getMethod());
+        if (matched == null) {
+            // 代理创建时没有以该目标类型匹配过，此时补充匹配
+            if (!pointcut.getMethodMatcher().matches(invocation.getMethod(), targetClass)) {
+                return invocation.proceed();
+            }
+            matched = pointcut.getMatchedMethod(targetClass, invocation.getMethod());
+        }
+        return invokeMatched((ReflectiveMethodInvocation) invocation, matched);
+    }
+
+    /**
+     * 执行匹配的方法，开启指标时记录调用耗时和异常
+     */
+    final Object invokeMatched(ReflectiveMethodInvocation invocation, MatchedMethod<T> matched) throws Throwable {
+        AdvisorMetricsRegistry registry = this.metricsRegistry;
+        if (registry == null) {
+            return dispatch(invocation, matched);
+        }
+        MethodRecorder recorder = matched.getRecorder();
+        if (recorder == null) {
+            recorder = registry.recorder(annotationType, invocation.getThis().getClass(), invocation.getMethod());
+            matched.setRecorder(recorder);
+        }
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = dispatch(invocation, matched);
+        } catch (Throwable ex) {
+            recorder.record(System.nanoTime() - start, ex);
+            throw ex;
+        }
+        recorder.record(System.nanoTime() - start, null);
+        return result;
+    }
+
+    /**
+     * 将拦截分派给具体的处理方法
+     * @param invocation 方法调用
+     * @param matched 匹配的方法
+     * @return
+     * @throws Throwable
+     */
+    protected Object dispatch(ReflectiveMethodInvocation invocation, MatchedMethod<T> matched) throws Throwable {
+        return invoke(invocation, matched.getAnnotation());
+    }
+
+    /**
+     * 方法匹配注解时使用的执行计划编译器，默认没有执行计划
+     * @return
+     */
+    protected AnnotationPlanCompiler<T> getPlanCompiler() {
+        return null;
     }
 
     /**
@@ -76,7 +141,7 @@ public abstract class AbstractAnnotationMethodAdvisor<T extends Annotation> impl
     public abstract Object invoke(ReflectiveMethodInvocation invocation, T annotation) throws Throwable;
 
     @Override
-    public Pointcut getPointcut() {
+    public AnnotationPointcut<T> getPointcut() {
         return pointcut;
     }
 
@@ -99,5 +164,39 @@ public abstract class AbstractAnnotationMethodAdvisor<T extends Annotation> impl
     public void setAnnotationValidator(AnnotationValidator<T> annotationValidator) {
         this.annotationValidator = annotationValidator;
     }
+
+    /**
+     * 开启延迟校验，方法匹配时不再直接校验注解，在容器刷新完成后统一并行校验
+     * @param deferredValidation 延迟的注解校验，需要注册为Spring bean
+     */
+    public void setDeferredValidation(DeferredAnnotationValidation deferredValidation) {
+        this.deferredValidation = deferredValidation;
+        if (pointcut != null) {
+            pointcut.setDeferredValidation(deferredValidation);
+        }
+    }
+
+    public AdvisorMetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    /**
+     * 开启调用指标，记录每个被拦截方法的调用次数、耗时和异常次数。耗时包括本切面、内层切面和目标方法。
+     * 同时注册切面缓存的大小
+     * @param metricsRegistry 指标注册中心，为null时关闭
+     */
+    public void setMetricsRegistry(AdvisorMetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+        if (pointcut != null) {
+            registerCacheSize(metricsRegistry);
+        }
+    }
+
+    private void registerCacheSize(AdvisorMetricsRegistry registry) {
+        if (registry != null) {
+            AnnotationPointcut<T> cache = pointcut;
+            registry.registerCacheSize(annotationType, cache::getCachedClassCount, cache::getCachedMethodCount);
+        }
+    }
 }
 
@@ -0,0 +1,61 @@
+package com.fantacya.kitty.aop;
+
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+
+import javax.annotation.Nullable;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+/**
+ * 使用执行计划的方法注解切面。方法匹配注解时，根据注解属性编译一个不可变的执行计划，
+ * 例如预先解析的表达式、bean引用等；拦截时直接使用执行计划，不再解析注解属性
+ * @param <T> 需要拦截的方法注解类型
+ * @param <P> 执行计划类型
+ */
+public abstract class AbstractPlannedAnnotationMethodAdvisor<T extends Annotation, P> extends AbstractAnnotationMethodAdvisor<T> {
+
+    public AbstractPlannedAnnotationMethodAdvisor() {
+        super();
+    }
+
+    public AbstractPlannedAnnotationMethodAdvisor(boolean checkInherited, boolean checkClass, @Nullable AnnotationValidator<T> validator) {
+        super(checkInherited, checkClass, validator);
+    }
+
+    /**
+     * 为匹配注解的方法编译执行计划，在创建代理时调用；设置了 {@link DeferredAnnotationValidation} 时，
+     * 在延迟校验中注解校验通过后调用。同一个方法可能被多次匹配
+     * @param targetClass 目标类型
+     * @param method 注解的方法
+     * @param annotation 注解对象
+     * @return 不可变的执行计划
+     */
+    protected abstract P compile(Class<?> targetClass, Method method, T annotation);
+
+    /**
+     * 对切面进行处理的具体方法
+     * @param invocation 方法调用
+     * @param annotation 方法注解
+     * @param plan 方法的执行计划
+     * @return
+     * @throws Throwable
+     */
+    public abstract Object invoke(ReflectiveMethodInvocation invocation, T annotation, P plan) throws Throwable;
+
+    @Override
+    public final Object invoke(ReflectiveMethodInvocation invocation, T annotation) throws Throwable {
+        Class<?> targetClass = invocation.getThis().getClass();
+        return invoke(invocation, annotation, compile(targetClass, invocation.getMethod(), annotation));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected final Object dispatch(ReflectiveMethodInvocation invocation, MatchedMethod<T> matched) throws Throwable {
+        return invoke(invocation, matched.getAnnotation(), (P) matched.getPlan());
+    }
+
+    @Override
+    protected final AnnotationPlanCompiler<T> getPlanCompiler() {
+        return this::compile;
+    }
+}
@@ -0,0 +1,136 @@
+package com.fantacya.kitty.aop;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @description: 所有切面共享的注解索引。第一次用到某个类型时，一次性收集其类型层次（类本身、父类、接口）
+ * 的类注解和所有方法注解，包括各级元注解；父类和接口的结果同样被缓存和复用。
+ * 大部分bean的类型层次中没有任何切面注解，{@link AnnotationPointcut} 据此直接判定不匹配，
+ * 不再对每个方法、每个切面分别在类型层次中查找注解
+ */
+public final class AnnotationIndex {
+
+    /**
+     * 类型层次无法完整读取（例如缺少依赖的类）时使用，表示可能包含任何注解
+     */
+    private static final Set<Class<? extends Annotation>> UNKNOWN = Collections.unmodifiableSet(new HashSet<>(0));
+
+    private static final ClassValue<Set<Class<? extends Annotation>>> TYPE_ANNOTATIONS = new ClassValue<Set<Class<? extends Annotation>>>() {
+        @Override
+        protected Set<Class<? extends Annotation>> computeValue(Class<?> type) {
+            return scan(type);
+        }
+    };
+
+    private static final ClassValue<Set<Class<? extends Annotation>>> META_ANNOTATIONS = new ClassValue<Set<Class<? extends Annotation>>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected Set<Class<? extends Annotation>> computeValue(Class<?> type) {
+            return metaAnnotations((Class<? extends Annotation>) type);
+        }
+    };
+
+    private AnnotationIndex() {
+    }
+
+    /**
+     * 类型层次中是否可能有某个注解，包括作为元注解出现
+     * @param type 类型
+     * @param annotationType 注解类型
+     * @return 返回false时，类型及其父类、接口，以及其中声明的方法上都一定没有该注解
+     */
+    public static boolean mayContain(Class<?> type, Class<? extends Annotation> annotationType) {
+        Set<Class<? extends Annotation>> annotations = TYPE_ANNOTATIONS.get(type);
+        return annotations == UNKNOWN || annotations.contains(annotationType);
+    }
+
+    /**
+     * 方法上是否可能有某个注解，包括父类、接口中的同名方法以及所在类的注解
+     * @param method 方法
+     * @param targetClass 目标类型
+     * @param annotationType 注解类型
+     * @return 返回false时一定没有该注解
+     */
+    public static boolean mayContain(Method method, Class<?> targetClass, Class<? extends Annotation> annotationType) {
+        return mayContain(targetClass, annotationType)
+                || (method.getDeclaringClass() != targetClass && mayContain(method.getDeclaringClass(), annotationType));
+    }
+
+    private static Set<Class<? extends Annotation>> scan(Class<?> type) {
+        Set<Class<? extends Annotation>> result = new HashSet<>();
+        try {
+            addAll(result, type.getDeclaredAnnotations());
+            for (Method method : type.getDeclaredMethods()) {
+                addAll(result, method.getDeclaredAnnotations());
+            }
+        } catch (Throwable ex) {
+            // 和Spring一样容忍无法解析的类型，此时不做判断
+            return UNKNOWN;
+        }
+        if (!merge(result, type.getSuperclass())) {
+            return UNKNOWN;
+        }
+        for (Class<?> ifc : type.getInterfaces()) {
+            if (!merge(result, ifc)) {
+                return UNKNOWN;
+            }
+        }
+        return result.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(result);
+    }
+
+    private static boolean merge(Set<Class<? extends Annotation>> result, Class<?> type) {
+        if (type == null || type == Object.class) {
+            return true;
+        }
+        Set<Class<? extends Annotation>> annotations = TYPE_ANNOTATIONS.get(type);
+        if (annotations == UNKNOWN) {
+            return false;
+        }
+        result.addAll(annotations);
+        return true;
+    }
+
+    private static void addAll(Set<Class<? extends Annotation>> result, Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            Class<? extends Annotation> annotationType = annotation.annotationType();
+            if (!isJavaLangAnnotation(annotationType) && !result.contains(annotationType)) {
+                result.addAll(META_ANNOTATIONS.get(annotationType));
+            }
+        }
+    }
+
+    /**
+     * 注解本身及其各级元注解
+     */
+    private static Set<Class<? extends Annotation>> metaAnnotations(Class<? extends Annotation> annotationType) {
+        Set<Class<? extends Annotation>> result = new HashSet<>();
+        Deque<Class<? extends Annotation>> pending = new ArrayDeque<>();
+        pending.add(annotationType);
+        while (!pending.isEmpty()) {
+            Class<? extends Annotation> type = pending.poll();
+            if (!result.add(type)) {
+                continue;
+            }
+            try {
+                for (Annotation meta : type.getDeclaredAnnotations()) {
+                    if (!isJavaLangAnnotation(meta.annotationType())) {
+                        pending.add(meta.annotationType());
+                    }
+                }
+            } catch (Throwable ex) {
+                // 元注解无法解析时忽略，和Spring查找元注解时一样
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    private static boolean isJavaLangAnnotation(Class<? extends Annotation> annotationType) {
+        return annotationType.getName().startsWith("java.lang.annotation.");
+    }
+}
@@ -0,0 +1,21 @@
+package com.fantacya.kitty.aop;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+/**
+ * @description: 方法匹配注解时，为方法编译执行计划。执行计划在创建代理时生成，拦截时直接使用，
+ * 用来保存根据注解属性预先解析的对象，例如表达式、bean引用等
+ */
+@FunctionalInterface
+public interface AnnotationPlanCompiler<T extends Annotation> {
+
+    /**
+     * 为匹配注解的方法编译执行计划。同一个方法可能被多次匹配，执行计划需要是不可变的
+     * @param targetClass 目标类型
+     * @param method 注解的方法
+     * @param annotation 注解对象
+     * @return 执行计划
+     */
+    Object compile(Class<?> targetClass, Method method, T annotation);
+}
@@ -9,7 +9,6 @@ import org.springframework.core.annotation.AnnotationUtils;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -18,14 +17,21 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class AnnotationPointcut<T extends Annotation> implements Pointcut {
     /**
-     * 保存匹配方法的注解对象，方便拦截时获取
+     * 保存匹配方法的注解对象和执行计划，方便拦截时获取。先按目标类型再按方法查找，查找时不创建对象。
+     * 按目标类型保存在 {@link ClassValue} 中，不会阻止目标类型的类加载器被回收
      */
-    private ConcurrentHashMap<MethodAnnotationKey, Annotation> annotationMap = new ConcurrentHashMap<>(512);
+    private final ClassCache<ConcurrentHashMap<Method, MatchedMethod<T>>> matchedMethods =
+            new ClassCache<>(type -> new ConcurrentHashMap<>(16));
 
     private Class<? extends Annotation> annotationType;
 
     private MethodMatcher methodMatcher;
 
+    /**
+     * 延迟的注解校验，为null时匹配方法时直接校验
+     */
+    private volatile DeferredAnnotationValidation deferredValidation;
+
     public AnnotationPointcut(Class<T> annotationType) {
         this(annotationType, false, false, null);
     }
@@ -37,8 +43,21 @@ public class AnnotationPointcut<T extends Annotation> implements Pointcut {
      * @param checkClass 是否检查所在类的注解
      */
     public AnnotationPointcut(Class<T> annotationType, boolean checkInherited, boolean checkClass, AnnotationValidator<T> validator) {
+        this(annotationType, checkInherited, checkClass, validator, null);
+    }
+
+    /**
+     * 构造方法
+     * @param annotationType 注解类型
+     * @param checkInherited 是否检查父类或接口中的方法注解
+     * @param checkClass 是否检查所在类的注解
+     * @param validator 注解属性校验器
+     * @param compiler 方法匹配注解时编译执行计划
+     */
+    public AnnotationPointcut(Class<T> annotationType, boolean checkInherited, boolean checkClass,
+                              AnnotationValidator<T> validator, AnnotationPlanCompiler<T> compiler) {
         this.annotationType = annotationType;
-        this.methodMatcher = new AnnotationMethodMatcher<>(annotationType, checkInherited, checkClass, validator);
+        this.methodMatcher = new AnnotationMethodMatcher(annotationType, checkInherited, checkClass, validator, compiler);
     }
 
     @Override
@@ -51,12 +70,46 @@ public class AnnotationPointcut<T extends Annotation> implements Pointcut {
         return methodMatcher;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * 设置延迟的注解校验，方法第一次匹配时记录待校验的注解，由 {@link DeferredAnnotationValidation} 统一校验
+     * @param deferredValidation 为null时匹配方法时直接校验
+     */
+    public void setDeferredValidation(DeferredAnnotationValidation deferredValidation) {
+        this.deferredValidation = deferredValidation;
+    }
+
     public T getAnnotation(Class<?> targetClass, Method method) {
-        return (T) annotationMap.get(new MethodAnnotationKey(targetClass, method, annotationType));
+        MatchedMethod<T> matched = getMatchedMethod(targetClass, method);
+        return matched == null ? null : matched.getAnnotation();
+    }
+
+    /**
+     * 获取匹配的方法
+     * @param targetClass 目标类型
+     * @param method 方法
+     * @return 方法没有匹配时返回null
+     */
+    public MatchedMethod<T> getMatchedMethod(Class<?> targetClass, Method method) {
+        return matchedMethods.get(targetClass).get(method);
+    }
+
+    /**
+     * @return 缓存了匹配方法的目标类型数量，不包括已经被回收的类型
+     */
+    public int getCachedClassCount() {
+        return matchedMethods.size();
+    }
+
+    /**
+     * @return 缓存的匹配方法数量，不包括已经被回收的类型
+     */
+    public int getCachedMethodCount() {
+        int[] count = new int[1];
+        matchedMethods.forEach(methods -> count[0] += methods.size());
+        return count[0];
     }
 
-    class AnnotationMethodMatcher<T extends Annotation> extends StaticMethodMatcher {
+    class AnnotationMethodMatcher extends StaticMethodMatcher {
         private Class<T> annotationType;
 
         /**
@@ -74,11 +127,18 @@ public class AnnotationPointcut<T extends Annotation> implements Pointcut {
          */
         private AnnotationValidator<T> annotationValidator;
 
-        public AnnotationMethodMatcher(Class<T> annotationType, boolean checkInherited, boolean checkClass, AnnotationValidator<T> validator) {
+        /**
+         * 执行计划编译器
+         */
+        private AnnotationPlanCompiler<T> planCompiler;
+
+        public AnnotationMethodMatcher(Class<T> annotationType, boolean checkInherited, boolean checkClass,
+                                       AnnotationValidator<T> validator, AnnotationPlanCompiler<T> compiler) {
             this.annotationType = annotationType;
             this.checkInherited = checkInherited;
             this.checkClass = checkClass;
             this.annotationValidator = validator;
+            this.planCompiler = compiler;
         }
 
         @Override
@@ -87,6 +147,10 @@ public class AnnotationPointcut<T extends Annotation> implements Pointcut {
             if (Proxy.isProxyClass(targetClass)) {
                 return false;
             }
+            // 类型层次中没有该注解时不再逐个方法查找，大部分bean在这里就可以排除
+            if (!AnnotationIndex.mayContain(method, targetClass, annotationType)) {
+                return false;
+            }
 
             T annotation = checkInherited ? AnnotationUtils.findAnnotation(method, annotationType)
                     : AnnotationUtils.getAnnotation(method, annotationType);
@@ -96,57 +160,34 @@ public class AnnotationPointcut<T extends Annotation> implements Pointcut {
             }
 
             if (annotation != null) {
-                if (annotationValidator != null) {
+                DeferredAnnotationValidation deferred = deferredValidation;
+                if (annotationValidator != null && deferred == null) {
                     annotationValidator.validate(targetClass, method, annotation);
                 }
-                annotationMap.put(new MethodAnnotationKey(targetClass, method, annotationType), annotation);
+                ConcurrentHashMap<Method, MatchedMethod<T>> methods = matchedMethods.get(targetClass);
+                if (!methods.containsKey(method)) {
+                    if (deferred == null || (annotationValidator == null && planCompiler == null)) {
+                        Object plan = planCompiler == null ? null : planCompiler.compile(targetClass, method, annotation);
+                        methods.putIfAbsent(method, new MatchedMethod<>(annotation, plan));
+                    } else {
+                        // 执行计划只为校验通过的注解编译：由延迟校验在校验后编译，编译失败一起报告；
+                        // 延迟校验之前被调用时在第一次调用时校验并编译
+                        T found = annotation;
+                        MatchedMethod<T> matched = new MatchedMethod<>(annotation, () -> {
+                            if (annotationValidator != null) {
+                                annotationValidator.validate(targetClass, method, found);
+                            }
+                            return planCompiler == null ? null : planCompiler.compile(targetClass, method, found);
+                        });
+                        if (methods.putIfAbsent(method, matched) == null) {
+                            deferred.defer((type, m, a) -> matched.getPlan(), targetClass, method, annotation);
+                        }
+                    }
+                }
                 return true;
             }
             return false;
         }
 
     }
-
-    public static class MethodAnnotationKey {
-        private final Class<?> invokeClass;
-        private final Method invokeMethod;
-        private final Class<?> annotationType;
-
-        public MethodAnnotationKey(Class<?> invokeClass, Method invokeMethod, Class<?> annotationType) {
-            this.invokeClass = invokeClass;
-            this.invokeMethod = invokeMethod;
-            this.annotationType = annotationType;
-        }
-
-        public Class<?> getInvokeClass() {
-            return invokeClass;
-        }
-
-        public Method getInvokeMethod() {
-            return invokeMethod;
-        }
-
-        public Class<?> getAnnotationType() {
-            return annotationType;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) {
-                return true;
-            }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
-            }
-            MethodAnnotationKey that = (MethodAnnotationKey) o;
-            return invokeClass.equals(that.invokeClass) &&
-                    invokeMethod.equals(that.invokeMethod) &&
-                    annotationType.equals(that.annotationType);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(invokeClass, invokeMethod, annotationType);
-        }
-    }
 }
@@ -0,0 +1,94 @@
+package com.fantacya.kitty.aop;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * @description: 按类型缓存的数据，基于 {@link ClassValue}，数据保存在类型本身上，不会阻止类型及其类加载器被回收，
+ * 适合插件热加载的场景。另外以弱引用记录缓存了数据的类型，用于统计缓存大小
+ */
+final class ClassCache<V> {
+
+    private final Function<Class<?>, V> factory;
+
+    private final Set<ClassRef> classes = ConcurrentHashMap.newKeySet();
+
+    private final ReferenceQueue<Class<?>> queue = new ReferenceQueue<>();
+
+    private final ClassValue<V> values = new ClassValue<V>() {
+        @Override
+        protected V computeValue(Class<?> type) {
+            expunge();
+            classes.add(new ClassRef(type, queue));
+            return factory.apply(type);
+        }
+    };
+
+    ClassCache(Function<Class<?>, V> factory) {
+        this.factory = factory;
+    }
+
+    V get(Class<?> type) {
+        return values.get(type);
+    }
+
+    /**
+     * @return 缓存了数据且还没有被回收的类型数量
+     */
+    int size() {
+        expunge();
+        return classes.size();
+    }
+
+    /**
+     * 遍历还没有被回收的类型的数据
+     */
+    void forEach(Consumer<? super V> action) {
+        expunge();
+        for (ClassRef ref : classes) {
+            Class<?> type = ref.get();
+            if (type != null) {
+                action.accept(values.get(type));
+            }
+        }
+    }
+
+    private void expunge() {
+        for (Object ref; (ref = queue.poll()) != null; ) {
+            classes.remove(ref);
+        }
+    }
+
+    /**
+     * 按类型的同一性比较，并发计算同一个类型的数据时只记录一次
+     */
+    private static final class ClassRef extends WeakReference<Class<?>> {
+        private final int hash;
+
+        ClassRef(Class<?> type, ReferenceQueue<Class<?>> queue) {
+            super(type, queue);
+            this.hash = System.identityHashCode(type);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ClassRef)) {
+                return false;
+            }
+            Class<?> type = get();
+            return type != null && type == ((ClassRef) o).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.fantacya.kitty.aop;
+
+import org.aopalliance.aop.Advice;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.MethodMatcher;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.PointcutAdvisor;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+import org.springframework.aop.support.StaticMethodMatcher;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.core.Ordered;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @description: 把多个方法注解切面合并为一个切面。方法匹配时依次用各个切面匹配，
+ * 把匹配的切面及其执行计划保存为一条调用链；拦截时只查找一次调用链，按切面的顺序依次执行，
+ * 第一个切面在最外层。同时带有多个注解（例如 {@code @RateLimited}、{@code @Retryable}、{@code @DistributeLocked}）
+ * 的方法不再经过多个独立的拦截器，每一层也不再各自查找注解。
+ * <p>
+ * 被合并的切面由本切面管理，不能再注册为Spring bean，否则会被重复应用
+ */
+public class CompositeAnnotationMethodAdvisor implements PointcutAdvisor, MethodInterceptor, Ordered,
+        InitializingBean, ApplicationContextAware {
+
+    private final List<AbstractAnnotationMethodAdvisor<?>> advisors;
+
+    /**
+     * 保存匹配方法的调用链，先按目标类型再按方法查找，查找时不创建对象
+     */
+    private final ClassValue<ConcurrentHashMap<Method, Step<?>[]>> chains = new ClassValue<ConcurrentHashMap<Method, Step<?>[]>>() {
+        @Override
+        protected ConcurrentHashMap<Method, Step<?>[]> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>(16);
+        }
+    };
+
+    private final Pointcut pointcut = new CompositePointcut();
+
+    private int order = Ordered.LOWEST_PRECEDENCE;
+
+    /**
+     * @param advisors 需要合并的切面，按执行顺序排列，第一个在最外层
+     */
+    public CompositeAnnotationMethodAdvisor(AbstractAnnotationMethodAdvisor<?>... advisors) {
+        this(Arrays.asList(advisors));
+    }
+
+    /**
+     * @param advisors 需要合并的切面，按执行顺序排列，第一个在最外层
+     */
+    public CompositeAnnotationMethodAdvisor(List<? extends AbstractAnnotationMethodAdvisor<?>> advisors) {
+        if (advisors.isEmpty()) {
+            throw new IllegalArgumentException("advisors must not be empty");
+        }
+        this.advisors = Collections.unmodifiableList(new ArrayList<>(advisors));
+    }
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        for (AbstractAnnotationMethodAdvisor<?> advisor : advisors) {
+            if (advisor instanceof ApplicationContextAware) {
+                ((ApplicationContextAware) advisor).setApplicationContext(applicationContext);
+            }
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        for (AbstractAnnotationMethodAdvisor<?> advisor : advisors) {
+            if (advisor.getPointcut() == null) {
+                advisor.afterPropertiesSet();
+            }
+        }
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Class<?> targetClass = invocation.getThis().getClass();
+        Step<?>[] chain = chains.get(targetClass).get(invocation.getMethod());
+        if (chain == null) {
+            // 代理创建时没有以该目标类型匹配过，此时补充匹配
+            if (!pointcut.getMethodMatcher().matches(invocation.getMethod(), targetClass)) {
+                return invocation.proceed();
+            }
+            chain = chains.get(targetClass).get(invocation.getMethod());
+        }
+        ReflectiveMethodInvocation rmi = (ReflectiveMethodInvocation) invocation;
+        if (chain.length == 1) {
+            return chain[0].dispatch(rmi);
+        }
+        return new FusedMethodInvocation(rmi, chain).proceed();
+    }
+
+    /**
+     * 获取方法的调用链中匹配的切面
+     * @param targetClass 目标类型
+     * @param method 方法
+     * @return 按执行顺序排列的切面，方法没有匹配时返回空列表
+     */
+    public List<AbstractAnnotationMethodAdvisor<?>> getMatchedAdvisors(Class<?> targetClass, Method method) {
+        Step<?>[] chain = chains.get(targetClass).get(method);
+        if (chain == null) {
+            return Collections.emptyList();
+        }
+        List<AbstractAnnotationMethodAdvisor<?>> matched = new ArrayList<>(chain.length);
+        for (Step<?> step : chain) {
+            matched.add(step.advisor);
+        }
+        return matched;
+    }
+
+    /**
+     * 获取方法的调用链，还没有匹配过时进行匹配
+     * @return 方法不匹配任何切面时返回null
+     */
+    Step<?>[] getChain(Class<?> targetClass, Method method) {
+        if (!pointcut.getMethodMatcher().matches(method, targetClass)) {
+            return null;
+        }
+        return chains.get(targetClass).get(method);
+    }
+
+    public List<AbstractAnnotationMethodAdvisor<?>> getAdvisors() {
+        return advisors;
+    }
+
+    @Override
+    public Pointcut getPointcut() {
+        return pointcut;
+    }
+
+    @Override
+    public Advice getAdvice() {
+        return this;
+    }
+
+    @Override
+    public boolean isPerInstance() {
+        return true;
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+
+    public void setOrder(int order) {
+        this.order = order;
+    }
+
+    private class CompositePointcut implements Pointcut {
+        private final MethodMatcher methodMatcher = new StaticMethodMatcher() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                ConcurrentHashMap<Method, Step<?>[]> methods = chains.get(targetClass);
+                if (methods.containsKey(method)) {
+                    return true;
+                }
+                List<Step<?>> steps = new ArrayList<>(advisors.size());
+                for (AbstractAnnotationMethodAdvisor<?> advisor : advisors) {
+                    Step<?> step = Step.match(advisor, method, targetClass);
+                    if (step != null) {
+                        steps.add(step);
+                    }
+                }
+                if (steps.isEmpty()) {
+                    return false;
+                }
+                methods.putIfAbsent(method, steps.toArray(new Step<?>[0]));
+                return true;
+            }
+        };
+
+        @Override
+        public ClassFilter getClassFilter() {
+            return ClassFilter.TRUE;
+        }
+
+        @Override
+        public MethodMatcher getMethodMatcher() {
+            return methodMatcher;
+        }
+    }
+
+    /**
+     * 调用链中的一层：切面及其在方法上匹配的注解和执行计划
+     */
+    static final class Step<T extends Annotation> {
+        private final AbstractAnnotationMethodAdvisor<T> advisor;
+        private final MatchedMethod<T> matched;
+
+        private Step(AbstractAnnotationMethodAdvisor<T> advisor, MatchedMethod<T> matched) {
+            this.advisor = advisor;
+            this.matched = matched;
+        }
+
+        static <T extends Annotation> Step<T> match(AbstractAnnotationMethodAdvisor<T> advisor, Method method, Class<?> targetClass) {
+            AnnotationPointcut<T> pointcut = advisor.getPointcut();
+            if (!pointcut.getMethodMatcher().matches(method, targetClass)) {
+                return null;
+            }
+            return new Step<>(advisor, pointcut.getMatchedMethod(targetClass, method));
+        }
+
+        Object dispatch(ReflectiveMethodInvocation invocation) throws Throwable {
+            return advisor.invokeMatched(invocation, matched);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.fantacya.kitty.aop;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * @description: 延迟的注解校验。切面匹配方法时只记录待校验的（目标类型，方法，注解），
+ * 容器刷新完成后在 {@link ForkJoinPool} 上并行校验，所有校验失败合并为一个 {@link AnnotationValidateException} 抛出，
+ * 容器启动失败。校验器耗时较多（例如查找bean、解析表达式）时可以缩短启动时间。
+ * 切面的执行计划（见 {@link AbstractPlannedAnnotationMethodAdvisor#compile}）也在校验通过后在这里编译，编译失败一起报告；
+ * 容器刷新完成前就被调用的方法在第一次调用时校验并编译。
+ * <p>
+ * 需要注册为Spring bean，并通过 {@link AbstractAnnotationMethodAdvisor#setDeferredValidation} 设置给切面，
+ * 多个切面可以共用一个实例。容器刷新完成后才匹配的方法（例如延迟初始化的bean）直接校验。
+ * 校验器会被多个线程同时调用，需要是线程安全的
+ */
+public class DeferredAnnotationValidation implements ApplicationListener<ContextRefreshedEvent> {
+
+    private final ForkJoinPool pool;
+
+    private List<Task<?>> pending = new ArrayList<>();
+
+    private boolean validated;
+
+    /**
+     * 使用 {@link ForkJoinPool#commonPool()} 校验
+     */
+    public DeferredAnnotationValidation() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool 执行校验的线程池
+     */
+    public DeferredAnnotationValidation(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 记录待校验的注解，已经完成校验时直接校验
+     * @param validator 注解属性校验器
+     * @param targetClass 目标类型
+     * @param method 注解的方法
+     * @param annotation 注解对象
+     * @throws AnnotationValidateException 已经完成校验且校验失败时
+     */
+    public <T extends Annotation> void defer(AnnotationValidator<T> validator, Class<?> targetClass, Method method, T annotation) {
+        synchronized (this) {
+            if (!validated) {
+                pending.add(new Task<>(validator, targetClass, method, annotation));
+                return;
+            }
+        }
+        validator.validate(targetClass, method, annotation);
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        validate();
+    }
+
+    /**
+     * 并行校验所有记录的注解，之后记录的注解直接校验
+     * @throws AnnotationValidateException 有校验失败时，包含所有失败的信息；只有一个失败时作为cause，否则每个失败作为suppressed异常
+     */
+    public void validate() throws AnnotationValidateException {
+        List<Task<?>> tasks;
+        synchronized (this) {
+            validated = true;
+            tasks = pending;
+            pending = new ArrayList<>();
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        List<Failure> failures = pool.submit(() -> tasks.parallelStream()
+                .map(Task::run)
+                .filter(failure -> failure != null)
+                .collect(Collectors.toList())).join();
+        if (failures.isEmpty()) {
+            return;
+        }
+
+        failures.sort(Comparator.comparing(failure -> failure.task.toString()));
+        StringBuilder message = new StringBuilder().append(failures.size()).append(" annotation validation(s) failed:");
+        for (Failure failure : failures) {
+            message.append(System.lineSeparator()).append("  ").append(failure.task).append(": ").append(failure.error.getMessage());
+        }
+        if (failures.size() == 1) {
+            throw new AnnotationValidateException(message.toString(), failures.get(0).error);
+        }
+        AnnotationValidateException ex = new AnnotationValidateException(message.toString());
+        for (Failure failure : failures) {
+            ex.addSuppressed(failure.error);
+        }
+        throw ex;
+    }
+
+    /**
+     * 尚未校验的注解数量
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    private static final class Task<T extends Annotation> {
+        private final AnnotationValidator<T> validator;
+        private final Class<?> targetClass;
+        private final Method method;
+        private final T annotation;
+
+        Task(AnnotationValidator<T> validator, Class<?> targetClass, Method method, T annotation) {
+            this.validator = validator;
+            this.targetClass = targetClass;
+            this.method = method;
+            this.annotation = annotation;
+        }
+
+        Failure run() {
+            try {
+                validator.validate(targetClass, method, annotation);
+                return null;
+            } catch (RuntimeException ex) {
+                return new Failure(this, ex);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "@" + annotation.annotationType().getSimpleName() + " on " + targetClass.getName() + "." + method.getName();
+        }
+    }
+
+    private static final class Failure {
+        private final Task<?> task;
+        private final RuntimeException error;
+
+        Failure(Task<?> task, RuntimeException error) {
+            this.task = task;
+            this.error = error;
+        }
+    }
+}
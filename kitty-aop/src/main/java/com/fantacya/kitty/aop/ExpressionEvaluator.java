@@ -0,0 +1,142 @@
+package com.fantacya.kitty.aop;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.context.expression.AnnotatedElementKey;
+import org.springframework.context.expression.CachedExpressionEvaluator;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @description: 对方法注解中的SpEL表达式求值，表达式按方法缓存。
+ * 表达式中可以通过 {@code #root.object}、{@code #root.args} 访问目标对象和参数，
+ * 也可以通过 {@code #p0}、{@code #a0} 或参数名访问参数。
+ * 表达式使用 {@link SpelCompilerMode#MIXED} 模式解析，多次求值后编译为字节码，编译结果不适用时退回解释执行
+ */
+public class ExpressionEvaluator extends CachedExpressionEvaluator {
+    // shared param discoverer since it caches data internally
+    private final ParameterNameDiscoverer paramNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    /**
+     * 解析的表达式和目标方法按目标类型缓存在 {@link ClassValue} 中，不会阻止目标类型的类加载器被回收
+     */
+    private final ClassValue<Map<ExpressionKey, Expression>> expressionCache = new ClassValue<Map<ExpressionKey, Expression>>() {
+        @Override
+        protected Map<ExpressionKey, Expression> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>(16);
+        }
+    };
+
+    private final ClassValue<Map<Method, Method>> targetMethodCache = new ClassValue<Map<Method, Method>>() {
+        @Override
+        protected Map<Method, Method> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>(16);
+        }
+    };
+
+    private final MethodExpressionCompiler compiler = new MethodExpressionCompiler(this.paramNameDiscoverer);
+
+    public ExpressionEvaluator() {
+        super(new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, null)));
+    }
+
+    /**
+     * 在方法调用上对表达式求值
+     * @param expression SpEL表达式
+     * @param object 目标对象
+     * @param targetClass 目标类型
+     * @param method 调用的方法
+     * @param args 调用参数
+     * @param resultType 结果类型
+     * @return 表达式的值
+     */
+    public <T> T evaluate(String expression, Object object, Class<?> targetClass, Method method, Object[] args,
+                          Class<T> resultType) {
+        EvaluationContext evaluationContext = createEvaluationContext(object, targetClass, method, args);
+        AnnotatedElementKey methodKey = new AnnotatedElementKey(method, targetClass);
+        return getValue(expression, targetClass, methodKey, evaluationContext, resultType);
+    }
+
+    /**
+     * Create the suitable {@link EvaluationContext} for the specified event handling
+     * on the specified method.
+     */
+    public EvaluationContext createEvaluationContext(Object object, Class<?> targetClass, Method method, Object[] args) {
+        Method targetMethod = getTargetMethod(targetClass, method);
+        ExpressionRootObject root = new ExpressionRootObject(object, args);
+        return new MethodBasedEvaluationContext(root, targetMethod, args, this.paramNameDiscoverer);
+    }
+
+    /**
+     * 使用已经确定的目标方法创建 {@link EvaluationContext}，用于执行计划
+     * @param object 目标对象
+     * @param targetMethod 目标类型上的方法，见 {@link AopUtils#getMostSpecificMethod(Method, Class)}
+     * @param args 调用参数
+     */
+    public EvaluationContext createEvaluationContext(Object object, Method targetMethod, Object[] args) {
+        ExpressionRootObject root = new ExpressionRootObject(object, args);
+        return new MethodBasedEvaluationContext(root, targetMethod, args, this.paramNameDiscoverer);
+    }
+
+    /**
+     * 预先解析表达式，用于执行计划
+     * @param expression SpEL表达式
+     */
+    public Expression parseExpression(String expression) {
+        return getParser().parseExpression(expression);
+    }
+
+    /**
+     * 针对目标方法编译表达式，用于执行计划。{@code #p0}、{@code #参数名}、{@code #参数名.属性}
+     * 以及它们和字符串常量的拼接直接读取调用参数，不创建 {@link EvaluationContext}；其他表达式按
+     * {@link #createEvaluationContext(Object, Method, Object[])} 求值
+     * @param expression SpEL表达式
+     * @param targetMethod 目标类型上的方法，见 {@link AopUtils#getMostSpecificMethod(Method, Class)}
+     */
+    public MethodExpression compile(String expression, Method targetMethod) {
+        Expression parsed = parseExpression(expression);
+        MethodExpression interpreted = new MethodExpression() {
+            @Override
+            public Object getValue(Object target, Object[] args) {
+                return parsed.getValue(createEvaluationContext(target, targetMethod, args));
+            }
+
+            @Override
+            public String getStringValue(Object target, Object[] args) {
+                return parsed.getValue(createEvaluationContext(target, targetMethod, args), String.class);
+            }
+        };
+        return compiler.compile(parsed, targetMethod, interpreted);
+    }
+
+    /**
+     * Evaluate the specified expression in the given context.
+     * @param targetClass 目标类型，解析的表达式按目标类型缓存
+     */
+    public <T> T getValue(String expression, Class<?> targetClass, AnnotatedElementKey elementKey,
+                          EvaluationContext evalContext, Class<T> resultType) {
+        return getExpression(this.expressionCache.get(targetClass), elementKey, expression).getValue(evalContext, resultType);
+    }
+
+    private Method getTargetMethod(Class<?> targetClass, Method method) {
+        Map<Method, Method> targetMethods = this.targetMethodCache.get(targetClass);
+        Method targetMethod = targetMethods.get(method);
+        if (targetMethod == null) {
+            targetMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+            if (targetMethod == null) {
+                targetMethod = method;
+            }
+            targetMethods.put(method, targetMethod);
+        }
+        return targetMethod;
+    }
+}
@@ -0,0 +1,66 @@
+package com.fantacya.kitty.aop;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * @description: {@link CompositeAnnotationMethodAdvisor} 的调用链上的方法调用。{@link #proceed()} 依次执行调用链中的切面，
+ * 执行完后交给外层的方法调用，继续执行代理中其他的拦截器和目标方法。参数和用户属性直接读写外层的方法调用
+ */
+final class FusedMethodInvocation extends ReflectiveMethodInvocation {
+
+    private final CompositeAnnotationMethodAdvisor.Step<?>[] chain;
+
+    private ReflectiveMethodInvocation outer;
+
+    private int index;
+
+    FusedMethodInvocation(ReflectiveMethodInvocation outer, CompositeAnnotationMethodAdvisor.Step<?>[] chain) {
+        super(outer.getProxy(), outer.getThis(), outer.getMethod(), outer.getArguments(),
+                outer.getThis() != null ? outer.getThis().getClass() : null, Collections.emptyList());
+        this.outer = outer;
+        this.chain = chain;
+    }
+
+    @Override
+    public Object proceed() throws Throwable {
+        if (index == chain.length) {
+            return outer.proceed();
+        }
+        return chain[index++].dispatch(this);
+    }
+
+    /**
+     * 克隆时同时克隆外层的方法调用，克隆出的调用可以独立地多次执行调用链的剩余部分，例如重试
+     */
+    @Override
+    public MethodInvocation invocableClone(Object... arguments) {
+        FusedMethodInvocation clone = (FusedMethodInvocation) super.invocableClone(arguments);
+        clone.outer = (ReflectiveMethodInvocation) outer.invocableClone(arguments);
+        return clone;
+    }
+
+    @Override
+    public void setArguments(Object... arguments) {
+        super.setArguments(arguments);
+        outer.setArguments(arguments);
+    }
+
+    @Override
+    public void setUserAttribute(String key, Object value) {
+        outer.setUserAttribute(key, value);
+    }
+
+    @Override
+    public Object getUserAttribute(String key) {
+        return outer.getUserAttribute(key);
+    }
+
+    @Override
+    public Map<String, Object> getUserAttributes() {
+        return outer.getUserAttributes();
+    }
+}
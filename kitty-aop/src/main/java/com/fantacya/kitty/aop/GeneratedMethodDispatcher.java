@@ -0,0 +1,69 @@
+package com.fantacya.kitty.aop;
+
+import net.bytebuddy.implementation.bind.annotation.AllArguments;
+import net.bytebuddy.implementation.bind.annotation.FieldValue;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+import net.bytebuddy.implementation.bind.annotation.This;
+import org.springframework.aop.AopInvocationException;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * @description: {@link GeneratedProxyFactory} 生成的子类中，被切面拦截的方法委托给本类。
+ * 每个方法一个实例，保存该方法的调用链和直接调用目标方法的 {@link TargetInvoker}。
+ * 生成的类需要访问本类，因此是public的，不应直接使用
+ */
+public final class GeneratedMethodDispatcher {
+
+    /**
+     * 生成的子类中保存目标对象的字段
+     */
+    static final String TARGET_FIELD = "kitty$target";
+
+    private final Method method;
+
+    private final CompositeAnnotationMethodAdvisor.Step<?>[] chain;
+
+    private final TargetInvoker invoker;
+
+    private final boolean returnsPrimitive;
+
+    GeneratedMethodDispatcher(Method method, CompositeAnnotationMethodAdvisor.Step<?>[] chain, TargetInvoker invoker) {
+        this.method = method;
+        this.chain = chain;
+        this.invoker = invoker;
+        this.returnsPrimitive = method.getReturnType().isPrimitive() && method.getReturnType() != void.class;
+    }
+
+    @RuntimeType
+    public Object dispatch(@This Object proxy, @FieldValue(TARGET_FIELD) Object target, @AllArguments Object[] args) throws Throwable {
+        Object result;
+        try {
+            result = new GeneratedMethodInvocation(proxy, target, method, args, chain, invoker).proceed();
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            // 和Spring的代理一样，方法没有声明的受检异常包装为UndeclaredThrowableException
+            for (Class<?> declared : method.getExceptionTypes()) {
+                if (declared.isInstance(ex)) {
+                    throw ex;
+                }
+            }
+            throw new UndeclaredThrowableException(ex);
+        }
+        // 和Spring的代理一样，基本类型的返回值为null时抛出AopInvocationException，而不是拆箱时的NullPointerException
+        if (result == null && returnsPrimitive) {
+            throw new AopInvocationException("Null return value from advice does not match primitive return type for: " + method);
+        }
+        return result;
+    }
+
+    /**
+     * 直接调用目标方法，不使用反射。{@link GeneratedProxyFactory} 为每个被拦截的方法生成实现，
+     * {@link StandaloneProxyFactory} 使用 {@link java.lang.invoke.MethodHandle} 实现
+     */
+    public interface TargetInvoker {
+        Object invoke(Object target, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,39 @@
+package com.fantacya.kitty.aop;
+
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+/**
+ * @description: 生成的子类上的方法调用。{@link #proceed()} 依次执行方法调用链中的切面，
+ * 最后通过生成的 {@link GeneratedMethodDispatcher.TargetInvoker} 直接调用目标方法，不经过Spring的拦截器链和反射
+ */
+final class GeneratedMethodInvocation extends ReflectiveMethodInvocation {
+
+    private final CompositeAnnotationMethodAdvisor.Step<?>[] chain;
+
+    private final GeneratedMethodDispatcher.TargetInvoker invoker;
+
+    private int index;
+
+    GeneratedMethodInvocation(Object proxy, Object target, Method method, Object[] arguments,
+                              CompositeAnnotationMethodAdvisor.Step<?>[] chain, GeneratedMethodDispatcher.TargetInvoker invoker) {
+        super(proxy, target, method, arguments, target.getClass(), Collections.emptyList());
+        this.chain = chain;
+        this.invoker = invoker;
+    }
+
+    @Override
+    public Object proceed() throws Throwable {
+        if (index == chain.length) {
+            return invokeJoinpoint();
+        }
+        return chain[index++].dispatch(this);
+    }
+
+    @Override
+    protected Object invokeJoinpoint() throws Throwable {
+        return invoker.invoke(target, arguments);
+    }
+}
@@ -0,0 +1,67 @@
+package com.fantacya.kitty.aop;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.core.Ordered;
+
+/**
+ * @description: 使用 {@link GeneratedProxyFactory} 织入切面的 {@link BeanPostProcessor}，
+ * 为有被拦截方法的bean生成子类，替代Spring的自动代理。合并的切面由本类初始化，
+ * 切面本身和 {@link CompositeAnnotationMethodAdvisor} 都不能再注册为Spring bean，否则会被重复应用。
+ * 已经是Spring代理的bean不做处理
+ */
+public class GeneratedProxyBeanPostProcessor implements BeanPostProcessor, Ordered, InitializingBean, ApplicationContextAware {
+
+    private final CompositeAnnotationMethodAdvisor advisor;
+
+    private final GeneratedProxyFactory proxyFactory;
+
+    private int order = Ordered.LOWEST_PRECEDENCE;
+
+    /**
+     * @param advisors 需要织入的切面，按执行顺序排列，第一个在最外层
+     */
+    public GeneratedProxyBeanPostProcessor(AbstractAnnotationMethodAdvisor<?>... advisors) {
+        this(new CompositeAnnotationMethodAdvisor(advisors));
+    }
+
+    public GeneratedProxyBeanPostProcessor(CompositeAnnotationMethodAdvisor advisor) {
+        this.advisor = advisor;
+        this.proxyFactory = new GeneratedProxyFactory(advisor);
+    }
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        advisor.setApplicationContext(applicationContext);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        advisor.afterPropertiesSet();
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (AopUtils.isAopProxy(bean)) {
+            return bean;
+        }
+        return proxyFactory.getProxy(bean);
+    }
+
+    public GeneratedProxyFactory getProxyFactory() {
+        return proxyFactory;
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+
+    public void setOrder(int order) {
+        this.order = order;
+    }
+}
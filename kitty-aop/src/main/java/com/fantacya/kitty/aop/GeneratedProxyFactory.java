@@ -0,0 +1,233 @@
+package com.fantacya.kitty.aop;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.ClassFileVersion;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassInjector;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.MethodDelegation;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.implementation.bytecode.StackManipulation;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.implementation.bytecode.assign.TypeCasting;
+import net.bytebuddy.implementation.bytecode.collection.ArrayAccess;
+import net.bytebuddy.implementation.bytecode.constant.IntegerConstant;
+import net.bytebuddy.implementation.bytecode.constant.NullConstant;
+import net.bytebuddy.implementation.bytecode.member.MethodInvocation;
+import net.bytebuddy.implementation.bytecode.member.MethodReturn;
+import net.bytebuddy.implementation.bytecode.member.MethodVariableAccess;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.springframework.aop.framework.AopConfigException;
+import org.springframework.objenesis.SpringObjenesis;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.bytebuddy.matcher.ElementMatchers.is;
+import static net.bytebuddy.matcher.ElementMatchers.isDeclaredBy;
+import static net.bytebuddy.matcher.ElementMatchers.isToString;
+import static net.bytebuddy.matcher.ElementMatchers.isVirtual;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+import static net.bytebuddy.matcher.ElementMatchers.not;
+
+/**
+ * @description: 生成子类的织入方式，用于调用非常频繁的方法。为每个目标类型生成一个子类：
+ * 被切面拦截的方法直接调用 {@link GeneratedMethodDispatcher}，依次执行匹配的切面后直接调用目标方法；
+ * 其他方法直接转发给目标对象。和Spring的代理相比，没有拦截器链、注解查找和反射调用，
+ * 切面仍然通过 {@link AbstractAnnotationMethodAdvisor} 的同一套接口执行。
+ * <p>
+ * 切面的匹配和执行顺序与 {@link CompositeAnnotationMethodAdvisor} 相同。被拦截的方法必须是public且不是final的；
+ * 生成的子类和目标类型在同一个包和类加载器中，不调用目标类型的构造方法。
+ * 需要依赖byte-buddy
+ */
+public class GeneratedProxyFactory {
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private final CompositeAnnotationMethodAdvisor advisor;
+
+    private final SpringObjenesis objenesis = new SpringObjenesis();
+
+    private final ClassValue<ProxyType> proxyTypes = new ClassValue<ProxyType>() {
+        @Override
+        protected ProxyType computeValue(Class<?> type) {
+            return generate(type);
+        }
+    };
+
+    /**
+     * @param advisor 合并的切面，决定方法匹配的切面及其执行顺序。不需要再注册为Spring bean
+     */
+    public GeneratedProxyFactory(CompositeAnnotationMethodAdvisor advisor) {
+        this.advisor = advisor;
+    }
+
+    /**
+     * 目标类型是否有被切面拦截的方法
+     */
+    public boolean isAdvised(Class<?> targetClass) {
+        return proxyTypes.get(targetClass) != ProxyType.NONE;
+    }
+
+    /**
+     * 为目标对象创建生成的子类的实例
+     * @param target 目标对象
+     * @return 代理对象；目标类型没有被拦截的方法时返回目标对象本身
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getProxy(T target) {
+        ProxyType proxyType = proxyTypes.get(target.getClass());
+        if (proxyType == ProxyType.NONE) {
+            return target;
+        }
+        Object proxy = objenesis.newInstance(proxyType.type);
+        ReflectionUtils.setField(proxyType.targetField, proxy, target);
+        return (T) proxy;
+    }
+
+    private ProxyType generate(Class<?> targetClass) {
+        Map<Method, CompositeAnnotationMethodAdvisor.Step<?>[]> advised = findAdvisedMethods(targetClass);
+        if (advised.isEmpty()) {
+            return ProxyType.NONE;
+        }
+        if (Modifier.isFinal(targetClass.getModifiers())) {
+            throw new AopConfigException("Cannot generate subclass of final class " + targetClass.getName());
+        }
+
+        // 包内可见的方法只有和目标类型在同一个包中时才能转发
+        String packageName = ClassUtils.getPackageName(targetClass);
+        ElementMatcher<MethodDescription> forwarded = isVirtual().and(not(isDeclaredBy(Object.class)))
+                .and(method -> method.isPublic() || (!method.isPrivate() && !method.isProtected()
+                        && packageName.equals(ClassUtils.getPackageName(method.getDeclaringType().asErasure().getName()))))
+                .or(isToString());
+
+        DynamicType.Builder<?> builder = byteBuddy()
+                .subclass(targetClass, ConstructorStrategy.Default.IMITATE_SUPER_CLASS_OPENING)
+                .name(targetClass.getName() + "$$KittyGenerated$$" + COUNTER.incrementAndGet())
+                .defineField(GeneratedMethodDispatcher.TARGET_FIELD, targetClass, Visibility.PRIVATE)
+                .method(forwarded)
+                .intercept(MethodCall.invokeSelf().onField(GeneratedMethodDispatcher.TARGET_FIELD).withAllArguments());
+        for (Map.Entry<Method, CompositeAnnotationMethodAdvisor.Step<?>[]> entry : advised.entrySet()) {
+            Method method = entry.getKey();
+            GeneratedMethodDispatcher dispatcher = new GeneratedMethodDispatcher(method, entry.getValue(),
+                    generateInvoker(targetClass, method));
+            builder = builder.method(is(method)).intercept(MethodDelegation.to(dispatcher));
+        }
+
+        Class<?> type = builder.make().load(targetClass.getClassLoader(), loadingStrategy(targetClass)).getLoaded();
+        Field targetField = ReflectionUtils.findField(type, GeneratedMethodDispatcher.TARGET_FIELD);
+        ReflectionUtils.makeAccessible(targetField);
+        return new ProxyType(type, targetField);
+    }
+
+    private Map<Method, CompositeAnnotationMethodAdvisor.Step<?>[]> findAdvisedMethods(Class<?> targetClass) {
+        Map<Method, CompositeAnnotationMethodAdvisor.Step<?>[]> advised = new LinkedHashMap<>();
+        for (Method method : ReflectionUtils.getUniqueDeclaredMethods(targetClass)) {
+            if (Modifier.isStatic(method.getModifiers()) || method.getDeclaringClass() == Object.class
+                    || method.isBridge() || method.isSynthetic()) {
+                continue;
+            }
+            CompositeAnnotationMethodAdvisor.Step<?>[] chain = advisor.getChain(targetClass, method);
+            if (chain == null) {
+                continue;
+            }
+            if (!Modifier.isPublic(method.getModifiers()) || Modifier.isFinal(method.getModifiers())) {
+                throw new AopConfigException("Advised method must be public and not final for generated subclass: " + method);
+            }
+            advised.put(method, chain);
+        }
+        return advised;
+    }
+
+    /**
+     * 生成直接调用目标方法的 {@link GeneratedMethodDispatcher.TargetInvoker}：
+     * 转换目标对象类型，从参数数组中取出参数并拆箱，调用方法后将返回值装箱
+     */
+    private GeneratedMethodDispatcher.TargetInvoker generateInvoker(Class<?> targetClass, Method method) {
+        TypeDescription targetType = new TypeDescription.ForLoadedType(targetClass);
+        MethodDescription targetMethod = new MethodDescription.ForLoadedMethod(method);
+        ByteCodeAppender appender = (methodVisitor, context, instrumentedMethod) -> {
+            List<StackManipulation> code = new ArrayList<>();
+            code.add(MethodVariableAccess.REFERENCE.loadFrom(1));
+            code.add(TypeCasting.to(targetType));
+            int index = 0;
+            for (TypeDescription.Generic parameterType : targetMethod.getParameters().asTypeList()) {
+                code.add(MethodVariableAccess.REFERENCE.loadFrom(2));
+                code.add(IntegerConstant.forValue(index++));
+                code.add(ArrayAccess.REFERENCE.load());
+                code.add(Assigner.DEFAULT.assign(TypeDescription.Generic.OBJECT, parameterType.asErasure().asGenericType(),
+                        Assigner.Typing.DYNAMIC));
+            }
+            code.add(MethodInvocation.invoke(targetMethod).virtual(targetType));
+            if (targetMethod.getReturnType().represents(void.class)) {
+                code.add(NullConstant.INSTANCE);
+            } else {
+                code.add(Assigner.DEFAULT.assign(targetMethod.getReturnType().asErasure().asGenericType(),
+                        TypeDescription.Generic.OBJECT, Assigner.Typing.DYNAMIC));
+            }
+            code.add(MethodReturn.REFERENCE);
+            StackManipulation.Size size = new StackManipulation.Compound(code).apply(methodVisitor, context);
+            return new ByteCodeAppender.Size(size.getMaximalSize(), instrumentedMethod.getStackSize());
+        };
+
+        Class<?> type = byteBuddy()
+                .subclass(GeneratedMethodDispatcher.TargetInvoker.class)
+                .name(targetClass.getName() + "$$KittyInvoker$$" + COUNTER.incrementAndGet())
+                .method(named("invoke"))
+                .intercept(new Implementation.Simple(appender))
+                .make()
+                .load(targetClass.getClassLoader(), loadingStrategy(targetClass))
+                .getLoaded();
+        try {
+            return (GeneratedMethodDispatcher.TargetInvoker) type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new AopConfigException("Cannot instantiate generated invoker for " + method, ex);
+        }
+    }
+
+    private static ByteBuddy byteBuddy() {
+        return new ByteBuddy(ClassFileVersion.JAVA_V8);
+    }
+
+    /**
+     * 在目标类型所在的包中定义生成的类：Java 9及以上使用 {@code MethodHandles.Lookup}，Java 8使用反射注入
+     */
+    private static ClassLoadingStrategy<ClassLoader> loadingStrategy(Class<?> targetClass) {
+        if (ClassInjector.UsingLookup.isAvailable()) {
+            try {
+                Method privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+                return ClassLoadingStrategy.UsingLookup.of(privateLookupIn.invoke(null, targetClass, MethodHandles.lookup()));
+            } catch (ReflectiveOperationException ex) {
+                throw new AopConfigException("Cannot define classes in the package of " + targetClass.getName(), ex);
+            }
+        }
+        return ClassLoadingStrategy.Default.INJECTION;
+    }
+
+    private static final class ProxyType {
+        private static final ProxyType NONE = new ProxyType(null, null);
+
+        private final Class<?> type;
+        private final Field targetField;
+
+        ProxyType(Class<?> type, Field targetField) {
+            this.type = type;
+            this.targetField = targetField;
+        }
+    }
+}
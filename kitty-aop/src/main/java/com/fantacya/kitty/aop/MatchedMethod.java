@@ -0,0 +1,70 @@
+package com.fantacya.kitty.aop;
+
+import com.fantacya.kitty.aop.metrics.MethodRecorder;
+
+import java.lang.annotation.Annotation;
+import java.util.function.Supplier;
+
+/**
+ * @description: 匹配注解的方法，保存注解及其执行计划
+ */
+public final class MatchedMethod<T extends Annotation> {
+
+    private final T annotation;
+
+    private Object plan;
+
+    /**
+     * 延迟编译执行计划，编译完成后为null
+     */
+    private volatile Supplier<?> planSupplier;
+
+    /**
+     * 开启指标时，第一次调用时设置
+     */
+    private volatile MethodRecorder recorder;
+
+    public MatchedMethod(T annotation, Object plan) {
+        this.annotation = annotation;
+        this.plan = plan;
+    }
+
+    /**
+     * 执行计划在第一次获取时编译
+     * @param annotation 注解对象
+     * @param planSupplier 编译执行计划，抛出异常时下次获取重新编译
+     */
+    MatchedMethod(T annotation, Supplier<?> planSupplier) {
+        this.annotation = annotation;
+        this.planSupplier = planSupplier;
+    }
+
+    public T getAnnotation() {
+        return annotation;
+    }
+
+    /**
+     * 执行计划，没有 {@link AnnotationPlanCompiler} 时为null
+     * @return
+     */
+    public Object getPlan() {
+        if (planSupplier != null) {
+            synchronized (this) {
+                Supplier<?> supplier = planSupplier;
+                if (supplier != null) {
+                    plan = supplier.get();
+                    planSupplier = null;
+                }
+            }
+        }
+        return plan;
+    }
+
+    MethodRecorder getRecorder() {
+        return recorder;
+    }
+
+    void setRecorder(MethodRecorder recorder) {
+        this.recorder = recorder;
+    }
+}
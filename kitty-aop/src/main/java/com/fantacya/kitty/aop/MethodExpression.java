@@ -0,0 +1,36 @@
+package com.fantacya.kitty.aop;
+
+import org.springframework.core.convert.support.DefaultConversionService;
+
+/**
+ * @description: 针对某个目标方法编译好的SpEL表达式，见 {@link ExpressionEvaluator#compile(String, java.lang.reflect.Method)}。
+ * 求值结果和在 {@link org.springframework.context.expression.MethodBasedEvaluationContext} 中解释执行相同
+ */
+@FunctionalInterface
+public interface MethodExpression {
+
+    /**
+     * 在一次方法调用上求值
+     * @param target 目标对象
+     * @param args 调用参数
+     * @return 表达式的值
+     */
+    Object getValue(Object target, Object[] args);
+
+    /**
+     * 求值并转换为字符串，转换方式和 {@code Expression.getValue(context, String.class)} 相同
+     * @param target 目标对象
+     * @param args 调用参数
+     * @return 表达式的值，值为null时返回null
+     */
+    default String getStringValue(Object target, Object[] args) {
+        return toStringValue(getValue(target, args));
+    }
+
+    static String toStringValue(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        return DefaultConversionService.getSharedInstance().convert(value, String.class);
+    }
+}
@@ -0,0 +1,261 @@
+package com.fantacya.kitty.aop;
+
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.ast.CompoundExpression;
+import org.springframework.expression.spel.ast.OpPlus;
+import org.springframework.expression.spel.ast.PropertyOrFieldReference;
+import org.springframework.expression.spel.ast.StringLiteral;
+import org.springframework.expression.spel.ast.VariableReference;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @description: 把常见的key表达式编译成直接读取参数的函数，求值时不需要创建 {@code EvaluationContext}。
+ * 支持的形式：{@code #p0}、{@code #a0}、{@code #参数名}、属性访问 {@code #参数名.属性}、
+ * 以及它们和字符串常量的 {@code +} 拼接。其他表达式、以及运行时遇到null属性访问等情况时，按原表达式解释执行
+ */
+final class MethodExpressionCompiler {
+
+    private static final Pattern INDEXED_ARGUMENT = Pattern.compile("[ap](\\d+)");
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final ParameterNameDiscoverer paramNameDiscoverer;
+
+    MethodExpressionCompiler(ParameterNameDiscoverer paramNameDiscoverer) {
+        this.paramNameDiscoverer = paramNameDiscoverer;
+    }
+
+    /**
+     * @param expression 解析好的表达式
+     * @param targetMethod 目标类型上的方法，参数名从该方法获取
+     * @param interpreted 解释执行的方式，不能编译或者编译结果无法处理本次调用时使用
+     */
+    MethodExpression compile(Expression expression, Method targetMethod, MethodExpression interpreted) {
+        // 可变参数在求值上下文中会被重新打包，保持解释执行
+        if (!(expression instanceof SpelExpression) || targetMethod.isVarArgs()) {
+            return interpreted;
+        }
+        Parameters parameters = new Parameters(targetMethod.getParameterTypes(),
+                paramNameDiscoverer.getParameterNames(targetMethod));
+        Node node = compile(((SpelExpression) expression).getAST(), parameters);
+        return node != null ? new DirectMethodExpression(node.accessor, interpreted) : interpreted;
+    }
+
+    private static Node compile(SpelNode ast, Parameters parameters) {
+        if (ast instanceof StringLiteral) {
+            Object value = ((StringLiteral) ast).getLiteralValue().getValue();
+            return new Node(args -> value, String.class);
+        }
+        if (ast instanceof VariableReference) {
+            return argument(ast.toStringAST().substring(1), parameters);
+        }
+        if (ast instanceof CompoundExpression) {
+            Node node = compile(ast.getChild(0), parameters);
+            for (int i = 1; node != null && i < ast.getChildCount(); i++) {
+                node = property(node, ast.getChild(i));
+            }
+            return node;
+        }
+        if (ast instanceof OpPlus && ast.getChildCount() == 2) {
+            return concat(compile(ast.getChild(0), parameters), compile(ast.getChild(1), parameters));
+        }
+        return null;
+    }
+
+    private static Node argument(String name, Parameters parameters) {
+        // #root 和 #this 不是参数
+        if ("root".equals(name) || "this".equals(name)) {
+            return null;
+        }
+        int index = parameters.indexOf(name);
+        if (index < 0) {
+            return null;
+        }
+        return new Node(args -> args[index], parameters.types[index]);
+    }
+
+    private static Node property(Node target, SpelNode ast) {
+        if (!(ast instanceof PropertyOrFieldReference) || ((PropertyOrFieldReference) ast).isNullSafe()) {
+            return null;
+        }
+        Class<?> type = target.type;
+        if (type.isPrimitive() || type.isArray()) {
+            return null;
+        }
+        String name = ((PropertyOrFieldReference) ast).getName();
+        Accessor source = target.accessor;
+
+        Method getter = findGetter(type, name);
+        if (getter != null) {
+            ReflectionUtils.makeAccessible(getter);
+            return new Node(args -> getter.invoke(requireTarget(source.get(args)), NO_ARGS), getter.getReturnType());
+        }
+        Field field = findField(type, name);
+        if (field != null) {
+            ReflectionUtils.makeAccessible(field);
+            return new Node(args -> field.get(requireTarget(source.get(args))), field.getType());
+        }
+        return null;
+    }
+
+    /**
+     * SpEL的 {@code +} 只要有一个操作数是字符串就做拼接，另一个操作数按 {@link MethodExpression#toStringValue(Object)} 转换。
+     * 这里要求至少一个操作数的静态类型是字符串，运行时两个都不是字符串（例如字符串参数为null）时解释执行
+     */
+    private static Node concat(Node left, Node right) {
+        if (left == null || right == null || (left.type != String.class && right.type != String.class)) {
+            return null;
+        }
+        Accessor l = left.accessor;
+        Accessor r = right.accessor;
+        return new Node(args -> {
+            Object lv = l.get(args);
+            Object rv = r.get(args);
+            if (!(lv instanceof String) && !(rv instanceof String)) {
+                throw FallbackException.INSTANCE;
+            }
+            return toConcatString(lv) + toConcatString(rv);
+        }, String.class);
+    }
+
+    private static String toConcatString(Object value) {
+        return value == null ? "null" : MethodExpression.toStringValue(value);
+    }
+
+    private static Object requireTarget(Object target) {
+        if (target == null) {
+            throw FallbackException.INSTANCE;
+        }
+        return target;
+    }
+
+    /**
+     * 和 {@code ReflectivePropertyAccessor} 一样优先使用 {@code getXxx}，布尔属性使用 {@code isXxx}
+     */
+    private static Method findGetter(Class<?> type, String name) {
+        String suffix = StringUtils.capitalize(name);
+        for (Method method : type.getMethods()) {
+            if (method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers()) || method.isBridge()
+                    || method.getReturnType() == void.class) {
+                continue;
+            }
+            if (method.getName().equals("get" + suffix)) {
+                return method;
+            }
+        }
+        for (Method method : type.getMethods()) {
+            if (method.getParameterCount() == 0 && !Modifier.isStatic(method.getModifiers())
+                    && method.getName().equals("is" + suffix)
+                    && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        try {
+            Field field = type.getField(name);
+            return Modifier.isStatic(field.getModifiers()) ? null : field;
+        } catch (NoSuchFieldException ex) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Accessor {
+        Object get(Object[] args) throws Exception;
+    }
+
+    /**
+     * 编译后的表达式节点及其静态类型
+     */
+    private static final class Node {
+        private final Accessor accessor;
+        private final Class<?> type;
+
+        Node(Accessor accessor, Class<?> type) {
+            this.accessor = accessor;
+            this.type = type;
+        }
+    }
+
+    /**
+     * 和 {@code MethodBasedEvaluationContext} 一样，参数名优先于 {@code #a0}、{@code #p0}
+     */
+    private static final class Parameters {
+        private final Class<?>[] types;
+        private final String[] names;
+
+        Parameters(Class<?>[] types, String[] names) {
+            this.types = types;
+            this.names = names;
+        }
+
+        int indexOf(String name) {
+            if (names != null) {
+                for (int i = 0; i < names.length; i++) {
+                    if (name.equals(names[i])) {
+                        return i;
+                    }
+                }
+            }
+            Matcher matcher = INDEXED_ARGUMENT.matcher(name);
+            if (matcher.matches() && matcher.group(1).length() < 10) {
+                int index = Integer.parseInt(matcher.group(1));
+                return index < types.length ? index : -1;
+            }
+            return -1;
+        }
+    }
+
+    static final class DirectMethodExpression implements MethodExpression {
+        private final Accessor accessor;
+        private final MethodExpression interpreted;
+
+        DirectMethodExpression(Accessor accessor, MethodExpression interpreted) {
+            this.accessor = accessor;
+            this.interpreted = interpreted;
+        }
+
+        @Override
+        public Object getValue(Object target, Object[] args) {
+            try {
+                return accessor.get(args);
+            } catch (Exception ex) {
+                // 属性访问的目标为null、getter抛出异常等，交给SpEL处理，保持相同的结果和异常
+                return interpreted.getValue(target, args);
+            }
+        }
+
+        @Override
+        public String getStringValue(Object target, Object[] args) {
+            try {
+                return MethodExpression.toStringValue(accessor.get(args));
+            } catch (Exception ex) {
+                return interpreted.getStringValue(target, args);
+            }
+        }
+    }
+
+    /**
+     * 通知调用方按解释执行，不需要堆栈
+     */
+    private static final class FallbackException extends RuntimeException {
+        private static final FallbackException INSTANCE = new FallbackException();
+
+        private FallbackException() {
+            super("fallback to interpreted expression", null, false, false);
+        }
+    }
+}
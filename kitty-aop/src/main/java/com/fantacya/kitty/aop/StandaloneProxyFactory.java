@@ -0,0 +1,173 @@
+package com.fantacya.kitty.aop;
+
+import org.springframework.aop.framework.AopConfigException;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @description: 不依赖Spring容器的织入方式，用于没有Spring容器的程序（例如批处理任务）。
+ * 为目标对象的接口创建JDK动态代理：被切面拦截的方法依次执行匹配的切面，最后通过 {@link MethodHandle} 调用目标方法；
+ * 其他方法直接通过 {@link MethodHandle} 调用目标方法。
+ * <p>
+ * 切面的匹配和执行顺序与 {@link CompositeAnnotationMethodAdvisor} 相同，注解按目标类型上的方法查找，
+ * {@code invocation.getMethod()} 也是目标类型上的方法。切面不经过Spring容器初始化，需要的依赖通过构造方法传入，例如
+ * <pre>
+ * StandaloneProxyFactory factory = new StandaloneProxyFactory(new DistributeLockAdvisor(lockProvider), new RetryAdvisor());
+ * OrderService orderService = factory.getProxy(new OrderServiceImpl(), OrderService.class);
+ * </pre>
+ * 没有实现接口的类型使用 {@link GeneratedProxyFactory}
+ */
+public class StandaloneProxyFactory {
+
+    private final CompositeAnnotationMethodAdvisor advisor;
+
+    private final ClassValue<ConcurrentHashMap<Method, MethodEntry>> methods = new ClassValue<ConcurrentHashMap<Method, MethodEntry>>() {
+        @Override
+        protected ConcurrentHashMap<Method, MethodEntry> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>(16);
+        }
+    };
+
+    /**
+     * 合并并初始化切面
+     * @param advisors 切面，按执行顺序排列，第一个在最外层
+     */
+    public StandaloneProxyFactory(AbstractAnnotationMethodAdvisor<?>... advisors) {
+        this(initialize(new CompositeAnnotationMethodAdvisor(advisors)));
+    }
+
+    /**
+     * @param advisor 已经初始化的合并的切面
+     */
+    public StandaloneProxyFactory(CompositeAnnotationMethodAdvisor advisor) {
+        this.advisor = advisor;
+    }
+
+    private static CompositeAnnotationMethodAdvisor initialize(CompositeAnnotationMethodAdvisor advisor) {
+        try {
+            advisor.afterPropertiesSet();
+        } catch (Exception ex) {
+            throw new AopConfigException("Cannot initialize advisors", ex);
+        }
+        return advisor;
+    }
+
+    /**
+     * 创建实现目标对象所有接口的代理
+     * @param target 目标对象
+     * @return 代理对象
+     */
+    public Object getProxy(Object target) {
+        Class<?>[] interfaces = ClassUtils.getAllInterfacesForClass(target.getClass());
+        if (interfaces.length == 0) {
+            throw new AopConfigException("Class " + target.getClass().getName() + " does not implement any interface");
+        }
+        return newProxy(target, interfaces);
+    }
+
+    /**
+     * 创建实现指定接口的代理
+     * @param target 目标对象
+     * @param proxyInterface 代理实现的接口
+     * @return 代理对象
+     */
+    public <T> T getProxy(Object target, Class<T> proxyInterface) {
+        if (!proxyInterface.isInterface() || !proxyInterface.isInstance(target)) {
+            throw new AopConfigException(proxyInterface.getName() + " is not an interface implemented by "
+                    + target.getClass().getName());
+        }
+        return proxyInterface.cast(newProxy(target, new Class<?>[]{proxyInterface}));
+    }
+
+    private Object newProxy(Object target, Class<?>[] interfaces) {
+        Class<?> targetClass = target.getClass();
+        return Proxy.newProxyInstance(targetClass.getClassLoader(), interfaces,
+                new Handler(target, methods.get(targetClass)));
+    }
+
+    private MethodEntry createEntry(Class<?> targetClass, Method method) {
+        Method targetMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+        CompositeAnnotationMethodAdvisor.Step<?>[] chain = advisor.getChain(targetClass, targetMethod);
+        MethodHandleInvoker invoker = new MethodHandleInvoker(method);
+        return new MethodEntry(targetMethod, chain, invoker);
+    }
+
+    private final class Handler implements InvocationHandler {
+        private final Object target;
+
+        private final ConcurrentHashMap<Method, MethodEntry> entries;
+
+        Handler(Object target, ConcurrentHashMap<Method, MethodEntry> entries) {
+            this.target = target;
+            this.entries = entries;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                if (ReflectionUtils.isEqualsMethod(method)) {
+                    return proxy == args[0];
+                }
+                if (ReflectionUtils.isHashCodeMethod(method)) {
+                    return System.identityHashCode(proxy);
+                }
+                return method.invoke(target, args);
+            }
+            MethodEntry entry = entries.get(method);
+            if (entry == null) {
+                entry = entries.computeIfAbsent(method, m -> createEntry(target.getClass(), m));
+            }
+            if (entry.chain == null) {
+                return entry.invoker.invoke(target, args);
+            }
+            // JDK动态代理会把方法没有声明的受检异常包装为UndeclaredThrowableException
+            return new GeneratedMethodInvocation(proxy, target, entry.targetMethod, args, entry.chain, entry.invoker).proceed();
+        }
+    }
+
+    private static final class MethodEntry {
+        private final Method targetMethod;
+        private final CompositeAnnotationMethodAdvisor.Step<?>[] chain;
+        private final MethodHandleInvoker invoker;
+
+        MethodEntry(Method targetMethod, CompositeAnnotationMethodAdvisor.Step<?>[] chain, MethodHandleInvoker invoker) {
+            this.targetMethod = targetMethod;
+            this.chain = chain;
+            this.invoker = invoker;
+        }
+    }
+
+    /**
+     * 通过 {@link MethodHandle} 调用接口方法，参数数组展开为方法参数
+     */
+    private static final class MethodHandleInvoker implements GeneratedMethodDispatcher.TargetInvoker {
+        private static final MethodType TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+        private final MethodHandle handle;
+
+        MethodHandleInvoker(Method method) {
+            ReflectionUtils.makeAccessible(method);
+            try {
+                this.handle = MethodHandles.lookup().unreflect(method)
+                        .asSpreader(Object[].class, method.getParameterCount())
+                        .asType(TYPE);
+            } catch (IllegalAccessException ex) {
+                throw new AopConfigException("Cannot access method " + method, ex);
+            }
+        }
+
+        @Override
+        public Object invoke(Object target, Object[] args) throws Throwable {
+            return (Object) handle.invokeExact(target, args);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.fantacya.kitty.aop.metrics;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.function.LongSupplier;
+
+/**
+ * @description: 切面调用指标的注册中心，见 {@code AbstractAnnotationMethodAdvisor#setMetricsRegistry}。
+ * 每个被拦截的方法在第一次调用时获取一个 {@link MethodRecorder}，之后一直使用
+ */
+@FunctionalInterface
+public interface AdvisorMetricsRegistry {
+
+    /**
+     * 获取方法的记录器。同一个方法可能被并发获取多次，应返回同一个记录器
+     * @param annotationType 切面的注解类型
+     * @param targetClass 目标类型
+     * @param method 被拦截的方法
+     * @return 记录器
+     */
+    MethodRecorder recorder(Class<? extends Annotation> annotationType, Class<?> targetClass, Method method);
+
+    /**
+     * 注册切面缓存的大小，切面初始化或设置注册中心时调用一次。默认不记录
+     * @param annotationType 切面的注解类型
+     * @param classCount 缓存了匹配方法的目标类型数量
+     * @param methodCount 缓存的匹配方法数量
+     */
+    default void registerCacheSize(Class<? extends Annotation> annotationType, LongSupplier classCount, LongSupplier methodCount) {
+    }
+}
@@ -0,0 +1,109 @@
+package com.fantacya.kitty.aop.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @description: 记录耗时的直方图，桶的划分方式和HdrHistogram相同：小于64的值每个值一个桶，
+ * 更大的值按二进制数量级划分，每个数量级再等分为32个桶，相对误差不超过1/32。
+ * 记录时只对一个桶做原子自增，不加锁、不创建对象；超过2^41纳秒（约36分钟）的值记入最后一个桶
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS >> 1;
+
+    private static final int MAX_MAGNITUDE = 40;
+
+    private static final long MAX_TRACKABLE_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+    static final int BUCKETS = SUB_BUCKETS + (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder total = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一个值
+     * @param value 耗时，小于0时按0记录
+     */
+    public void record(long value) {
+        long v = Math.max(0L, value);
+        counts.getAndIncrement(indexOf(v));
+        total.add(v);
+        long current = max.get();
+        while (v > current && !max.compareAndSet(current, v)) {
+            current = max.get();
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0.0 : total.doubleValue() / count;
+    }
+
+    /**
+     * 获取百分位数，返回所在桶的上界，且不超过最大值。记录和读取并发时结果是近似的
+     * @param percentile 百分位，0到100
+     * @return 百分位数，没有记录时返回0
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0L;
+        }
+        double p = Math.min(100.0, Math.max(0.0, percentile));
+        long rank = Math.max(1L, (long) Math.ceil(p / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int indexOf(long value) {
+        long v = Math.min(value, MAX_TRACKABLE_VALUE);
+        if (v < SUB_BUCKETS) {
+            return (int) v;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (magnitude - SUB_BUCKET_BITS + 1)) & (HALF_SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (magnitude - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS + sub;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int magnitude = SUB_BUCKET_BITS + (index - SUB_BUCKETS) / HALF_SUB_BUCKETS;
+        int sub = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS;
+        int shift = magnitude - SUB_BUCKET_BITS + 1;
+        return ((long) (HALF_SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,15 @@
+package com.fantacya.kitty.aop.metrics;
+
+/**
+ * @description: 记录一个被切面拦截的方法的调用，每次调用结束时调用一次。实现需要是线程安全的，并且尽量不加锁、不创建对象
+ */
+@FunctionalInterface
+public interface MethodRecorder {
+
+    /**
+     * 记录一次调用
+     * @param durationNanos 调用耗时，包括切面本身及其内层的切面和目标方法，单位纳秒
+     * @param error 调用抛出的异常，正常返回时为null
+     */
+    void record(long durationNanos, Throwable error);
+}
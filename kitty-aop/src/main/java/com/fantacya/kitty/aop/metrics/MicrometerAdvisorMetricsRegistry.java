@@ -0,0 +1,79 @@
+package com.fantacya.kitty.aop.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * @description: 把切面调用指标注册到Micrometer。每个方法注册两个 {@link Timer}，
+ * 以 {@code outcome=success|error} 区分正常返回和抛出异常，调用次数即Timer的计数；
+ * 其他标签为 {@code annotation}（注解简单类名）、{@code class}（目标类型）、{@code method}（方法名）。
+ * 默认发布百分位直方图，由监控系统聚合。
+ * 切面缓存的大小注册为 {@code kitty.advisor.cache.classes} 和 {@code kitty.advisor.cache.methods} 两个Gauge，标签为 {@code annotation}。micrometer-core是可选依赖，使用本类时需要自行引入
+ */
+public class MicrometerAdvisorMetricsRegistry implements AdvisorMetricsRegistry {
+
+    public static final String DEFAULT_METRIC_NAME = "kitty.advisor.invocations";
+
+    public static final String CACHE_CLASSES_METRIC_NAME = "kitty.advisor.cache.classes";
+
+    public static final String CACHE_METHODS_METRIC_NAME = "kitty.advisor.cache.methods";
+
+    private final MeterRegistry meterRegistry;
+
+    private final String metricName;
+
+    private final boolean publishPercentileHistogram;
+
+    public MicrometerAdvisorMetricsRegistry(MeterRegistry meterRegistry) {
+        this(meterRegistry, DEFAULT_METRIC_NAME, true);
+    }
+
+    /**
+     * @param meterRegistry Micrometer的注册中心
+     * @param metricName 指标名称
+     * @param publishPercentileHistogram 是否发布百分位直方图
+     */
+    public MicrometerAdvisorMetricsRegistry(MeterRegistry meterRegistry, String metricName, boolean publishPercentileHistogram) {
+        this.meterRegistry = meterRegistry;
+        this.metricName = metricName;
+        this.publishPercentileHistogram = publishPercentileHistogram;
+    }
+
+    @Override
+    public MethodRecorder recorder(Class<? extends Annotation> annotationType, Class<?> targetClass, Method method) {
+        Tags tags = Tags.of("annotation", annotationType.getSimpleName(),
+                "class", targetClass.getName(),
+                "method", method.getName());
+        Timer success = timer(tags.and("outcome", "success"));
+        Timer error = timer(tags.and("outcome", "error"));
+        return (durationNanos, ex) -> (ex == null ? success : error).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void registerCacheSize(Class<? extends Annotation> annotationType, LongSupplier classCount, LongSupplier methodCount) {
+        gauge(CACHE_CLASSES_METRIC_NAME, annotationType, classCount);
+        gauge(CACHE_METHODS_METRIC_NAME, annotationType, methodCount);
+    }
+
+    private void gauge(String name, Class<? extends Annotation> annotationType, LongSupplier value) {
+        // 切面只在这里引用supplier，需要强引用，否则会被回收
+        Gauge.builder(name, value, LongSupplier::getAsLong)
+                .tag("annotation", annotationType.getSimpleName())
+                .strongReference(true)
+                .register(meterRegistry);
+    }
+
+    private Timer timer(Tags tags) {
+        return Timer.builder(metricName)
+                .tags(tags)
+                .publishPercentileHistogram(publishPercentileHistogram)
+                .register(meterRegistry);
+    }
+}
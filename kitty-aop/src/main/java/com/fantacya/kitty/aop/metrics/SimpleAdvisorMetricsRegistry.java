@@ -0,0 +1,186 @@
+package com.fantacya.kitty.aop.metrics;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * @description: 在进程内保存指标的注册中心，每个方法记录调用次数、异常次数和耗时直方图，
+ * 可以通过 {@link #getStats()} 读取后自行输出，切面缓存的大小通过 {@link #getCacheSizes()} 读取。
+ * 需要接入监控系统时使用 {@link MicrometerAdvisorMetricsRegistry}。
+ * 本类持有被调用方法的强引用，插件热加载时被卸载的类型不会被回收，这种场景使用 {@link MicrometerAdvisorMetricsRegistry}
+ */
+public class SimpleAdvisorMetricsRegistry implements AdvisorMetricsRegistry {
+
+    private final Map<MethodKey, MethodStats> stats = new ConcurrentHashMap<>(64);
+
+    private final Map<Class<? extends Annotation>, CacheSize> cacheSizes = new ConcurrentHashMap<>(16);
+
+    @Override
+    public MethodStats recorder(Class<? extends Annotation> annotationType, Class<?> targetClass, Method method) {
+        return stats.computeIfAbsent(new MethodKey(annotationType, targetClass, method), MethodStats::new);
+    }
+
+    /**
+     * @return 所有被调用过的方法的指标
+     */
+    public Collection<MethodStats> getStats() {
+        return new ArrayList<>(stats.values());
+    }
+
+    @Override
+    public void registerCacheSize(Class<? extends Annotation> annotationType, LongSupplier classCount, LongSupplier methodCount) {
+        cacheSizes.put(annotationType, new CacheSize(annotationType, classCount, methodCount));
+    }
+
+    /**
+     * @return 所有切面的缓存大小
+     */
+    public Collection<CacheSize> getCacheSizes() {
+        return new ArrayList<>(cacheSizes.values());
+    }
+
+    /**
+     * 获取切面的缓存大小
+     * @return 切面没有注册时返回null
+     */
+    public CacheSize getCacheSize(Class<? extends Annotation> annotationType) {
+        return cacheSizes.get(annotationType);
+    }
+
+    /**
+     * 获取方法的指标
+     * @return 方法还没有被调用过时返回null
+     */
+    public MethodStats getStats(Class<? extends Annotation> annotationType, Class<?> targetClass, Method method) {
+        return stats.get(new MethodKey(annotationType, targetClass, method));
+    }
+
+    /**
+     * 一个切面在一个方法上的指标
+     */
+    public static final class MethodStats implements MethodRecorder {
+        private final Class<? extends Annotation> annotationType;
+        private final Class<?> targetClass;
+        private final Method method;
+
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private MethodStats(MethodKey key) {
+            this.annotationType = key.annotationType;
+            this.targetClass = key.targetClass;
+            this.method = key.method;
+        }
+
+        @Override
+        public void record(long durationNanos, Throwable error) {
+            latency.record(durationNanos);
+            if (error != null) {
+                errors.increment();
+            }
+        }
+
+        public Class<? extends Annotation> getAnnotationType() {
+            return annotationType;
+        }
+
+        public Class<?> getTargetClass() {
+            return targetClass;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public long getCalls() {
+            return latency.getCount();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        /**
+         * @return 耗时直方图，单位纳秒
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return "@" + annotationType.getSimpleName() + " " + targetClass.getName() + "." + method.getName()
+                    + ": calls=" + getCalls() + ", errors=" + getErrors()
+                    + ", p50=" + latency.getValueAtPercentile(50) + "ns, p99=" + latency.getValueAtPercentile(99)
+                    + "ns, max=" + latency.getMax() + "ns";
+        }
+    }
+
+    /**
+     * 一个切面的缓存大小，每次读取时计算
+     */
+    public static final class CacheSize {
+        private final Class<? extends Annotation> annotationType;
+        private final LongSupplier classCount;
+        private final LongSupplier methodCount;
+
+        private CacheSize(Class<? extends Annotation> annotationType, LongSupplier classCount, LongSupplier methodCount) {
+            this.annotationType = annotationType;
+            this.classCount = classCount;
+            this.methodCount = methodCount;
+        }
+
+        public Class<? extends Annotation> getAnnotationType() {
+            return annotationType;
+        }
+
+        public long getClassCount() {
+            return classCount.getAsLong();
+        }
+
+        public long getMethodCount() {
+            return methodCount.getAsLong();
+        }
+
+        @Override
+        public String toString() {
+            return "@" + annotationType.getSimpleName() + ": classes=" + getClassCount() + ", methods=" + getMethodCount();
+        }
+    }
+
+    private static final class MethodKey {
+        private final Class<? extends Annotation> annotationType;
+        private final Class<?> targetClass;
+        private final Method method;
+
+        MethodKey(Class<? extends Annotation> annotationType, Class<?> targetClass, Method method) {
+            this.annotationType = annotationType;
+            this.targetClass = targetClass;
+            this.method = method;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            MethodKey that = (MethodKey) o;
+            return annotationType == that.annotationType && targetClass == that.targetClass && method.equals(that.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(annotationType, targetClass, method);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.fantacya.kitty.aop;
+
+import com.fantacya.kitty.aop.annotation.LogAdvised;
+import com.fantacya.kitty.aop.annotation.RandomAdvised;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+public class AnnotationIndexTest {
+
+    @Test
+    public void plainClass() {
+        Assert.assertFalse(AnnotationIndex.mayContain(Plain.class, LogAdvised.class));
+        Assert.assertFalse(AnnotationIndex.mayContain(Object.class, LogAdvised.class));
+    }
+
+    @Test
+    public void methodAnnotations() throws Exception {
+        Assert.assertTrue(AnnotationIndex.mayContain(ArithmeticService.class, LogAdvised.class));
+        Assert.assertTrue(AnnotationIndex.mayContain(ArithmeticService.class, RandomAdvised.class));
+        Assert.assertTrue(AnnotationIndex.mayContain(Plain.class.getMethod("toString"), ArithmeticService.class, LogAdvised.class));
+    }
+
+    @Test
+    public void inheritedFromInterfaceAndSuperclass() throws Exception {
+        Assert.assertTrue(AnnotationIndex.mayContain(Implementation.class, LogAdvised.class));
+        Assert.assertTrue(AnnotationIndex.mayContain(SubClass.class, LogAdvised.class));
+        Assert.assertFalse(AnnotationIndex.mayContain(SubClass.class, RandomAdvised.class));
+
+        // 接口中的方法，以没有注解的类型匹配
+        Assert.assertTrue(AnnotationIndex.mayContain(Logged.class.getMethod("run"), Plain.class, LogAdvised.class));
+    }
+
+    @Test
+    public void metaAnnotations() {
+        Assert.assertTrue(AnnotationIndex.mayContain(ComposedUser.class, Marker.class));
+        Assert.assertTrue(AnnotationIndex.mayContain(ComposedUser.class, Composed.class));
+        Assert.assertFalse(AnnotationIndex.mayContain(ComposedUser.class, LogAdvised.class));
+    }
+
+    public static class Plain {
+        public void run() {
+        }
+    }
+
+    public interface Logged {
+        @LogAdvised
+        void run();
+    }
+
+    public static class Implementation implements Logged {
+        @Override
+        public void run() {
+        }
+    }
+
+    public static class SubClass extends Implementation {
+    }
+
+    @Target({ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Marker {
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @Marker
+    public @interface Composed {
+    }
+
+    public static class ComposedUser {
+        @Composed
+        public int next() {
+            return 0;
+        }
+    }
+}
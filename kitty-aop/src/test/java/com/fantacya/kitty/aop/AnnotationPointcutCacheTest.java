@@ -0,0 +1,119 @@
+package com.fantacya.kitty.aop;
+
+import com.fantacya.kitty.aop.metrics.SimpleAdvisorMetricsRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+
+public class AnnotationPointcutCacheTest {
+
+    @Test
+    public void cacheSize() throws Exception {
+        SimpleAdvisorMetricsRegistry registry = new SimpleAdvisorMetricsRegistry();
+        CachedAdvisor advisor = new CachedAdvisor();
+        advisor.setMetricsRegistry(registry);
+        advisor.afterPropertiesSet();
+
+        AnnotationPointcut<Cached> pointcut = advisor.getPointcut();
+        for (Method method : Plugin.class.getMethods()) {
+            pointcut.getMethodMatcher().matches(method, Plugin.class);
+        }
+        Assert.assertEquals(1, pointcut.getCachedClassCount());
+        Assert.assertEquals(2, pointcut.getCachedMethodCount());
+
+        SimpleAdvisorMetricsRegistry.CacheSize size = registry.getCacheSize(Cached.class);
+        Assert.assertEquals(1, size.getClassCount());
+        Assert.assertEquals(2, size.getMethodCount());
+    }
+
+    @Test
+    public void doesNotPinClassLoader() throws Exception {
+        CachedAdvisor advisor = new CachedAdvisor();
+        advisor.afterPropertiesSet();
+        AnnotationPointcut<Cached> pointcut = advisor.getPointcut();
+
+        WeakReference<ClassLoader> loader = matchInPluginLoader(pointcut);
+        Assert.assertEquals(2, pointcut.getCachedMethodCount());
+
+        for (int i = 0; i < 50 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        Assert.assertNull(loader.get());
+        Assert.assertEquals(0, pointcut.getCachedClassCount());
+        Assert.assertEquals(0, pointcut.getCachedMethodCount());
+    }
+
+    private static WeakReference<ClassLoader> matchInPluginLoader(AnnotationPointcut<Cached> pointcut) throws Exception {
+        PluginClassLoader loader = new PluginClassLoader(Plugin.class.getName());
+        Class<?> pluginClass = loader.loadClass(Plugin.class.getName());
+        Assert.assertNotSame(Plugin.class, pluginClass);
+        for (Method method : pluginClass.getMethods()) {
+            pointcut.getMethodMatcher().matches(method, pluginClass);
+        }
+        return new WeakReference<>(loader);
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Cached {
+    }
+
+    public static class Plugin {
+        @Cached
+        public int first() {
+            return 1;
+        }
+
+        @Cached
+        public int second() {
+            return 2;
+        }
+
+        public int plain() {
+            return 3;
+        }
+    }
+
+    static class CachedAdvisor extends AbstractAnnotationMethodAdvisor<Cached> {
+        @Override
+        public Object invoke(ReflectiveMethodInvocation invocation, Cached annotation) throws Throwable {
+            return invocation.proceed();
+        }
+    }
+
+    /**
+     * 重新定义一个类，模拟热加载的插件
+     */
+    static class PluginClassLoader extends ClassLoader {
+        private final String name;
+
+        PluginClassLoader(String name) {
+            super(PluginClassLoader.class.getClassLoader());
+            this.name = name;
+        }
+
+        @Override
+        protected Class<?> loadClass(String className, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(className)) {
+                return super.loadClass(className, resolve);
+            }
+            try (InputStream in = getParent().getResourceAsStream(className.replace('.', '/') + ".class")) {
+                byte[] bytes = StreamUtils.copyToByteArray(in);
+                return defineClass(className, bytes, 0, bytes.length);
+            } catch (IOException ex) {
+                throw new ClassNotFoundException(className, ex);
+            }
+        }
+    }
+}
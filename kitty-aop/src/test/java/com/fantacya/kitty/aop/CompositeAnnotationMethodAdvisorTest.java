@@ -0,0 +1,146 @@
+package com.fantacya.kitty.aop;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CompositeAnnotationMethodAdvisorTest {
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+    private TraceAdvisor traceAdvisor;
+
+    private RepeatAdvisor repeatAdvisor;
+
+    private CompositeAnnotationMethodAdvisor advisor;
+
+    private Service service;
+
+    @Before
+    public void setUp() throws Exception {
+        traceAdvisor = new TraceAdvisor(events);
+        repeatAdvisor = new RepeatAdvisor();
+        advisor = new CompositeAnnotationMethodAdvisor(traceAdvisor, repeatAdvisor);
+        advisor.afterPropertiesSet();
+
+        ProxyFactory factory = new ProxyFactory(new Service(events));
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(advisor);
+        service = (Service) factory.getProxy();
+    }
+
+    @Test
+    public void runsMatchedAdvisorsInOrder() throws Exception {
+        Assert.assertEquals(3, service.both(1));
+        Assert.assertEquals(Arrays.asList("before:both", "target:1", "target:2", "target:3", "after:both"), events);
+
+        Assert.assertEquals(Arrays.asList(traceAdvisor, repeatAdvisor),
+                advisor.getMatchedAdvisors(Service.class, Service.class.getMethod("both", int.class)));
+    }
+
+    @Test
+    public void singleAdvisor() throws Exception {
+        Assert.assertEquals(1, service.traced(1));
+        Assert.assertEquals(Arrays.asList("before:traced", "target:1", "after:traced"), events);
+
+        events.clear();
+        Assert.assertEquals(3, service.repeated(1));
+        Assert.assertEquals(Arrays.asList("target:1", "target:2", "target:3"), events);
+    }
+
+    @Test
+    public void notAdvised() throws Exception {
+        Assert.assertEquals(1, service.plain(1));
+        Assert.assertEquals(Collections.singletonList("target:1"), events);
+        Assert.assertTrue(advisor.getMatchedAdvisors(Service.class, Service.class.getMethod("plain", int.class)).isEmpty());
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Traced {
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Repeated {
+        int times() default 3;
+    }
+
+    public static class Service {
+        private final List<String> events;
+
+        public Service() {
+            this(null);
+        }
+
+        Service(List<String> events) {
+            this.events = events;
+        }
+
+        @Traced
+        @Repeated
+        public int both(int i) {
+            events.add("target:" + i);
+            return i;
+        }
+
+        @Traced
+        public int traced(int i) {
+            events.add("target:" + i);
+            return i;
+        }
+
+        @Repeated
+        public int repeated(int i) {
+            events.add("target:" + i);
+            return i;
+        }
+
+        public int plain(int i) {
+            events.add("target:" + i);
+            return i;
+        }
+    }
+
+    static class TraceAdvisor extends AbstractAnnotationMethodAdvisor<Traced> {
+        private final List<String> events;
+
+        TraceAdvisor(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public Object invoke(ReflectiveMethodInvocation invocation, Traced annotation) throws Throwable {
+            events.add("before:" + invocation.getMethod().getName());
+            Object result = invocation.proceed();
+            events.add("after:" + invocation.getMethod().getName());
+            return result;
+        }
+    }
+
+    /**
+     * 和重试一样，每次通过克隆的调用执行剩余的调用链，每次把参数加1
+     */
+    static class RepeatAdvisor extends AbstractAnnotationMethodAdvisor<Repeated> {
+        @Override
+        public Object invoke(ReflectiveMethodInvocation invocation, Repeated annotation) throws Throwable {
+            Object result = null;
+            for (int i = 0; i < annotation.times(); i++) {
+                int arg = (Integer) invocation.getArguments()[0] + i;
+                result = invocation.invocableClone(arg).proceed();
+            }
+            return result;
+        }
+    }
+}
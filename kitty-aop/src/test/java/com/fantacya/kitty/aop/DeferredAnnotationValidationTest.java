@@ -0,0 +1,209 @@
+package com.fantacya.kitty.aop;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+import org.springframework.aop.framework.autoproxy.DefaultAdvisorAutoProxyCreator;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DeferredAnnotationValidationTest {
+
+    @Test
+    public void validatesAfterRefresh() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(ValidConfig.class)) {
+            Assert.assertEquals(0, context.getBean(DeferredAnnotationValidation.class).getPendingCount());
+            Assert.assertEquals(2, context.getBean(LimitValidator.class).validated.size());
+            Assert.assertEquals(3, context.getBean(ValidService.class).work(3));
+        }
+    }
+
+    @Test
+    public void reportsAllFailures() {
+        try {
+            new AnnotationConfigApplicationContext(InvalidConfig.class).close();
+            Assert.fail();
+        } catch (AnnotationValidateException ex) {
+            Assert.assertTrue(ex.getMessage().startsWith("2 annotation validation(s) failed:"));
+            Assert.assertTrue(ex.getMessage().contains("@Limited on " + InvalidService.class.getName() + ".negative"));
+            Assert.assertTrue(ex.getMessage().contains("@Limited on " + InvalidService.class.getName() + ".zero"));
+            Assert.assertEquals(2, ex.getSuppressed().length);
+        }
+    }
+
+    @Test
+    public void validatesDirectlyAfterRefresh() throws Exception {
+        DeferredAnnotationValidation validation = new DeferredAnnotationValidation();
+        validation.validate();
+        try {
+            validation.defer(new LimitValidator(), InvalidService.class, InvalidService.class.getMethod("zero"),
+                    InvalidService.class.getMethod("zero").getAnnotation(Limited.class));
+            Assert.fail();
+        } catch (AnnotationValidateException expected) {
+        }
+        Assert.assertEquals(0, validation.getPendingCount());
+    }
+
+    @Test
+    public void compilesPlansAfterValidation() throws Exception {
+        DeferredAnnotationValidation validation = new DeferredAnnotationValidation();
+        PlannedLimitAdvisor advisor = new PlannedLimitAdvisor(new LimitValidator(), validation);
+        advisor.afterPropertiesSet();
+        for (String name : new String[]{"valid", "negative", "zero"}) {
+            Assert.assertTrue(advisor.getPointcut().getMethodMatcher().matches(InvalidService.class.getMethod(name), InvalidService.class));
+        }
+        Assert.assertEquals(3, validation.getPendingCount());
+        Assert.assertTrue(advisor.compiled.isEmpty());
+        try {
+            validation.validate();
+            Assert.fail();
+        } catch (AnnotationValidateException ex) {
+            Assert.assertTrue(ex.getMessage().startsWith("2 annotation validation(s) failed:"));
+            Assert.assertTrue(ex.getMessage().contains("limit must be positive"));
+        }
+        Assert.assertEquals(Collections.singleton("valid"), advisor.compiled);
+    }
+
+    @Test
+    public void reportsCompileFailures() throws Exception {
+        DeferredAnnotationValidation validation = new DeferredAnnotationValidation();
+        PlannedLimitAdvisor advisor = new PlannedLimitAdvisor(null, validation);
+        advisor.afterPropertiesSet();
+        Assert.assertTrue(advisor.getPointcut().getMethodMatcher().matches(InvalidService.class.getMethod("zero"), InvalidService.class));
+        try {
+            validation.validate();
+            Assert.fail();
+        } catch (AnnotationValidateException ex) {
+            Assert.assertTrue(ex.getMessage().contains("@Limited on " + InvalidService.class.getName() + ".zero: invalid plan"));
+            Assert.assertTrue(ex.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Limited {
+        int value();
+    }
+
+    public static class ValidService {
+        @Limited(1)
+        public int work(int i) {
+            return i;
+        }
+
+        @Limited(2)
+        public int other(int i) {
+            return i;
+        }
+    }
+
+    public static class InvalidService {
+        @Limited(1)
+        public void valid() {
+        }
+
+        @Limited(-1)
+        public void negative() {
+        }
+
+        @Limited(0)
+        public void zero() {
+        }
+    }
+
+    static class LimitValidator implements AnnotationValidator<Limited> {
+        final Set<String> validated = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void validate(Class<?> targetClass, Method method, Limited annotation) {
+            validated.add(method.getName());
+            if (annotation.value() <= 0) {
+                throw new AnnotationValidateException("limit must be positive");
+            }
+        }
+    }
+
+    static class LimitAdvisor extends AbstractAnnotationMethodAdvisor<Limited> {
+        LimitAdvisor(LimitValidator validator, DeferredAnnotationValidation validation) {
+            super(false, false, validator);
+            setDeferredValidation(validation);
+        }
+
+        @Override
+        public Object invoke(ReflectiveMethodInvocation invocation, Limited annotation) throws Throwable {
+            return invocation.proceed();
+        }
+    }
+
+    static class PlannedLimitAdvisor extends AbstractPlannedAnnotationMethodAdvisor<Limited, Integer> {
+        final Set<String> compiled = ConcurrentHashMap.newKeySet();
+
+        PlannedLimitAdvisor(LimitValidator validator, DeferredAnnotationValidation validation) {
+            super(false, false, validator);
+            setDeferredValidation(validation);
+        }
+
+        @Override
+        protected Integer compile(Class<?> targetClass, Method method, Limited annotation) {
+            compiled.add(method.getName());
+            if (annotation.value() <= 0) {
+                throw new IllegalArgumentException("invalid plan");
+            }
+            return annotation.value();
+        }
+
+        @Override
+        public Object invoke(ReflectiveMethodInvocation invocation, Limited annotation, Integer plan) throws Throwable {
+            return invocation.proceed();
+        }
+    }
+
+    @Configuration
+    static class BaseConfig {
+        @Bean
+        public DefaultAdvisorAutoProxyCreator autoProxyCreator() {
+            return new DefaultAdvisorAutoProxyCreator();
+        }
+
+        @Bean
+        public DeferredAnnotationValidation deferredAnnotationValidation() {
+            return new DeferredAnnotationValidation();
+        }
+
+        @Bean
+        public LimitValidator limitValidator() {
+            return new LimitValidator();
+        }
+
+        @Bean
+        public LimitAdvisor limitAdvisor(LimitValidator validator, DeferredAnnotationValidation validation) {
+            return new LimitAdvisor(validator, validation);
+        }
+    }
+
+    @Configuration
+    static class ValidConfig extends BaseConfig {
+        @Bean
+        public ValidService validService() {
+            return new ValidService();
+        }
+    }
+
+    @Configuration
+    static class InvalidConfig extends BaseConfig {
+        @Bean
+        public InvalidService invalidService() {
+            return new InvalidService();
+        }
+    }
+}
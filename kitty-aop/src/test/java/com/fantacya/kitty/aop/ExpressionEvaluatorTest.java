@@ -0,0 +1,115 @@
+package com.fantacya.kitty.aop;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.expression.spel.SpelEvaluationException;
+
+import java.lang.reflect.Method;
+
+public class ExpressionEvaluatorTest {
+
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+
+    @Test
+    public void compileArgumentShapes() throws Exception {
+        Method method = OrderService.class.getMethod("place", Order.class, int.class, String.class);
+        Object[] args = {new Order(7L, "alice"), 3, "cn"};
+
+        assertDirect(method, "#p0.id", args, "7");
+        assertDirect(method, "#a1", args, "3");
+        assertDirect(method, "#region", args, "cn");
+        assertDirect(method, "#order.paid", args, "false");
+        assertDirect(method, "#order.note", args, "none");
+        assertDirect(method, "'order:' + #order.id + ':' + #count", args, "order:7:3");
+        assertDirect(method, "#order.customer + '@' + #region", args, "alice@cn");
+    }
+
+    @Test
+    public void interpretOtherShapes() throws Exception {
+        Method method = OrderService.class.getMethod("place", Order.class, int.class, String.class);
+        Object[] args = {new Order(7L, "alice"), 3, "cn"};
+
+        assertInterpreted(method, "#root.args[2]", args, "cn");
+        assertInterpreted(method, "#order.customer.toUpperCase()", args, "ALICE");
+        assertInterpreted(method, "#order?.customer", args, "alice");
+        assertInterpreted(method, "#count + #count", args, "6");
+        assertInterpreted(method, "#missing", args, null);
+    }
+
+    @Test
+    public void fallbackAtRuntime() throws Exception {
+        Method method = OrderService.class.getMethod("place", Order.class, int.class, String.class);
+        MethodExpression expression = evaluator.compile("#region + #count", method);
+        Assert.assertTrue(expression instanceof MethodExpressionCompiler.DirectMethodExpression);
+
+        Assert.assertEquals("cn3", expression.getStringValue(null, new Object[]{null, 3, "cn"}));
+        // 字符串参数为null时两个操作数都不是字符串，和解释执行一样报错
+        assertEvaluationFails(expression, new Object[]{null, 3, null});
+        assertEvaluationFails(evaluator.compile("#order.id", method), new Object[]{null, 3, "cn"});
+
+        // 参数不能转换为字符串时也和解释执行一样报错
+        try {
+            evaluator.compile("#order", method).getStringValue(null, new Object[]{new Order(7L, "alice"), 3, "cn"});
+            Assert.fail();
+        } catch (SpelEvaluationException expected) {
+        }
+    }
+
+    private static void assertEvaluationFails(MethodExpression expression, Object[] args) {
+        try {
+            expression.getValue(null, args);
+            Assert.fail();
+        } catch (SpelEvaluationException expected) {
+        }
+    }
+
+    private void assertDirect(Method method, String expression, Object[] args, String expected) {
+        MethodExpression compiled = evaluator.compile(expression, method);
+        Assert.assertTrue(expression, compiled instanceof MethodExpressionCompiler.DirectMethodExpression);
+        assertSameAsInterpreted(compiled, method, expression, args, expected);
+    }
+
+    private void assertInterpreted(Method method, String expression, Object[] args, String expected) {
+        MethodExpression compiled = evaluator.compile(expression, method);
+        Assert.assertFalse(expression, compiled instanceof MethodExpressionCompiler.DirectMethodExpression);
+        assertSameAsInterpreted(compiled, method, expression, args, expected);
+    }
+
+    private void assertSameAsInterpreted(MethodExpression compiled, Method method, String expression, Object[] args,
+                                         String expected) {
+        String interpreted = evaluator.parseExpression(expression)
+                .getValue(evaluator.createEvaluationContext(null, method, args), String.class);
+        Assert.assertEquals(expression, expected, interpreted);
+        Assert.assertEquals(expression, expected, compiled.getStringValue(null, args));
+    }
+
+    public static class OrderService {
+        public void place(Order order, int count, String region) {
+        }
+    }
+
+    public static class Order {
+        public final String note = "none";
+
+        private final Long id;
+
+        private final String customer;
+
+        Order(Long id, String customer) {
+            this.id = id;
+            this.customer = customer;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getCustomer() {
+            return customer;
+        }
+
+        public boolean isPaid() {
+            return false;
+        }
+    }
+}
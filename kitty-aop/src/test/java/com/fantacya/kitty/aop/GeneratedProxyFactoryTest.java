@@ -0,0 +1,202 @@
+package com.fantacya.kitty.aop;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.AopInvocationException;
+import org.springframework.aop.framework.AopConfigException;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+
+import java.io.IOException;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class GeneratedProxyFactoryTest {
+
+    private final List<String> events = new ArrayList<>();
+
+    private GeneratedProxyFactory factory;
+
+    @Before
+    public void setUp() throws Exception {
+        CompositeAnnotationMethodAdvisor advisor = new CompositeAnnotationMethodAdvisor(
+                new TraceAdvisor(events), new RepeatAdvisor());
+        advisor.afterPropertiesSet();
+        factory = new GeneratedProxyFactory(advisor);
+    }
+
+    @Test
+    public void advisedMethods() throws Exception {
+        Counter target = new Counter(events, 10);
+        Counter proxy = factory.getProxy(target);
+        Assert.assertNotSame(target, proxy);
+        Assert.assertTrue(proxy.getClass().getSuperclass() == Counter.class);
+        Assert.assertEquals(Counter.class.getPackage(), proxy.getClass().getPackage());
+
+        // 最后一次重复调用的参数是5
+        Assert.assertEquals(15L, proxy.add(3));
+        Assert.assertEquals(Arrays.asList("before:add", "add:3", "add:4", "add:5", "after:add"), events);
+
+        events.clear();
+        proxy.reset();
+        Assert.assertEquals(Arrays.asList("before:reset", "after:reset"), events);
+        Assert.assertEquals(0, target.value);
+    }
+
+    @Test
+    public void forwardsOtherMethods() {
+        Counter target = new Counter(events, 7);
+        Counter proxy = factory.getProxy(target);
+        Assert.assertEquals(7, proxy.current());
+        Assert.assertEquals(7, proxy.packageCurrent());
+        Assert.assertEquals("Counter(7)", proxy.toString());
+        Assert.assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void exceptions() {
+        Counter proxy = factory.getProxy(new Counter(events, 0));
+        try {
+            proxy.read();
+            Assert.fail();
+        } catch (IOException expected) {
+            Assert.assertEquals("closed", expected.getMessage());
+        }
+        Assert.assertEquals(Arrays.asList("before:read", "after-throwing:read"), events);
+    }
+
+    @Test
+    public void nullForPrimitiveReturnType() {
+        Counter proxy = factory.getProxy(new Counter(events, 1));
+        try {
+            proxy.skip(3);
+            Assert.fail();
+        } catch (AopInvocationException expected) {
+            Assert.assertTrue(expected.getMessage().startsWith("Null return value from advice does not match primitive return type"));
+        }
+        Assert.assertTrue(events.isEmpty());
+        proxy.reset();
+        Assert.assertEquals(0, proxy.current());
+    }
+
+    @Test
+    public void notAdvised() {
+        Plain plain = new Plain();
+        Assert.assertSame(plain, factory.getProxy(plain));
+        Assert.assertFalse(factory.isAdvised(Plain.class));
+    }
+
+    @Test(expected = AopConfigException.class)
+    public void finalMethod() {
+        factory.getProxy(new FinalMethod());
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Traced {
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Repeated {
+        int times() default 3;
+    }
+
+    public static class Counter {
+        private final List<String> events;
+
+        private long value;
+
+        public Counter(List<String> events, long value) {
+            this.events = events;
+            this.value = value;
+        }
+
+        @Traced
+        @Repeated
+        public long add(int delta) {
+            events.add("add:" + delta);
+            return value + delta;
+        }
+
+        @Repeated(times = 0)
+        public long skip(int delta) {
+            events.add("skip:" + delta);
+            return value + delta;
+        }
+
+        @Traced
+        public void reset() {
+            value = 0;
+        }
+
+        @Traced
+        public int read() throws IOException {
+            throw new IOException("closed");
+        }
+
+        public long current() {
+            return value;
+        }
+
+        long packageCurrent() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "Counter(" + value + ")";
+        }
+    }
+
+    public static class Plain {
+        public int value() {
+            return 1;
+        }
+    }
+
+    public static class FinalMethod {
+        @Traced
+        public final void run() {
+        }
+    }
+
+    static class TraceAdvisor extends AbstractAnnotationMethodAdvisor<Traced> {
+        private final List<String> events;
+
+        TraceAdvisor(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public Object invoke(ReflectiveMethodInvocation invocation, Traced annotation) throws Throwable {
+            events.add("before:" + invocation.getMethod().getName());
+            Object result;
+            try {
+                result = invocation.proceed();
+            } catch (Throwable t) {
+                events.add("after-throwing:" + invocation.getMethod().getName());
+                throw t;
+            }
+            events.add("after:" + invocation.getMethod().getName());
+            return result;
+        }
+    }
+
+    static class RepeatAdvisor extends AbstractAnnotationMethodAdvisor<Repeated> {
+        @Override
+        public Object invoke(ReflectiveMethodInvocation invocation, Repeated annotation) throws Throwable {
+            Object result = null;
+            for (int i = 0; i < annotation.times(); i++) {
+                int arg = (Integer) invocation.getArguments()[0] + i;
+                result = invocation.invocableClone(arg).proceed();
+            }
+            return result;
+        }
+    }
+}
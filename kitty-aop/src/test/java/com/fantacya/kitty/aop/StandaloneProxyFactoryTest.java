@@ -0,0 +1,198 @@
+package com.fantacya.kitty.aop;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+
+import java.io.IOException;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class StandaloneProxyFactoryTest {
+
+    private final List<String> events = new ArrayList<>();
+
+    private StandaloneProxyFactory factory;
+
+    @Before
+    public void setUp() {
+        factory = new StandaloneProxyFactory(new TraceAdvisor(events), new RepeatAdvisor());
+    }
+
+    @Test
+    public void advisedMethods() throws Exception {
+        Counter proxy = factory.getProxy(new CounterImpl(events, 10), Counter.class);
+        Assert.assertTrue(Proxy.isProxyClass(proxy.getClass()));
+
+        // 最后一次重复调用的参数是5
+        Assert.assertEquals(15L, proxy.add(3));
+        Assert.assertEquals(Arrays.asList("before:add", "add:3", "add:4", "add:5", "after:add"), events);
+
+        events.clear();
+        proxy.reset();
+        Assert.assertEquals(Arrays.asList("before:reset", "after:reset"), events);
+        Assert.assertEquals(0, proxy.current());
+    }
+
+    @Test
+    public void forwardsOtherMethods() {
+        CounterImpl target = new CounterImpl(events, 7);
+        Counter proxy = (Counter) factory.getProxy(target);
+        Assert.assertEquals(7, proxy.current());
+        Assert.assertEquals("Counter(7)", proxy.toString());
+        Assert.assertEquals(proxy, proxy);
+        Assert.assertNotEquals(proxy, target);
+        Assert.assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void exceptions() {
+        Counter proxy = factory.getProxy(new CounterImpl(events, 0), Counter.class);
+        try {
+            proxy.read();
+            Assert.fail();
+        } catch (IOException expected) {
+            Assert.assertEquals("closed", expected.getMessage());
+        }
+        Assert.assertEquals(Arrays.asList("before:read", "after-throwing:read"), events);
+
+        try {
+            proxy.sneaky();
+            Assert.fail();
+        } catch (UndeclaredThrowableException expected) {
+            Assert.assertTrue(expected.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void targetMethod() throws Exception {
+        List<Method> methods = new ArrayList<>();
+        StandaloneProxyFactory factory = new StandaloneProxyFactory(new AbstractAnnotationMethodAdvisor<Traced>() {
+            @Override
+            public Object invoke(ReflectiveMethodInvocation invocation, Traced annotation) throws Throwable {
+                methods.add(invocation.getMethod());
+                return invocation.proceed();
+            }
+        });
+        factory.getProxy(new CounterImpl(events, 0), Counter.class).reset();
+        Assert.assertEquals(Arrays.asList(CounterImpl.class.getMethod("reset")), methods);
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Traced {
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Repeated {
+        int times() default 3;
+    }
+
+    public interface Counter {
+        long add(int delta);
+
+        void reset();
+
+        int read() throws IOException;
+
+        void sneaky();
+
+        long current();
+    }
+
+    static class CounterImpl implements Counter {
+        private final List<String> events;
+
+        private long value;
+
+        CounterImpl(List<String> events, long value) {
+            this.events = events;
+            this.value = value;
+        }
+
+        @Traced
+        @Repeated
+        @Override
+        public long add(int delta) {
+            events.add("add:" + delta);
+            return value + delta;
+        }
+
+        @Traced
+        @Override
+        public void reset() {
+            value = 0;
+        }
+
+        @Traced
+        @Override
+        public int read() throws IOException {
+            throw new IOException("closed");
+        }
+
+        @Traced
+        @Override
+        public void sneaky() {
+            throwUnchecked(new IOException("sneaky"));
+        }
+
+        @Override
+        public long current() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "Counter(" + value + ")";
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <E extends Throwable> void throwUnchecked(Throwable t) throws E {
+            throw (E) t;
+        }
+    }
+
+    static class TraceAdvisor extends AbstractAnnotationMethodAdvisor<Traced> {
+        private final List<String> events;
+
+        TraceAdvisor(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public Object invoke(ReflectiveMethodInvocation invocation, Traced annotation) throws Throwable {
+            events.add("before:" + invocation.getMethod().getName());
+            Object result;
+            try {
+                result = invocation.proceed();
+            } catch (Throwable t) {
+                events.add("after-throwing:" + invocation.getMethod().getName());
+                throw t;
+            }
+            events.add("after:" + invocation.getMethod().getName());
+            return result;
+        }
+    }
+
+    static class RepeatAdvisor extends AbstractAnnotationMethodAdvisor<Repeated> {
+        @Override
+        public Object invoke(ReflectiveMethodInvocation invocation, Repeated annotation) throws Throwable {
+            Object result = null;
+            for (int i = 0; i < annotation.times(); i++) {
+                int arg = (Integer) invocation.getArguments()[0] + i;
+                result = invocation.invocableClone(arg).proceed();
+            }
+            return result;
+        }
+    }
+}
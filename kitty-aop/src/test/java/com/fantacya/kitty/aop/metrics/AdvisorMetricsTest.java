@@ -0,0 +1,118 @@
+package com.fantacya.kitty.aop.metrics;
+
+import com.fantacya.kitty.aop.AbstractAnnotationMethodAdvisor;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+
+public class AdvisorMetricsTest {
+
+    @Test
+    public void simpleRegistry() throws Exception {
+        SimpleAdvisorMetricsRegistry registry = new SimpleAdvisorMetricsRegistry();
+        Service service = proxy(registry);
+
+        for (int i = 0; i < 5; i++) {
+            service.work(i);
+        }
+        callFailing(service);
+        service.plain();
+
+        Method work = Service.class.getMethod("work", int.class);
+        SimpleAdvisorMetricsRegistry.MethodStats stats = registry.getStats(Measured.class, Service.class, work);
+        Assert.assertEquals(5, stats.getCalls());
+        Assert.assertEquals(0, stats.getErrors());
+        Assert.assertTrue(stats.getLatency().getMax() > 0);
+
+        Method fail = Service.class.getMethod("fail");
+        Assert.assertEquals(1, registry.getStats(Measured.class, Service.class, fail).getCalls());
+        Assert.assertEquals(1, registry.getStats(Measured.class, Service.class, fail).getErrors());
+
+        // 没有注解的方法不记录
+        Assert.assertEquals(2, registry.getStats().size());
+    }
+
+    @Test
+    public void micrometerRegistry() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Service service = proxy(new MicrometerAdvisorMetricsRegistry(meterRegistry));
+
+        service.work(1);
+        service.work(2);
+        callFailing(service);
+
+        Timer success = meterRegistry.get(MicrometerAdvisorMetricsRegistry.DEFAULT_METRIC_NAME)
+                .tags("annotation", "Measured", "class", Service.class.getName(), "method", "work", "outcome", "success")
+                .timer();
+        Assert.assertEquals(2, success.count());
+        Timer error = meterRegistry.get(MicrometerAdvisorMetricsRegistry.DEFAULT_METRIC_NAME)
+                .tags("method", "fail", "outcome", "error")
+                .timer();
+        Assert.assertEquals(1, error.count());
+
+        Assert.assertEquals(2.0, meterRegistry.get(MicrometerAdvisorMetricsRegistry.CACHE_METHODS_METRIC_NAME)
+                .tag("annotation", "Measured").gauge().value(), 0.0);
+        Assert.assertEquals(1.0, meterRegistry.get(MicrometerAdvisorMetricsRegistry.CACHE_CLASSES_METRIC_NAME)
+                .tag("annotation", "Measured").gauge().value(), 0.0);
+    }
+
+    @Test
+    public void disabledByDefault() throws Exception {
+        Service service = proxy(null);
+        Assert.assertEquals(2, service.work(1));
+    }
+
+    private static void callFailing(Service service) {
+        try {
+            service.fail();
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private static Service proxy(AdvisorMetricsRegistry registry) throws Exception {
+        MeasuredAdvisor advisor = new MeasuredAdvisor();
+        advisor.setMetricsRegistry(registry);
+        advisor.afterPropertiesSet();
+        ProxyFactory factory = new ProxyFactory(new Service());
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(advisor);
+        return (Service) factory.getProxy();
+    }
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Measured {
+    }
+
+    public static class Service {
+        @Measured
+        public int work(int i) {
+            return i + 1;
+        }
+
+        @Measured
+        public void fail() {
+            throw new IllegalStateException("failed");
+        }
+
+        public void plain() {
+        }
+    }
+
+    static class MeasuredAdvisor extends AbstractAnnotationMethodAdvisor<Measured> {
+        @Override
+        public Object invoke(ReflectiveMethodInvocation invocation, Measured annotation) throws Throwable {
+            return invocation.proceed();
+        }
+    }
+}
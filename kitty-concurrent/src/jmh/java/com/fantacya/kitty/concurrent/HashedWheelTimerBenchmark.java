@@ -0,0 +1,86 @@
+package com.fantacya.kitty.concurrent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of scheduling and then cancelling a deadline on a {@link HashedWheelTimer}
+ * and on a {@link ScheduledThreadPoolExecutor}, while {@code pending} other deadlines are waiting,
+ * which is the life cycle of almost every retry backoff and call timeout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class HashedWheelTimerBenchmark {
+
+    private static final Runnable TASK = () -> {
+    };
+
+    @Param({"1000000"})
+    private int pending;
+
+    private HashedWheelTimer timer;
+
+    private ScheduledThreadPoolExecutor executor;
+
+    @Setup
+    public void setUp() {
+        timer = new HashedWheelTimer();
+        executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        for (int i = 0; i < pending; i++) {
+            // spread over an hour so that none of them expires during the trial
+            long delay = TimeUnit.HOURS.toMillis(1) + i % 3_600_000;
+            timer.newTimeout(TASK, delay, TimeUnit.MILLISECONDS);
+            executor.schedule(TASK, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        timer.stop();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean wheelTimer() {
+        return timer.newTimeout(TASK, 30, TimeUnit.SECONDS).cancel();
+    }
+
+    @Benchmark
+    public boolean scheduledExecutor() {
+        ScheduledFuture<?> future = executor.schedule(TASK, 30, TimeUnit.SECONDS);
+        return future.cancel(false);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean wheelTimer8Threads() {
+        return timer.newTimeout(TASK, 30, TimeUnit.SECONDS).cancel();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean scheduledExecutor8Threads() {
+        ScheduledFuture<?> future = executor.schedule(TASK, 30, TimeUnit.SECONDS);
+        return future.cancel(false);
+    }
+}
@@ -0,0 +1,92 @@
+package com.fantacya.kitty.concurrent.retry;
+
+import com.fantacya.kitty.concurrent.HashedWheelTimer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a successful {@link Retryer#call(Callable)} without a time limit against the same call
+ * guarded by {@link AttemptTimeLimiters#fixedTimeLimit(Duration, ExecutorService)}, which hands
+ * every attempt off to a pooled thread.
+ * <p>
+ * The executor is owned by the benchmark so that its threads are shut down at the end of the
+ * trial, {@link AttemptTimeLimiters#fixedTimeLimit(Duration)} uses the same code path with a
+ * cached thread pool of its own.
+ * <p>
+ * {@link AttemptTimeLimiters#interruptingTimeLimit(Duration, HashedWheelTimer)} runs the attempt
+ * on the benchmark thread and only arms and cancels a watchdog on the timer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttemptTimeLimitersBenchmark {
+
+    private static final Integer RESULT = 42;
+
+    private final Callable<Integer> callable = () -> RESULT;
+
+    private ExecutorService executor;
+
+    private Retryer<Integer> noTimeLimit;
+
+    private Retryer<Integer> fixedTimeLimit;
+
+    private HashedWheelTimer timer;
+
+    private Retryer<Integer> interruptingTimeLimit;
+
+    @Setup
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        noTimeLimit = RetryerBuilder.<Integer>newBuilder()
+                .withAttemptTimeLimiter(AttemptTimeLimiters.noTimeLimit())
+                .build();
+        fixedTimeLimit = RetryerBuilder.<Integer>newBuilder()
+                .withAttemptTimeLimiter(AttemptTimeLimiters.fixedTimeLimit(Duration.ofSeconds(1), executor))
+                .build();
+        timer = new HashedWheelTimer();
+        interruptingTimeLimit = RetryerBuilder.<Integer>newBuilder()
+                .withAttemptTimeLimiter(AttemptTimeLimiters.interruptingTimeLimit(Duration.ofSeconds(1), timer))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        timer.stop();
+    }
+
+    @Benchmark
+    public Integer noTimeLimit() throws ExecutionException, RetryException {
+        return noTimeLimit.call(callable);
+    }
+
+    @Benchmark
+    public Integer fixedTimeLimit() throws ExecutionException, RetryException {
+        return fixedTimeLimit.call(callable);
+    }
+
+    @Benchmark
+    public Integer interruptingTimeLimit() throws ExecutionException, RetryException {
+        return interruptingTimeLimit.call(callable);
+    }
+}
@@ -0,0 +1,138 @@
+package com.fantacya.kitty.concurrent.retry;
+
+import com.fantacya.kitty.concurrent.BlockStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead {@link Retryer#call(Callable)} adds around the wrapped callable, on the
+ * path where the first attempt succeeds and on the path where the first {@code failures} attempts
+ * throw. The block strategy is a no-op so that only the retry bookkeeping is measured, not the
+ * backoff itself.
+ * <p>
+ * Run with {@code gradle :kitty-concurrent:jmh}, the gc profiler reports the allocation rate
+ * ({@code gc.alloc.rate.norm}, in B/op) of each configuration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RetryerBenchmark {
+
+    private static final BlockStrategy NO_BLOCK = sleepTime -> {
+    };
+
+    private static final Integer RESULT = 42;
+
+    @Param({"1", "3", "10"})
+    private int failures;
+
+    private Callable<Integer> success;
+
+    private FailingCallable failing;
+
+    private Retryer<Integer> defaultRetryer;
+
+    private Retryer<Integer> retryIfExceptionRetryer;
+
+    private Retryer<Integer> listenerRetryer;
+
+    @Setup
+    public void setUp() {
+        success = () -> RESULT;
+        failing = new FailingCallable(failures);
+
+        defaultRetryer = RetryerBuilder.<Integer>newBuilder()
+                .build();
+        retryIfExceptionRetryer = RetryerBuilder.<Integer>newBuilder()
+                .retryIfException()
+                .withBlockStrategy(NO_BLOCK)
+                .build();
+        listenerRetryer = RetryerBuilder.<Integer>newBuilder()
+                .retryIfException()
+                .withBlockStrategy(NO_BLOCK)
+                .withRetryListener(new RetryListener() {
+                    @Override
+                    public <V> void onRetry(Attempt<V> attempt) {
+                    }
+                })
+                .build();
+    }
+
+    @Benchmark
+    public Integer baseline() throws Exception {
+        return success.call();
+    }
+
+    @Benchmark
+    public Integer successFirstAttemptDefault() throws ExecutionException, RetryException {
+        return defaultRetryer.call(success);
+    }
+
+    @Benchmark
+    public Integer successFirstAttemptRetryIfException() throws ExecutionException, RetryException {
+        return retryIfExceptionRetryer.call(success);
+    }
+
+    @Benchmark
+    public Integer successFirstAttemptWithListener() throws ExecutionException, RetryException {
+        return listenerRetryer.call(success);
+    }
+
+    @Benchmark
+    public Integer failuresThenSuccess() throws ExecutionException, RetryException {
+        failing.reset();
+        return retryIfExceptionRetryer.call(failing);
+    }
+
+    @Benchmark
+    public Integer failuresThenSuccessWithListener() throws ExecutionException, RetryException {
+        failing.reset();
+        return listenerRetryer.call(failing);
+    }
+
+    /**
+     * Throws a pre-allocated exception on the first {@code failures} calls after each
+     * {@link #reset()}, so that the stack trace filling is not part of the measurement.
+     */
+    private static final class FailingCallable implements Callable<Integer> {
+        private static final IOException FAILURE = new IOException("benchmark failure");
+
+        private final int failures;
+
+        private int remaining;
+
+        FailingCallable(int failures) {
+            this.failures = failures;
+        }
+
+        void reset() {
+            remaining = failures;
+        }
+
+        @Override
+        public Integer call() throws Exception {
+            if (remaining > 0) {
+                remaining--;
+                throw FAILURE;
+            }
+            return RESULT;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.fantacya.kitty.concurrent.retry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link WaitStrategy#computeSleepTime(Attempt)} for the strategy returned by each
+ * {@link WaitStrategies} factory, at an early and a late attempt number.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaitStrategiesBenchmark {
+
+    @Param({"noWait", "fixedWait", "randomWait", "incrementingWait", "exponentialWait", "fibonacciWait",
+            "exceptionWait", "join"})
+    private String strategy;
+
+    @Param({"1", "20"})
+    private int attemptNumber;
+
+    private WaitStrategy waitStrategy;
+
+    private Attempt<Integer> attempt;
+
+    @Setup
+    public void setUp() {
+        waitStrategy = create(strategy);
+        attempt = new Retryer.ExceptionAttempt<>(new IOException("benchmark failure"), attemptNumber, 100L);
+    }
+
+    @Benchmark
+    public long computeSleepTime() {
+        return waitStrategy.computeSleepTime(attempt);
+    }
+
+    private static WaitStrategy create(String strategy) {
+        switch (strategy) {
+            case "noWait":
+                return WaitStrategies.noWait();
+            case "fixedWait":
+                return WaitStrategies.fixedWait(100L, TimeUnit.MILLISECONDS);
+            case "randomWait":
+                return WaitStrategies.randomWait(10L, TimeUnit.MILLISECONDS, 100L, TimeUnit.MILLISECONDS);
+            case "incrementingWait":
+                return WaitStrategies.incrementingWait(10L, TimeUnit.MILLISECONDS, 10L, TimeUnit.MILLISECONDS);
+            case "exponentialWait":
+                return WaitStrategies.exponentialWait(10L, 10L, TimeUnit.SECONDS);
+            case "fibonacciWait":
+                return WaitStrategies.fibonacciWait(10L, 10L, TimeUnit.SECONDS);
+            case "exceptionWait":
+                return WaitStrategies.exceptionWait(IOException.class, e -> 100L);
+            case "join":
+                return WaitStrategies.join(WaitStrategies.fixedWait(10L, TimeUnit.MILLISECONDS),
+                        WaitStrategies.exponentialWait(10L, 10L, TimeUnit.SECONDS));
+            default:
+                throw new IllegalArgumentException("unknown wait strategy: " + strategy);
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package com.fantacya.kitty.concurrent;
+
+import com.fantacya.kitty.core.common.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A timer optimized for a large number of approximated, mostly cancelled, deadlines such as retry
+ * backoffs and call timeouts. Inserting and cancelling a {@link Timeout} are O(1), where a
+ * {@link ScheduledThreadPoolExecutor} pays O(log n) on a shared heap, and all deadlines are served
+ * by a single worker thread.
+ * <p>
+ * Deadlines are hashed into a wheel of buckets, one per tick. The worker wakes up once per tick
+ * and runs the tasks of the current bucket whose deadline has passed, so a task runs at most one
+ * tick after its deadline. Tasks run on the worker thread and must therefore be short; hand any
+ * real work over to an executor.
+ * <p>
+ * This is a reduced version of the {@code HashedWheelTimer} from Netty, based on
+ * 'Hashed and Hierarchical Timing Wheels' by George Varghese and Tony Lauck.
+ */
+public final class HashedWheelTimer {
+    private static final Logger LOG = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private static final int WORKER_INIT = 0;
+    private static final int WORKER_STARTED = 1;
+    private static final int WORKER_SHUTDOWN = 2;
+
+    /**
+     * Upper bound of new timeouts moved into the wheel on each tick, so that a burst of
+     * insertions can't delay the expiration of the current bucket.
+     */
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    private final Worker worker = new Worker();
+    private final Thread workerThread;
+    private final AtomicInteger workerState = new AtomicInteger(WORKER_INIT);
+    private final long tickDuration;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+    private final Queue<WheelTimeout> timeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<WheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final LongAdder pendingTimeouts = new LongAdder();
+
+    /**
+     * Timeouts dropped by the worker when it stops, read by {@link #stop()} after joining the worker
+     */
+    private final Set<Timeout> unprocessedTimeouts = new HashSet<>();
+
+    private volatile long startTime;
+
+    /**
+     * Creates a timer with a tick of 10 milliseconds and 512 buckets, running on a daemon thread.
+     */
+    public HashedWheelTimer() {
+        this("kitty-wheel-timer", 10, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * Creates a timer running on a daemon thread.
+     *
+     * @param threadName    the name of the worker thread
+     * @param tickDuration  the duration between ticks, which is also the precision of the timer
+     * @param unit          the time unit of the {@code tickDuration}
+     * @param ticksPerWheel the size of the wheel, rounded up to a power of two
+     */
+    public HashedWheelTimer(@Nonnull String threadName, long tickDuration, @Nonnull TimeUnit unit, int ticksPerWheel) {
+        this(r -> {
+            Thread thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+        }, tickDuration, unit, ticksPerWheel);
+    }
+
+    /**
+     * Creates a timer.
+     *
+     * @param threadFactory the factory of the worker thread
+     * @param tickDuration  the duration between ticks, which is also the precision of the timer
+     * @param unit          the time unit of the {@code tickDuration}
+     * @param ticksPerWheel the size of the wheel, rounded up to a power of two
+     */
+    public HashedWheelTimer(@Nonnull ThreadFactory threadFactory, long tickDuration, @Nonnull TimeUnit unit, int ticksPerWheel) {
+        Objects.requireNonNull(threadFactory, "threadFactory may not be null");
+        Objects.requireNonNull(unit, "unit may not be null");
+        Preconditions.checkArgument(tickDuration > 0, "tickDuration must be > 0 but is %s", tickDuration);
+        Preconditions.checkArgument(ticksPerWheel > 0 && ticksPerWheel <= 1 << 30,
+                "ticksPerWheel must be in (0, 2^30] but is %s", ticksPerWheel);
+
+        int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        this.wheel = new Bucket[Math.max(size, 1)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.tickDuration = unit.toNanos(tickDuration);
+        Preconditions.checkArgument(this.tickDuration < Long.MAX_VALUE / wheel.length,
+                "tickDuration %s is too long for a wheel of %s ticks", tickDuration, wheel.length);
+        this.workerThread = threadFactory.newThread(worker);
+    }
+
+    /**
+     * Schedules the given task for one-time execution after the given delay. The worker thread
+     * is started on the first call.
+     *
+     * @param task  the task to run on the worker thread
+     * @param delay the delay from now to the execution
+     * @param unit  the time unit of the {@code delay}
+     * @return a handle which can cancel the task
+     * @throws RejectedExecutionException if the timer has been stopped
+     * @see TimerTask
+     */
+    public Timeout newTimeout(@Nonnull Runnable task, long delay, @Nonnull TimeUnit unit) {
+        Objects.requireNonNull(task, "task may not be null");
+        Objects.requireNonNull(unit, "unit may not be null");
+        start();
+
+        long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+        // guard against overflow
+        if (delay > 0 && deadline < 0) {
+            deadline = Long.MAX_VALUE;
+        }
+        WheelTimeout timeout = new WheelTimeout(this, task, deadline);
+        pendingTimeouts.increment();
+        timeouts.add(timeout);
+        // stop() may have completed between start() and add(): take the timeout back unless the
+        // worker already collected it as dropped
+        if (workerState.get() == WORKER_SHUTDOWN && timeouts.remove(timeout)) {
+            timeout.cancel();
+            throw new RejectedExecutionException("cannot schedule a timeout after the timer has been stopped");
+        }
+        return timeout;
+    }
+
+    /**
+     * Returns the number of scheduled timeouts which have neither expired nor been cancelled.
+     *
+     * @return the number of pending timeouts
+     */
+    public long pendingTimeouts() {
+        return pendingTimeouts.sum();
+    }
+
+    /**
+     * Stops the worker thread. Tasks which haven't expired yet are dropped: their timeouts are
+     * cancelled, tasks implementing {@link TimerTask} are told so on the calling thread, and later
+     * calls to {@link #newTimeout(Runnable, long, TimeUnit)} are rejected.
+     *
+     * @return the timeouts of the tasks which were dropped
+     */
+    public Set<Timeout> stop() {
+        if (Thread.currentThread() == workerThread) {
+            throw new IllegalStateException("HashedWheelTimer.stop() cannot be called from a timer task");
+        }
+        if (!workerState.compareAndSet(WORKER_STARTED, WORKER_SHUTDOWN)) {
+            workerState.set(WORKER_SHUTDOWN);
+            return Collections.emptySet();
+        }
+
+        boolean interrupted = false;
+        while (workerThread.isAlive()) {
+            workerThread.interrupt();
+            try {
+                workerThread.join(100);
+            } catch (InterruptedException ignored) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        RejectedExecutionException cause = new RejectedExecutionException("the timer has been stopped");
+        for (Timeout timeout : unprocessedTimeouts) {
+            Runnable task = ((WheelTimeout) timeout).task;
+            if (task instanceof TimerTask) {
+                try {
+                    ((TimerTask) task).dropped(cause);
+                } catch (Throwable t) {
+                    LOG.warn("An exception was thrown by a dropped timer task {}", task, t);
+                }
+            }
+        }
+        return Collections.unmodifiableSet(unprocessedTimeouts);
+    }
+
+    private void start() {
+        switch (workerState.get()) {
+            case WORKER_INIT:
+                if (workerState.compareAndSet(WORKER_INIT, WORKER_STARTED)) {
+                    workerThread.start();
+                }
+                break;
+            case WORKER_STARTED:
+                break;
+            default:
+                throw new RejectedExecutionException("cannot schedule a timeout after the timer has been stopped");
+        }
+
+        // wait until the start time is initialized by the worker
+        boolean interrupted = false;
+        while (startTime == 0) {
+            try {
+                startTimeInitialized.await();
+            } catch (InterruptedException ignore) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private long tick;
+
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            // 0 is the 'not initialized' marker
+            startTime = now == 0 ? 1 : now;
+            startTimeInitialized.countDown();
+
+            do {
+                long deadline = waitForNextTick();
+                if (deadline > 0) {
+                    processCancelledTimeouts();
+                    transferTimeoutsToBuckets();
+                    wheel[(int) (tick & mask)].expireTimeouts(deadline);
+                    tick++;
+                }
+            } while (workerState.get() == WORKER_STARTED);
+
+            for (Bucket bucket : wheel) {
+                bucket.clearTimeouts(unprocessedTimeouts);
+            }
+            for (; ; ) {
+                WheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.cancel()) {
+                    unprocessedTimeouts.add(timeout);
+                }
+            }
+        }
+
+        private void transferTimeoutsToBuckets() {
+            for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+                WheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.state() == WheelTimeout.ST_CANCELLED) {
+                    continue;
+                }
+
+                long calculated = timeout.deadline / tickDuration;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+                // a timeout already in the past goes to the current bucket
+                long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+
+        private void processCancelledTimeouts() {
+            for (; ; ) {
+                WheelTimeout timeout = cancelledTimeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                Bucket bucket = timeout.bucket;
+                if (bucket != null) {
+                    bucket.remove(timeout);
+                }
+            }
+        }
+
+        /**
+         * @return the current time relative to the start time, or a negative value if the timer is stopping
+         */
+        private long waitForNextTick() {
+            long deadline = tickDuration * (tick + 1);
+            for (; ; ) {
+                long currentTime = System.nanoTime() - startTime;
+                long sleepTimeMs = (deadline - currentTime + 999_999) / 1_000_000;
+                if (sleepTimeMs <= 0) {
+                    return currentTime == Long.MIN_VALUE ? -Long.MAX_VALUE : currentTime;
+                }
+                try {
+                    Thread.sleep(sleepTimeMs);
+                } catch (InterruptedException ignored) {
+                    if (workerState.get() == WORKER_SHUTDOWN) {
+                        return Long.MIN_VALUE;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A task which is told when the timer is stopped before its deadline, e.g. to complete a
+     * future which would otherwise wait forever for the task to run.
+     */
+    public interface TimerTask extends Runnable {
+
+        /**
+         * Called by {@link HashedWheelTimer#stop()} on the stopping thread, instead of {@link #run()}.
+         *
+         * @param cause the reason why the task will never run
+         */
+        void dropped(RejectedExecutionException cause);
+    }
+
+    private static final class WheelTimeout implements Timeout {
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<WheelTimeout> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(WheelTimeout.class, "state");
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+
+        private volatile int state = ST_INIT;
+
+        // only accessed by the worker thread
+        private long remainingRounds;
+        private WheelTimeout next;
+        private WheelTimeout prev;
+        private Bucket bucket;
+
+        WheelTimeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            timer.pendingTimeouts.decrement();
+            // unlinked from its bucket by the worker thread, on the next tick
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        int state() {
+            return state;
+        }
+
+        void expire() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            timer.pendingTimeouts.decrement();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                LOG.warn("An exception was thrown by a timer task {}", task, t);
+            }
+        }
+    }
+
+    /**
+     * A doubly linked list of the timeouts hashed into one tick of the wheel, only accessed by the worker thread.
+     */
+    private static final class Bucket {
+        private WheelTimeout head;
+        private WheelTimeout tail;
+
+        void add(WheelTimeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expireTimeouts(long deadline) {
+            WheelTimeout timeout = head;
+            while (timeout != null) {
+                WheelTimeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    next = remove(timeout);
+                    if (timeout.deadline <= deadline) {
+                        timeout.expire();
+                    } else {
+                        // the timeout was placed into a wrong slot, this should never happen
+                        throw new IllegalStateException(String.format("timeout.deadline (%d) > deadline (%d)",
+                                timeout.deadline, deadline));
+                    }
+                } else if (timeout.isCancelled()) {
+                    next = remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        /**
+         * Cancels the timeouts which haven't expired yet and collects them, when the timer stops.
+         */
+        void clearTimeouts(Set<Timeout> unprocessed) {
+            for (WheelTimeout timeout = head; timeout != null; timeout = remove(timeout)) {
+                if (timeout.cancel()) {
+                    unprocessed.add(timeout);
+                }
+            }
+        }
+
+        WheelTimeout remove(WheelTimeout timeout) {
+            WheelTimeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                if (timeout == tail) {
+                    tail = null;
+                    head = null;
+                } else {
+                    head = next;
+                }
+            } else if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            return next;
+        }
+    }
+}
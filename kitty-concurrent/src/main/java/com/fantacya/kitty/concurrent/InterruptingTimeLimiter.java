@@ -0,0 +1,292 @@
+package com.fantacya.kitty.concurrent;
+
+import com.fantacya.kitty.concurrent.exception.ExecutionError;
+import com.fantacya.kitty.concurrent.exception.UncheckedExecutionException;
+import com.fantacya.kitty.concurrent.exception.UncheckedTimeoutException;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A TimeLimiter that runs method calls on the calling thread. Each call arms a watchdog on a
+ * {@link HashedWheelTimer}; if the time limit expires before the call returns, the watchdog
+ * interrupts the calling thread, and the call fails with a timeout once the target returns.
+ * The watchdog is cancelled as soon as the call completes in time.
+ * <p>
+ * Compared with {@link SimpleTimeLimiter}, a call costs no thread handoff and no pooled thread,
+ * which matters for short calls. In exchange, the target must respond to interruption: a target
+ * that ignores interrupts runs to completion, and only then reports the timeout. Interrupts are
+ * delivered at the granularity of the timer's tick.
+ * <p>
+ * The exceptions thrown by each method are the same as those thrown by {@link SimpleTimeLimiter}.
+ * The {@code Uninterruptibly} variants clear the interrupt status of the calling thread during
+ * the call and restore it afterwards, but the call itself can still be interrupted.
+ */
+public final class InterruptingTimeLimiter implements TimeLimiter {
+
+    private final HashedWheelTimer timer;
+
+    private InterruptingTimeLimiter(HashedWheelTimer timer) {
+        this.timer = Objects.requireNonNull(timer);
+    }
+
+    /**
+     * Creates a TimeLimiter instance whose watchdogs are armed on the given timer.
+     *
+     * @param timer the timer on which the watchdog of each call is armed, it should be shared
+     */
+    public static InterruptingTimeLimiter create(@Nonnull HashedWheelTimer timer) {
+        return new InterruptingTimeLimiter(timer);
+    }
+
+    /**
+     * Creates a TimeLimiter instance whose watchdogs are armed on a timer shared by all the
+     * instances created by this method.
+     */
+    public static InterruptingTimeLimiter create() {
+        return new InterruptingTimeLimiter(SharedTimerHolder.TIMER);
+    }
+
+    @Override
+    public <T> T newProxy(final T target, Class<T> interfaceType, final Duration timeout) {
+        Objects.requireNonNull(target);
+        Objects.requireNonNull(interfaceType);
+        Objects.requireNonNull(timeout);
+        if (!interfaceType.isInterface()) {
+            throw new IllegalArgumentException("interfaceType must be an interface type");
+        }
+
+        final Set<Method> interruptibleMethods = findInterruptibleMethods(interfaceType);
+        final long timeoutNanos = timeout.toNanos();
+
+        InvocationHandler handler = (obj, method, args) -> {
+            Callable<Object> callable = () -> {
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw e;
+                }
+            };
+            try {
+                return call(callable, timeoutNanos, interruptibleMethods.contains(method));
+            } catch (TimedOutException e) {
+                throw new UncheckedTimeoutException(e);
+            }
+        };
+        return interfaceType.cast(Proxy.newProxyInstance(interfaceType.getClassLoader(),
+                new Class<?>[]{interfaceType}, handler));
+    }
+
+    @Override
+    public <T> T callWithTimeout(Callable<T> callable, Duration timeout)
+            throws TimeoutException, InterruptedException, ExecutionException {
+        Objects.requireNonNull(callable);
+        Objects.requireNonNull(timeout);
+
+        try {
+            return call(callable, timeout.toNanos(), true);
+        } catch (TimedOutException e) {
+            throw new UncheckedTimeoutException(e);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw wrapExecutionExceptionOrError(t);
+        }
+    }
+
+    @Override
+    public <T> T callUninterruptiblyWithTimeout(Callable<T> callable, Duration timeout)
+            throws TimeoutException, ExecutionException {
+        Objects.requireNonNull(callable);
+        Objects.requireNonNull(timeout);
+
+        try {
+            return call(callable, timeout.toNanos(), false);
+        } catch (TimedOutException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw wrapExecutionExceptionOrError(t);
+        }
+    }
+
+    @Override
+    public void runWithTimeout(Runnable runnable, Duration timeout)
+            throws TimeoutException, InterruptedException {
+        Objects.requireNonNull(runnable);
+        Objects.requireNonNull(timeout);
+
+        try {
+            call(Executors.callable(runnable), timeout.toNanos(), true);
+        } catch (TimedOutException | InterruptedException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw wrapRuntimeExecutionExceptionOrError(t);
+        }
+    }
+
+    @Override
+    public void runUninterruptiblyWithTimeout(Runnable runnable, Duration timeout) throws TimeoutException {
+        Objects.requireNonNull(runnable);
+        Objects.requireNonNull(timeout);
+
+        try {
+            call(Executors.callable(runnable), timeout.toNanos(), false);
+        } catch (TimedOutException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw wrapRuntimeExecutionExceptionOrError(t);
+        }
+    }
+
+    /**
+     * Runs the callable on the calling thread under a watchdog.
+     *
+     * @throws TimedOutException if the watchdog expired, the failure of the callable, if any, is its cause
+     * @throws Exception         the exception thrown by the callable
+     */
+    private <T> T call(Callable<T> callable, long timeoutNanos, boolean amInterruptible) throws Exception {
+        boolean interrupted = false;
+        if (amInterruptible) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        } else {
+            interrupted = Thread.interrupted();
+        }
+
+        try {
+            Watchdog watchdog = new Watchdog(Thread.currentThread());
+            Timeout timeout = timer.newTimeout(watchdog, timeoutNanos, TimeUnit.NANOSECONDS);
+            T result;
+            try {
+                result = callable.call();
+            } catch (Throwable t) {
+                if (watchdog.finish()) {
+                    timeout.cancel();
+                    throw t;
+                }
+                throw new TimedOutException(timeoutNanos, t);
+            }
+            if (!watchdog.finish()) {
+                throw new TimedOutException(timeoutNanos, null);
+            }
+            timeout.cancel();
+            return result;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static Set<Method> findInterruptibleMethods(Class<?> interfaceType) {
+        Set<Method> set = new HashSet<>();
+        for (Method m : interfaceType.getMethods()) {
+            for (Class<?> exType : m.getExceptionTypes()) {
+                if (exType == InterruptedException.class) {
+                    set.add(m);
+                    break;
+                }
+            }
+        }
+        return set;
+    }
+
+    private static ExecutionException wrapExecutionExceptionOrError(Throwable cause) {
+        if (cause instanceof Error) {
+            throw new ExecutionError((Error) cause);
+        } else if (cause instanceof RuntimeException) {
+            throw new UncheckedExecutionException(cause);
+        } else {
+            return new ExecutionException(cause);
+        }
+    }
+
+    private static RuntimeException wrapRuntimeExecutionExceptionOrError(Throwable cause) {
+        if (cause instanceof Error) {
+            throw new ExecutionError((Error) cause);
+        } else {
+            return new UncheckedExecutionException(cause);
+        }
+    }
+
+    /**
+     * Interrupts the calling thread on expiration, unless the call finished first. The state
+     * moves from RUNNING to either DONE, set by the calling thread, or INTERRUPTING then
+     * INTERRUPTED, set by the timer thread.
+     */
+    private static final class Watchdog extends AtomicInteger implements Runnable {
+        private static final int RUNNING = 0;
+        private static final int DONE = 1;
+        private static final int INTERRUPTING = 2;
+        private static final int INTERRUPTED = 3;
+
+        private final Thread thread;
+
+        Watchdog(Thread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        public void run() {
+            if (compareAndSet(RUNNING, INTERRUPTING)) {
+                thread.interrupt();
+                set(INTERRUPTED);
+            }
+        }
+
+        /**
+         * Called by the calling thread once the call returned.
+         *
+         * @return <code>true</code> if the call finished in time, <code>false</code> if the watchdog
+         * expired, in which case its interrupt has been consumed
+         */
+        boolean finish() {
+            if (compareAndSet(RUNNING, DONE)) {
+                return true;
+            }
+            // don't leak the interrupt of the watchdog into whatever the thread does next
+            while (get() != INTERRUPTED) {
+                Thread.yield();
+            }
+            Thread.interrupted();
+            return false;
+        }
+    }
+
+    private static final class TimedOutException extends TimeoutException {
+        private static final long serialVersionUID = 0;
+
+        TimedOutException(long timeoutNanos, Throwable cause) {
+            super("call did not complete within " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+            if (cause != null) {
+                initCause(cause);
+            }
+        }
+    }
+
+    private static final class SharedTimerHolder {
+        private static final HashedWheelTimer TIMER = new HashedWheelTimer("kitty-time-limiter-timer",
+                1, TimeUnit.MILLISECONDS, 1024);
+    }
+}
@@ -0,0 +1,198 @@
+package com.fantacya.kitty.concurrent;
+
+import com.fantacya.kitty.core.common.Preconditions;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded executor for {@link SimpleTimeLimiter}, running on daemon threads.
+ * <p>
+ * When all the threads are busy and the queue, if any, is full, a task is rejected with a
+ * {@link RejectedExecutionException} right away, rather than waiting for a thread and counting that
+ * wait against its time limit. The default configuration has no queue at all.
+ * <p>
+ * Besides the statistics of {@link ThreadPoolExecutor}, the executor reports the number of rejected
+ * tasks and the depth of its queue. {@link #close()} shuts it down, giving running tasks a grace
+ * period before they are interrupted.
+ */
+public final class TimeLimiterExecutor extends ThreadPoolExecutor implements AutoCloseable {
+
+    private static volatile TimeLimiterExecutor shared;
+
+    private final LongAdder rejectedCount;
+    private final Duration closeTimeout;
+
+    private TimeLimiterExecutor(Builder builder, BlockingQueue<Runnable> queue, LongAdder rejectedCount) {
+        super(builder.queueCapacity == 0 ? 0 : builder.maxThreads, builder.maxThreads,
+                builder.keepAlive.toNanos(), TimeUnit.NANOSECONDS, queue,
+                new DaemonThreadFactory(builder.threadNamePrefix), new CountingAbortPolicy(rejectedCount));
+        this.rejectedCount = rejectedCount;
+        this.closeTimeout = builder.closeTimeout;
+        if (builder.queueCapacity > 0) {
+            allowCoreThreadTimeOut(true);
+        }
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the executor shared by the time limiters that are not given one, such as
+     * {@link com.fantacya.kitty.concurrent.retry.AttemptTimeLimiters#fixedTimeLimit(Duration)}. It is
+     * created with the default configuration on first use, and again on next use if it has been shut down.
+     */
+    public static TimeLimiterExecutor shared() {
+        TimeLimiterExecutor executor = shared;
+        if (executor == null || executor.isShutdown()) {
+            synchronized (TimeLimiterExecutor.class) {
+                executor = shared;
+                if (executor == null || executor.isShutdown()) {
+                    shared = executor = newBuilder().threadNamePrefix("kitty-time-limiter-shared").build();
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * @return the number of tasks rejected since the executor was created
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * @return the number of tasks waiting for a thread
+     */
+    public int getQueueSize() {
+        return getQueue().size();
+    }
+
+    /**
+     * Shuts the executor down, then waits for running tasks up to the close timeout of the builder,
+     * and finally interrupts those still running.
+     */
+    @Override
+    public void close() {
+        shutdown();
+        boolean interrupted = false;
+        try {
+            if (!awaitTermination(closeTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            shutdownNow();
+            interrupted = true;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static final class Builder {
+        private int maxThreads = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+        private int queueCapacity = 0;
+        private Duration keepAlive = Duration.ofSeconds(60);
+        private Duration closeTimeout = Duration.ofSeconds(5);
+        private String threadNamePrefix = "kitty-time-limiter";
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum number of threads, default to four times the number of processors, and at least 16.
+         */
+        public Builder maxThreads(int maxThreads) {
+            Preconditions.checkArgument(maxThreads > 0, "maxThreads must be > 0 but is %s", maxThreads);
+            this.maxThreads = maxThreads;
+            return this;
+        }
+
+        /**
+         * Sets the number of tasks that may wait for a thread when all the threads are busy, default to 0.
+         * Time spent in the queue counts against the time limit of the task.
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            Preconditions.checkArgument(queueCapacity >= 0, "queueCapacity must be >= 0 but is %s", queueCapacity);
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Sets how long an idle thread is kept before it terminates, default to 60 seconds.
+         */
+        public Builder keepAlive(Duration keepAlive) {
+            Objects.requireNonNull(keepAlive, "keepAlive may not be null");
+            Preconditions.checkArgument(!keepAlive.isNegative() && !keepAlive.isZero(), "keepAlive must be > 0 but is %s", keepAlive);
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * Sets how long {@link TimeLimiterExecutor#close()} waits for running tasks, default to 5 seconds.
+         */
+        public Builder closeTimeout(Duration closeTimeout) {
+            Objects.requireNonNull(closeTimeout, "closeTimeout may not be null");
+            Preconditions.checkArgument(!closeTimeout.isNegative(), "closeTimeout must be >= 0 but is %s", closeTimeout);
+            this.closeTimeout = closeTimeout;
+            return this;
+        }
+
+        public Builder threadNamePrefix(String threadNamePrefix) {
+            this.threadNamePrefix = Objects.requireNonNull(threadNamePrefix, "threadNamePrefix may not be null");
+            return this;
+        }
+
+        public TimeLimiterExecutor build() {
+            BlockingQueue<Runnable> queue = queueCapacity == 0
+                    ? new SynchronousQueue<>()
+                    : new LinkedBlockingQueue<>(queueCapacity);
+            return new TimeLimiterExecutor(this, queue, new LongAdder());
+        }
+    }
+
+    private static final class CountingAbortPolicy implements RejectedExecutionHandler {
+        private final LongAdder rejectedCount;
+
+        CountingAbortPolicy(LongAdder rejectedCount) {
+            this.rejectedCount = rejectedCount;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            rejectedCount.increment();
+            throw new RejectedExecutionException(executor.isShutdown()
+                    ? "time limiter executor has been shut down"
+                    : "time limiter executor is saturated, active threads: " + executor.getActiveCount()
+                    + ", queued tasks: " + executor.getQueue().size());
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+        private final String namePrefix;
+
+        DaemonThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, namePrefix + "-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
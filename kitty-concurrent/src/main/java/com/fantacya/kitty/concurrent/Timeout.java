@@ -0,0 +1,29 @@
+package com.fantacya.kitty.concurrent;
+
+/**
+ * A handle associated with a task scheduled by a {@link HashedWheelTimer}.
+ */
+public interface Timeout {
+
+    /**
+     * Attempts to cancel the associated task. If the task has already been executed or cancelled,
+     * it will return with no side effect.
+     *
+     * @return <code>true</code> if the cancellation completed successfully, <code>false</code> otherwise
+     */
+    boolean cancel();
+
+    /**
+     * Tells if the associated task has been executed, or is executing.
+     *
+     * @return <code>true</code> if and only if the task has expired
+     */
+    boolean isExpired();
+
+    /**
+     * Tells if the associated task has been cancelled.
+     *
+     * @return <code>true</code> if and only if the task has been cancelled
+     */
+    boolean isCancelled();
+}
@@ -0,0 +1,255 @@
+package com.fantacya.kitty.concurrent.retry;
+
+import com.fantacya.kitty.concurrent.HashedWheelTimer;
+import com.fantacya.kitty.concurrent.Timeout;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A non-blocking counterpart of {@link Retryer}. Each attempt is an asynchronous call returning a
+ * {@link CompletableFuture}; when an attempt is rejected, the next one is scheduled on a
+ * {@link ScheduledExecutorService}, or on a {@link HashedWheelTimer} and an {@link Executor}, after the
+ * delay computed by the {@link WaitStrategy}, so no thread is blocked while waiting between attempts.
+ * <p></p>
+ * The stop strategy, wait strategy, rejection predicate and listeners have the same meaning as for
+ * {@link Retryer}. Since attempts are asynchronous, there is neither a {@code BlockStrategy} nor an
+ * {@link AttemptTimeLimiter}: a time limit must be applied to the future returned by each attempt.
+ * <p></p>
+ * AsyncRetryer instances are better constructed with {@link RetryerBuilder#buildAsync(ScheduledExecutorService)}
+ * or {@link RetryerBuilder#buildAsync(HashedWheelTimer, Executor)}.
+ * An async retryer is thread-safe, provided the arguments passed to its constructor are thread-safe.
+ *
+ * @param <V> the type of the call return value
+ */
+public final class AsyncRetryer<V> {
+    private final ScheduledExecutorService scheduler;
+    private final HashedWheelTimer timer;
+    private final Executor executor;
+    private final StopStrategy stopStrategy;
+    private final WaitStrategy waitStrategy;
+    private final Predicate<Attempt<V>> rejectionPredicate;
+    private final RetryListener[] listeners;
+
+    /**
+     * Constructor
+     *
+     * @param scheduler          the executor on which attempts after the first one are started
+     * @param stopStrategy       the strategy used to decide when the retryer must stop retrying
+     * @param waitStrategy       the strategy used to decide how much time to wait between attempts
+     * @param rejectionPredicate the predicate used to decide if the attempt must be rejected
+     *                           or not. If an attempt is rejected, the retryer will retry the call, unless the stop
+     *                           strategy indicates otherwise or the returned future is cancelled.
+     * @param listeners          collection of retry listeners
+     */
+    public AsyncRetryer(@Nonnull ScheduledExecutorService scheduler,
+                        @Nonnull StopStrategy stopStrategy,
+                        @Nonnull WaitStrategy waitStrategy,
+                        @Nonnull Predicate<Attempt<V>> rejectionPredicate,
+                        @Nonnull Collection<RetryListener> listeners) {
+        this(Objects.requireNonNull(scheduler, "scheduler may not be null"), null, null,
+                stopStrategy, waitStrategy, rejectionPredicate, listeners);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param timer              the timer which waits between attempts, it should be shared by many retryers
+     * @param executor           the executor on which attempts after the first one are started
+     * @param stopStrategy       the strategy used to decide when the retryer must stop retrying
+     * @param waitStrategy       the strategy used to decide how much time to wait between attempts
+     * @param rejectionPredicate the predicate used to decide if the attempt must be rejected
+     *                           or not. If an attempt is rejected, the retryer will retry the call, unless the stop
+     *                           strategy indicates otherwise or the returned future is cancelled.
+     * @param listeners          collection of retry listeners
+     */
+    public AsyncRetryer(@Nonnull HashedWheelTimer timer,
+                        @Nonnull Executor executor,
+                        @Nonnull StopStrategy stopStrategy,
+                        @Nonnull WaitStrategy waitStrategy,
+                        @Nonnull Predicate<Attempt<V>> rejectionPredicate,
+                        @Nonnull Collection<RetryListener> listeners) {
+        this(null, Objects.requireNonNull(timer, "timer may not be null"),
+                Objects.requireNonNull(executor, "executor may not be null"),
+                stopStrategy, waitStrategy, rejectionPredicate, listeners);
+    }
+
+    private AsyncRetryer(ScheduledExecutorService scheduler,
+                         HashedWheelTimer timer,
+                         Executor executor,
+                         StopStrategy stopStrategy,
+                         WaitStrategy waitStrategy,
+                         Predicate<Attempt<V>> rejectionPredicate,
+                         Collection<RetryListener> listeners) {
+        Objects.requireNonNull(stopStrategy, "stopStrategy may not be null");
+        Objects.requireNonNull(waitStrategy, "waitStrategy may not be null");
+        Objects.requireNonNull(rejectionPredicate, "rejectionPredicate may not be null");
+        Objects.requireNonNull(listeners, "listeners may not null");
+
+        this.scheduler = scheduler;
+        this.timer = timer;
+        this.executor = executor;
+        this.stopStrategy = stopStrategy;
+        this.waitStrategy = waitStrategy;
+        this.rejectionPredicate = rejectionPredicate;
+        this.listeners = listeners.toArray(new RetryListener[0]);
+    }
+
+    /**
+     * Starts the first attempt on the calling thread and returns immediately. The returned future
+     * completes with
+     * <ul>
+     * <li>the result of the first attempt accepted by the rejection predicate,</li>
+     * <li>the exception thrown or returned by the first attempt accepted by the rejection predicate, or</li>
+     * <li>a {@link RetryException} if the stop strategy decided to abort, or the next attempt
+     * could not be scheduled.</li>
+     * </ul>
+     * Cancelling the returned future cancels the pending attempt and stops retrying.
+     *
+     * @param supplier starts an attempt and returns its future, called once per attempt
+     * @return a future completed with the outcome of the retries
+     */
+    public CompletableFuture<V> call(@Nonnull Supplier<CompletableFuture<V>> supplier) {
+        Objects.requireNonNull(supplier, "supplier may not be null");
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        new Retry(supplier, promise).attempt();
+        return promise;
+    }
+
+    /**
+     * State of one {@link #call(Supplier)}. Attempts of one call never overlap, the fields are
+     * volatile because consecutive attempts may run on different threads.
+     */
+    private final class Retry implements Runnable {
+        private final Supplier<CompletableFuture<V>> supplier;
+        private final CompletableFuture<V> promise;
+        private final long startTime = System.nanoTime();
+        private volatile int attemptNumber;
+
+        /**
+         * The running attempt, or the {@link Future} or {@link Timeout} of the scheduled one
+         */
+        private volatile Object pending;
+
+        Retry(Supplier<CompletableFuture<V>> supplier, CompletableFuture<V> promise) {
+            this.supplier = supplier;
+            this.promise = promise;
+            promise.whenComplete((r, t) -> {
+                if (promise.isCancelled()) {
+                    cancel(pending);
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            attempt();
+        }
+
+        void attempt() {
+            if (promise.isDone()) {
+                return;
+            }
+            attemptNumber++;
+            CompletableFuture<V> future;
+            try {
+                future = Objects.requireNonNull(supplier.get(), "supplier returned a null future");
+            } catch (Throwable t) {
+                onComplete(null, t);
+                return;
+            }
+            pending = future;
+            future.whenComplete(this::onComplete);
+        }
+
+        private void onComplete(V result, Throwable throwable) {
+            if (promise.isDone()) {
+                return;
+            }
+            long delay = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            Attempt<V> attempt;
+            if (throwable == null) {
+                attempt = new Retryer.ResultAttempt<>(result, attemptNumber, delay);
+            } else {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause() : throwable;
+                attempt = new Retryer.ExceptionAttempt<>(cause, attemptNumber, delay);
+            }
+
+            try {
+                for (RetryListener listener : listeners) {
+                    listener.onRetry(attempt);
+                }
+
+                if (!rejectionPredicate.test(attempt)) {
+                    if (attempt.hasResult()) {
+                        promise.complete(attempt.getResult());
+                    } else {
+                        promise.completeExceptionally(attempt.getExceptionCause());
+                    }
+                } else if (stopStrategy.shouldStop(attempt)) {
+                    promise.completeExceptionally(new RetryException(attemptNumber, attempt));
+                } else {
+                    schedule(waitStrategy.computeSleepTime(attempt), attempt);
+                }
+            } catch (Throwable t) {
+                promise.completeExceptionally(t);
+            }
+        }
+
+        private void schedule(long sleepTime, Attempt<V> attempt) {
+            try {
+                // even without delay, go through the scheduler so that attempts completing
+                // synchronously don't recurse on the caller's stack
+                if (scheduler != null) {
+                    pending = scheduler.schedule(this, sleepTime, TimeUnit.MILLISECONDS);
+                } else if (sleepTime <= 0L) {
+                    executor.execute(this);
+                } else {
+                    pending = timer.newTimeout(new HashedWheelTimer.TimerTask() {
+                        @Override
+                        public void run() {
+                            try {
+                                executor.execute(Retry.this);
+                            } catch (RejectedExecutionException e) {
+                                reject(attempt, e);
+                            }
+                        }
+
+                        @Override
+                        public void dropped(RejectedExecutionException cause) {
+                            // the timer was stopped while waiting for the next attempt
+                            reject(attempt, cause);
+                        }
+                    }, sleepTime, TimeUnit.MILLISECONDS);
+                }
+            } catch (RejectedExecutionException e) {
+                reject(attempt, e);
+            }
+        }
+
+        private void reject(Attempt<V> attempt, RejectedExecutionException e) {
+            RetryException retryException = new RetryException(attemptNumber, attempt);
+            retryException.addSuppressed(e);
+            promise.completeExceptionally(retryException);
+        }
+
+        private void cancel(Object pending) {
+            if (pending instanceof Future) {
+                ((Future<?>) pending).cancel(false);
+            } else if (pending instanceof Timeout) {
+                ((Timeout) pending).cancel();
+            }
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.fantacya.kitty.concurrent.retry;
 
+import com.fantacya.kitty.concurrent.HashedWheelTimer;
+import com.fantacya.kitty.concurrent.InterruptingTimeLimiter;
 import com.fantacya.kitty.concurrent.SimpleTimeLimiter;
 import com.fantacya.kitty.concurrent.TimeLimiter;
+import com.fantacya.kitty.concurrent.TimeLimiterExecutor;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
@@ -9,7 +12,6 @@ import java.time.Duration;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Factory class for instances of {@link AttemptTimeLimiter}
@@ -30,8 +32,9 @@ public class AttemptTimeLimiters {
     }
 
     /**
-     * For control over thread management, it is preferable to offer an {@link ExecutorService} through the other
-     * factory method, {@link #fixedTimeLimit(Duration, ExecutorService)}. See the note on
+     * Attempts run on {@link TimeLimiterExecutor#shared()}, which is bounded and rejects attempts right away
+     * when saturated. For control over thread management, it is preferable to offer an {@link ExecutorService}
+     * through the other factory method, {@link #fixedTimeLimit(Duration, ExecutorService)}. See the note on
      * {@link SimpleTimeLimiter#create(ExecutorService)}, which this AttemptTimeLimiter uses.
      *
      * @param timeout that an attempt may persist before being circumvented
@@ -40,7 +43,7 @@ public class AttemptTimeLimiters {
      */
     public static <V> AttemptTimeLimiter<V> fixedTimeLimit(@Nonnull Duration timeout) {
         Objects.requireNonNull(timeout);
-        return new FixedAttemptTimeLimit<V>(timeout);
+        return new SharedExecutorAttemptTimeLimit<V>(timeout);
     }
 
     /**
@@ -54,6 +57,31 @@ public class AttemptTimeLimiters {
         return new FixedAttemptTimeLimit<V>(timeout, executorService);
     }
 
+    /**
+     * Attempts run on the thread calling the {@link Retryer}, and are interrupted once the time limit
+     * expires. The watchdogs run on a timer shared by all the AttemptTimeLimiters created by this method.
+     * See {@link InterruptingTimeLimiter}, which this AttemptTimeLimiter uses.
+     *
+     * @param timeout that an attempt may persist before being interrupted
+     * @param <V>     the type of the computation result
+     * @return an {@link AttemptTimeLimiter} with a fixed time limit for each attempt
+     */
+    public static <V> AttemptTimeLimiter<V> interruptingTimeLimit(@Nonnull Duration timeout) {
+        Objects.requireNonNull(timeout);
+        return new FixedAttemptTimeLimit<V>(InterruptingTimeLimiter.create(), timeout);
+    }
+
+    /**
+     * @param timeout that an attempt may persist before being interrupted
+     * @param timer   on which the watchdog of each attempt is armed
+     * @param <V>     the type of the computation result
+     * @return an {@link AttemptTimeLimiter} with a fixed time limit for each attempt
+     */
+    public static <V> AttemptTimeLimiter<V> interruptingTimeLimit(@Nonnull Duration timeout, @Nonnull HashedWheelTimer timer) {
+        Objects.requireNonNull(timeout);
+        return new FixedAttemptTimeLimit<V>(InterruptingTimeLimiter.create(timer), timeout);
+    }
+
     @Immutable
     private static final class NoAttemptTimeLimit<V> implements AttemptTimeLimiter<V> {
         @Override
@@ -63,15 +91,48 @@ public class AttemptTimeLimiters {
     }
 
     @Immutable
-    private static final class FixedAttemptTimeLimit<V> implements AttemptTimeLimiter<V> {
+    private static final class SharedExecutorAttemptTimeLimit<V> implements AttemptTimeLimiter<V> {
+
+        /**
+         * The time limiter on the current shared executor, shared by all instances
+         */
+        private static volatile SharedTimeLimiter shared;
 
-        private final TimeLimiter timeLimiter;
         private final Duration timeout;
 
-        public FixedAttemptTimeLimit(@Nonnull Duration timeout) {
-            this(SimpleTimeLimiter.create(Executors.newCachedThreadPool()), timeout);
+        public SharedExecutorAttemptTimeLimit(@Nonnull Duration timeout) {
+            this.timeout = Objects.requireNonNull(timeout);
         }
 
+        @Override
+        public V call(Callable<V> callable) throws Exception {
+            // looked up on each call, the shared executor is replaced once it has been shut down
+            TimeLimiterExecutor executor = TimeLimiterExecutor.shared();
+            SharedTimeLimiter current = shared;
+            if (current == null || current.executor != executor) {
+                // racing callers may each create one, any of them will do
+                shared = current = new SharedTimeLimiter(executor);
+            }
+            return current.timeLimiter.callWithTimeout(callable, timeout);
+        }
+    }
+
+    private static final class SharedTimeLimiter {
+        private final TimeLimiterExecutor executor;
+        private final TimeLimiter timeLimiter;
+
+        SharedTimeLimiter(TimeLimiterExecutor executor) {
+            this.executor = executor;
+            this.timeLimiter = SimpleTimeLimiter.create(executor);
+        }
+    }
+
+    @Immutable
+    private static final class FixedAttemptTimeLimit<V> implements AttemptTimeLimiter<V> {
+
+        private final TimeLimiter timeLimiter;
+        private final Duration timeout;
+
         public FixedAttemptTimeLimit(@Nonnull Duration timeout, @Nonnull ExecutorService executorService) {
             this(SimpleTimeLimiter.create(executorService), timeout);
         }
@@ -34,7 +34,13 @@ public final class Retryer<V> {
     private final BlockStrategy blockStrategy;
     private final AttemptTimeLimiter<V> attemptTimeLimiter;
     private final Predicate<Attempt<V>> rejectionPredicate;
-    private final Collection<RetryListener> listeners;
+    private final RetryListener[] listeners;
+
+    /**
+     * Whether a successful attempt can be returned as-is: there is no listener to notify and
+     * the rejection predicate is known to never reject a result.
+     */
+    private final boolean returnFirstResult;
 
     /**
      * Constructor
@@ -106,6 +112,23 @@ public final class Retryer<V> {
                    @Nonnull BlockStrategy blockStrategy,
                    @Nonnull Predicate<Attempt<V>> rejectionPredicate,
                    @Nonnull Collection<RetryListener> listeners) {
+        this(attemptTimeLimiter, stopStrategy, waitStrategy, blockStrategy, rejectionPredicate, listeners, false);
+    }
+
+    /**
+     * Constructor used by {@link RetryerBuilder}, which knows whether the rejection predicate
+     * it assembled may reject a result.
+     *
+     * @param acceptsAllResults  <code>true</code> if the rejection predicate never rejects an attempt
+     *                           which returned a result
+     */
+    Retryer(@Nonnull AttemptTimeLimiter<V> attemptTimeLimiter,
+            @Nonnull StopStrategy stopStrategy,
+            @Nonnull WaitStrategy waitStrategy,
+            @Nonnull BlockStrategy blockStrategy,
+            @Nonnull Predicate<Attempt<V>> rejectionPredicate,
+            @Nonnull Collection<RetryListener> listeners,
+            boolean acceptsAllResults) {
         Objects.requireNonNull(attemptTimeLimiter, "timeLimiter may not be null");
         Objects.requireNonNull(stopStrategy, "stopStrategy may not be null");
         Objects.requireNonNull(waitStrategy, "waitStrategy may not be null");
@@ -118,7 +141,8 @@ public final class Retryer<V> {
         this.waitStrategy = waitStrategy;
         this.blockStrategy = blockStrategy;
         this.rejectionPredicate = rejectionPredicate;
-        this.listeners = listeners;
+        this.listeners = listeners.toArray(new RetryListener[0]);
+        this.returnFirstResult = acceptsAllResults && this.listeners.length == 0;
     }
 
     /**
@@ -138,13 +162,22 @@ public final class Retryer<V> {
      */
     public V call(Callable<V> callable) throws ExecutionException, RetryException {
         long startTime = System.nanoTime();
-        for (int attemptNumber = 1; ; attemptNumber++) {
-            Attempt<V> attempt;
+        if (returnFirstResult) {
+            // nobody can observe or reject a successful attempt, so don't materialize it
             try {
-                V result = attemptTimeLimiter.call(callable);
-                attempt = new ResultAttempt<V>(result, attemptNumber, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                return attemptTimeLimiter.call(callable);
             } catch (Throwable t) {
-                attempt = new ExceptionAttempt<V>(t, attemptNumber, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                return retry(callable, startTime, new ExceptionAttempt<V>(t, 1, elapsedMillis(startTime)));
+            }
+        }
+        return retry(callable, startTime, attempt(callable, 1, startTime));
+    }
+
+    private V retry(Callable<V> callable, long startTime, Attempt<V> firstAttempt) throws ExecutionException, RetryException {
+        Attempt<V> attempt = firstAttempt;
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            if (attemptNumber > 1) {
+                attempt = attempt(callable, attemptNumber, startTime);
             }
 
             for (RetryListener listener : listeners) {
@@ -168,6 +201,19 @@ public final class Retryer<V> {
         }
     }
 
+    private Attempt<V> attempt(Callable<V> callable, int attemptNumber, long startTime) {
+        try {
+            V result = attemptTimeLimiter.call(callable);
+            return new ResultAttempt<V>(result, attemptNumber, elapsedMillis(startTime));
+        } catch (Throwable t) {
+            return new ExceptionAttempt<V>(t, attemptNumber, elapsedMillis(startTime));
+        }
+    }
+
+    private static long elapsedMillis(long startTime) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+
     /**
      * Wraps the given {@link Callable} in a {@link RetryerCallable}, which can
      * be submitted to an executor. The returned {@link RetryerCallable} uses
@@ -2,12 +2,15 @@ package com.fantacya.kitty.concurrent.retry;
 
 import com.fantacya.kitty.concurrent.BlockStrategies;
 import com.fantacya.kitty.concurrent.BlockStrategy;
+import com.fantacya.kitty.concurrent.HashedWheelTimer;
 import com.fantacya.kitty.core.common.Preconditions;
 
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Predicate;
 
 /**
@@ -25,6 +28,11 @@ public class RetryerBuilder<V> {
     private Predicate<Attempt<V>> rejectionPredicate = a -> false;
     private List<RetryListener> listeners = new ArrayList<>();
 
+    /**
+     * Whether {@link #retryIfResult(Predicate)} was used, every other rejection predicate only looks at exceptions
+     */
+    private boolean rejectsResults;
+
     private RetryerBuilder() {
     }
 
@@ -165,21 +173,68 @@ public class RetryerBuilder<V> {
     public RetryerBuilder<V> retryIfResult(@Nonnull Predicate<V> resultPredicate) {
         Objects.requireNonNull(resultPredicate, "resultPredicate may not be null");
         rejectionPredicate = rejectionPredicate.or(new ResultPredicate<V>(resultPredicate));
+        rejectsResults = true;
         return this;
     }
 
     /**
-     * Builds the retryer.
+     * Builds the retryer. When no listener is registered and no result predicate is configured,
+     * the returned retryer hands back a successful first attempt without building an {@link Attempt}.
      *
      * @return the built retryer.
      */
     public Retryer<V> build() {
         AttemptTimeLimiter<V> theAttemptTimeLimiter = attemptTimeLimiter == null ? AttemptTimeLimiters.<V>noTimeLimit() : attemptTimeLimiter;
-        StopStrategy theStopStrategy = stopStrategy == null ? StopStrategies.neverStop() : stopStrategy;
-        WaitStrategy theWaitStrategy = waitStrategy == null ? WaitStrategies.noWait() : waitStrategy;
         BlockStrategy theBlockStrategy = blockStrategy == null ? BlockStrategies.threadSleepStrategy() : blockStrategy;
 
-        return new Retryer<V>(theAttemptTimeLimiter, theStopStrategy, theWaitStrategy, theBlockStrategy, rejectionPredicate, listeners);
+        return new Retryer<V>(theAttemptTimeLimiter, theStopStrategy(), theWaitStrategy(), theBlockStrategy, rejectionPredicate,
+                listeners, !rejectsResults);
+    }
+
+    /**
+     * Builds an asynchronous retryer, which schedules attempts after the first one on the given executor.
+     * An asynchronous retryer doesn't block between attempts, and its attempts are limited by the futures
+     * they return, so neither a block strategy nor an attempt time limiter may be configured.
+     *
+     * @param scheduler the executor on which attempts after the first one are started
+     * @return the built asynchronous retryer.
+     * @throws IllegalStateException if a block strategy or an attempt time limiter has been set.
+     */
+    public AsyncRetryer<V> buildAsync(@Nonnull ScheduledExecutorService scheduler) throws IllegalStateException {
+        Objects.requireNonNull(scheduler, "scheduler may not be null");
+        checkAsync();
+        return new AsyncRetryer<V>(scheduler, theStopStrategy(), theWaitStrategy(), rejectionPredicate, listeners);
+    }
+
+    /**
+     * Builds an asynchronous retryer, which waits between attempts on the given timer and starts attempts
+     * after the first one on the given executor. A single {@link HashedWheelTimer} can serve the backoffs of
+     * a very large number of retryers.
+     *
+     * @param timer    the timer which waits between attempts
+     * @param executor the executor on which attempts after the first one are started
+     * @return the built asynchronous retryer.
+     * @throws IllegalStateException if a block strategy or an attempt time limiter has been set.
+     * @see #buildAsync(ScheduledExecutorService)
+     */
+    public AsyncRetryer<V> buildAsync(@Nonnull HashedWheelTimer timer, @Nonnull Executor executor) throws IllegalStateException {
+        Objects.requireNonNull(timer, "timer may not be null");
+        Objects.requireNonNull(executor, "executor may not be null");
+        checkAsync();
+        return new AsyncRetryer<V>(timer, executor, theStopStrategy(), theWaitStrategy(), rejectionPredicate, listeners);
+    }
+
+    private void checkAsync() {
+        Preconditions.checkState(blockStrategy == null, "an asynchronous retryer doesn't block, but a block strategy has been set %s", blockStrategy);
+        Preconditions.checkState(attemptTimeLimiter == null, "an asynchronous retryer doesn't limit attempts, but a time limiter has been set %s", attemptTimeLimiter);
+    }
+
+    private StopStrategy theStopStrategy() {
+        return stopStrategy == null ? StopStrategies.neverStop() : stopStrategy;
+    }
+
+    private WaitStrategy theWaitStrategy() {
+        return waitStrategy == null ? WaitStrategies.noWait() : waitStrategy;
     }
 
     private static final class ExceptionClassPredicate<V> implements Predicate<Attempt<V>> {
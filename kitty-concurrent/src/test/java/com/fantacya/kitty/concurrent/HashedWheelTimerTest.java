@@ -0,0 +1,121 @@
+package com.fantacya.kitty.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HashedWheelTimerTest {
+
+    private final HashedWheelTimer timer = new HashedWheelTimer("test-wheel-timer", 10, TimeUnit.MILLISECONDS, 8);
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void testExpiration() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Timeout timeout = timer.newTimeout(latch::countDown, 100, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100L);
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        assertEquals(0L, timer.pendingTimeouts());
+    }
+
+    @Test
+    public void testExpirationAfterSeveralRounds() throws InterruptedException {
+        // the wheel spans 80 milliseconds
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.newTimeout(latch::countDown, 250, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250L);
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+        Timeout timeout = timer.newTimeout(counter::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        assertEquals(1L, timer.pendingTimeouts());
+        assertTrue(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.cancel());
+        assertEquals(0L, timer.pendingTimeouts());
+        Thread.sleep(150L);
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void testManyTimeouts() throws InterruptedException {
+        int count = 10_000;
+        CountDownLatch latch = new CountDownLatch(count / 2);
+        for (int i = 0; i < count; i++) {
+            Timeout timeout = timer.newTimeout(latch::countDown, i % 200, TimeUnit.MILLISECONDS);
+            if (i % 2 == 1) {
+                timeout.cancel();
+            }
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50L);
+        assertEquals(0L, timer.pendingTimeouts());
+    }
+
+    @Test
+    public void testFailingTaskDoesNotStopTimer() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(() -> {
+            throw new IllegalStateException("expected");
+        }, 10, TimeUnit.MILLISECONDS);
+        timer.newTimeout(latch::countDown, 50, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStop() {
+        Timeout timeout = timer.newTimeout(() -> {
+        }, 1, TimeUnit.HOURS);
+        assertEquals(Collections.singleton(timeout), timer.stop());
+        assertTrue(timeout.isCancelled());
+        assertEquals(0L, timer.pendingTimeouts());
+        try {
+            timer.newTimeout(() -> {
+            }, 1, TimeUnit.MILLISECONDS);
+            fail("RejectedExecutionException expected");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testStopNotifiesDroppedTasks() {
+        AtomicReference<RejectedExecutionException> dropped = new AtomicReference<>();
+        timer.newTimeout(new HashedWheelTimer.TimerTask() {
+            @Override
+            public void run() {
+                fail("dropped task must not run");
+            }
+
+            @Override
+            public void dropped(RejectedExecutionException cause) {
+                dropped.set(cause);
+            }
+        }, 1, TimeUnit.HOURS);
+        assertEquals(1, timer.stop().size());
+        assertNotNull(dropped.get());
+    }
+}
@@ -0,0 +1,151 @@
+package com.fantacya.kitty.concurrent;
+
+import com.fantacya.kitty.concurrent.exception.ExecutionError;
+import com.fantacya.kitty.concurrent.exception.UncheckedExecutionException;
+import com.fantacya.kitty.concurrent.exception.UncheckedTimeoutException;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InterruptingTimeLimiterTest {
+
+    private static final HashedWheelTimer timer = new HashedWheelTimer("test-wheel-timer", 1, TimeUnit.MILLISECONDS, 64);
+    private static final Duration LONG = Duration.ofSeconds(10);
+    private static final Duration SHORT = Duration.ofMillis(50);
+
+    private final TimeLimiter limiter = InterruptingTimeLimiter.create(timer);
+
+    @AfterClass
+    public static void stopTimer() {
+        timer.stop();
+    }
+
+    @Test
+    public void testCallRunsOnCallingThread() throws Exception {
+        Thread caller = Thread.currentThread();
+        assertSame(caller, limiter.callWithTimeout(Thread::currentThread, LONG));
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    public void testCallTimesOut() throws Exception {
+        try {
+            limiter.callWithTimeout(() -> {
+                Thread.sleep(LONG.toMillis());
+                return "late";
+            }, SHORT);
+            fail("Expected timeout exception");
+        } catch (UncheckedTimeoutException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+            assertTrue(e.getCause().getCause() instanceof InterruptedException);
+        }
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testCallWrapsFailures() throws Exception {
+        try {
+            limiter.callWithTimeout(() -> {
+                throw new IOException("checked");
+            }, LONG);
+            fail("Expected execution exception");
+        } catch (ExecutionException e) {
+            assertEquals(IOException.class, e.getCause().getClass());
+        }
+        try {
+            limiter.callWithTimeout(() -> {
+                throw new IllegalStateException("unchecked");
+            }, LONG);
+            fail("Expected unchecked execution exception");
+        } catch (UncheckedExecutionException e) {
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+        }
+        try {
+            limiter.runWithTimeout(() -> {
+                throw new AssertionError("error");
+            }, LONG);
+            fail("Expected execution error");
+        } catch (ExecutionError e) {
+            assertEquals(AssertionError.class, e.getCause().getClass());
+        }
+    }
+
+    @Test
+    public void testCallWithInterruptedThread() throws Exception {
+        Thread.currentThread().interrupt();
+        try {
+            limiter.callWithTimeout(() -> "never", LONG);
+            fail("Expected interrupted exception");
+        } catch (InterruptedException e) {
+            // expected
+        }
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testUninterruptibleCallRestoresInterruptStatus() throws Exception {
+        Thread.currentThread().interrupt();
+        try {
+            assertEquals("done", limiter.callUninterruptiblyWithTimeout(() -> {
+                assertFalse(Thread.currentThread().isInterrupted());
+                return "done";
+            }, LONG));
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+
+        Thread.currentThread().interrupt();
+        try {
+            limiter.runUninterruptiblyWithTimeout(() -> sleepQuietly(LONG), SHORT);
+            fail("Expected timeout exception");
+        } catch (TimeoutException e) {
+            // expected
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    @Test
+    public void testNewProxy() throws Exception {
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        Sleeper target = millis -> {
+            thread.set(Thread.currentThread());
+            Thread.sleep(millis);
+            return millis;
+        };
+        Sleeper proxy = limiter.newProxy(target, Sleeper.class, SHORT);
+        assertEquals(0L, proxy.sleep(0L));
+        assertSame(Thread.currentThread(), thread.get());
+        try {
+            proxy.sleep(LONG.toMillis());
+            fail("Expected timeout exception");
+        } catch (UncheckedTimeoutException e) {
+            // expected
+        }
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    private static void sleepQuietly(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    interface Sleeper {
+        long sleep(long millis) throws InterruptedException;
+    }
+}
@@ -0,0 +1,109 @@
+package com.fantacya.kitty.concurrent;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TimeLimiterExecutorTest {
+
+    @Test
+    public void testRejectsWhenSaturated() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        try (TimeLimiterExecutor executor = TimeLimiterExecutor.newBuilder()
+                .maxThreads(2)
+                .queueCapacity(1)
+                .threadNamePrefix("test-time-limiter")
+                .build()) {
+            for (int i = 0; i < 3; i++) {
+                executor.execute(() -> awaitQuietly(release));
+            }
+            try {
+                executor.execute(() -> awaitQuietly(release));
+                fail("Expected rejected execution exception");
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+            assertEquals(1, executor.getRejectedCount());
+            assertEquals(2, executor.getPoolSize());
+            assertEquals(2, executor.getActiveCount());
+            assertEquals(1, executor.getQueueSize());
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testNoQueueByDefault() {
+        CountDownLatch release = new CountDownLatch(1);
+        try (TimeLimiterExecutor executor = TimeLimiterExecutor.newBuilder().maxThreads(1).build()) {
+            executor.execute(() -> awaitQuietly(release));
+            try {
+                executor.execute(() -> awaitQuietly(release));
+                fail("Expected rejected execution exception");
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+            assertEquals(0, executor.getQueueSize());
+            assertEquals(1, executor.getRejectedCount());
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testCloseInterruptsRunningTasks() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        TimeLimiterExecutor executor = TimeLimiterExecutor.newBuilder()
+                .closeTimeout(Duration.ofMillis(10))
+                .build();
+        executor.execute(() -> {
+            started.countDown();
+            awaitQuietly(new CountDownLatch(1));
+        });
+        started.await();
+        executor.close();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSharedIsRecreatedAfterClose() {
+        TimeLimiterExecutor shared = TimeLimiterExecutor.shared();
+        assertSame(shared, TimeLimiterExecutor.shared());
+        shared.close();
+        TimeLimiterExecutor recreated = TimeLimiterExecutor.shared();
+        assertNotSame(shared, recreated);
+        assertFalse(recreated.isShutdown());
+    }
+
+    @Test
+    public void testInvalidBounds() {
+        try {
+            TimeLimiterExecutor.newBuilder().maxThreads(0);
+            fail("Expected illegal argument exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("maxThreads must be > 0 but is 0", e.getMessage());
+        }
+        try {
+            TimeLimiterExecutor.newBuilder().queueCapacity(-1);
+            fail("Expected illegal argument exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("queueCapacity must be >= 0 but is -1", e.getMessage());
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.fantacya.kitty.concurrent.retry;
+
+import com.fantacya.kitty.concurrent.HashedWheelTimer;
+import com.fantacya.kitty.core.common.Predicates;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncRetryerTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testRetryIfException() throws Exception {
+        AsyncRetryer<Boolean> retryer = RetryerBuilder.<Boolean>newBuilder()
+                .retryIfException()
+                .withWaitStrategy(WaitStrategies.fixedWait(10L, TimeUnit.MILLISECONDS))
+                .buildAsync(scheduler);
+        AtomicInteger counter = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        assertTrue(retryer.call(failingTimes(5, counter)).get(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 50L);
+        assertEquals(6, counter.get());
+    }
+
+    @Test
+    public void testRetryOnWheelTimer() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer("test-wheel-timer", 10, TimeUnit.MILLISECONDS, 8);
+        try {
+            AsyncRetryer<Boolean> retryer = RetryerBuilder.<Boolean>newBuilder()
+                    .retryIfException()
+                    .withWaitStrategy(WaitStrategies.fixedWait(20L, TimeUnit.MILLISECONDS))
+                    .buildAsync(timer, scheduler);
+            AtomicInteger counter = new AtomicInteger();
+            long start = System.currentTimeMillis();
+            assertTrue(retryer.call(failingTimes(3, counter)).get(5, TimeUnit.SECONDS));
+            assertTrue(System.currentTimeMillis() - start >= 60L);
+            assertEquals(4, counter.get());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void testTimerStoppedWhileWaiting() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer("test-wheel-timer", 10, TimeUnit.MILLISECONDS, 8);
+        AsyncRetryer<Boolean> retryer = RetryerBuilder.<Boolean>newBuilder()
+                .retryIfException()
+                .withWaitStrategy(WaitStrategies.fixedWait(1L, TimeUnit.HOURS))
+                .buildAsync(timer, scheduler);
+        AtomicInteger counter = new AtomicInteger();
+        CompletableFuture<Boolean> future = retryer.call(failingTimes(3, counter));
+        while (timer.pendingTimeouts() == 0) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, timer.stop().size());
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RetryException);
+        }
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testRetryIfResult() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        AsyncRetryer<Boolean> retryer = RetryerBuilder.<Boolean>newBuilder()
+                .retryIfResult(Predicates.<Boolean>isNull())
+                .buildAsync(scheduler);
+        Boolean result = retryer.call(() -> CompletableFuture.completedFuture(
+                counter.incrementAndGet() < 5 ? null : Boolean.TRUE)).get(5, TimeUnit.SECONDS);
+        assertTrue(result);
+        assertEquals(5, counter.get());
+    }
+
+    @Test
+    public void testWithStopStrategy() throws Exception {
+        AsyncRetryer<Boolean> retryer = RetryerBuilder.<Boolean>newBuilder()
+                .retryIfException()
+                .withStopStrategy(StopStrategies.stopAfterAttempt(3))
+                .buildAsync(scheduler);
+        try {
+            retryer.call(failingTimes(5, new AtomicInteger())).get(5, TimeUnit.SECONDS);
+            fail("RetryException expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RetryException);
+            RetryException retryException = (RetryException) e.getCause();
+            assertEquals(3, retryException.getNumberOfFailedAttempts());
+            assertTrue(retryException.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testExceptionNotRetried() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        AsyncRetryer<Boolean> retryer = RetryerBuilder.<Boolean>newBuilder()
+                .retryIfExceptionOfType(IllegalStateException.class)
+                .buildAsync(scheduler);
+        try {
+            retryer.call(failingTimes(5, counter)).get(5, TimeUnit.SECONDS);
+            fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testSupplierThrowing() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        AsyncRetryer<Boolean> retryer = RetryerBuilder.<Boolean>newBuilder()
+                .retryIfRuntimeException()
+                .buildAsync(scheduler);
+        Boolean result = retryer.call(() -> {
+            if (counter.incrementAndGet() < 3) {
+                throw new IllegalStateException();
+            }
+            return CompletableFuture.completedFuture(true);
+        }).get(5, TimeUnit.SECONDS);
+        assertTrue(result);
+        assertEquals(3, counter.get());
+    }
+
+    @Test
+    public void testRetryListener() throws Exception {
+        List<Long> attemptNumbers = new ArrayList<>();
+        AsyncRetryer<Boolean> retryer = RetryerBuilder.<Boolean>newBuilder()
+                .retryIfException()
+                .withRetryListener(new RetryListener() {
+                    @Override
+                    public <V> void onRetry(Attempt<V> attempt) {
+                        attemptNumbers.add(attempt.getAttemptNumber());
+                    }
+                })
+                .buildAsync(scheduler);
+        assertTrue(retryer.call(failingTimes(2, new AtomicInteger())).get(5, TimeUnit.SECONDS));
+        assertEquals(3, attemptNumbers.size());
+        assertEquals(Long.valueOf(3L), attemptNumbers.get(2));
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        AsyncRetryer<Boolean> retryer = RetryerBuilder.<Boolean>newBuilder()
+                .retryIfException()
+                .withWaitStrategy(WaitStrategies.fixedWait(100L, TimeUnit.MILLISECONDS))
+                .buildAsync(scheduler);
+        CompletableFuture<Boolean> future = retryer.call(failingTimes(Integer.MAX_VALUE, counter));
+        assertTrue(future.cancel(false));
+        Thread.sleep(300L);
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testNoDeepRecursionOnSynchronousFailures() throws Exception {
+        AsyncRetryer<Boolean> retryer = RetryerBuilder.<Boolean>newBuilder()
+                .retryIfException()
+                .buildAsync(scheduler);
+        assertTrue(retryer.call(failingTimes(100_000, new AtomicInteger())).get(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testWhetherBuilderFailsForBlockStrategy() {
+        try {
+            RetryerBuilder.<Void>newBuilder()
+                    .withBlockStrategy(sleepTime -> {
+                    })
+                    .buildAsync(scheduler);
+            fail("Expected to fail for a block strategy");
+        } catch (IllegalStateException exception) {
+            assertTrue(exception.getMessage().contains("block strategy"));
+        }
+    }
+
+    private Supplier<CompletableFuture<Boolean>> failingTimes(int failures, AtomicInteger counter) {
+        return () -> {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            if (counter.incrementAndGet() <= failures) {
+                future.completeExceptionally(new IOException());
+            } else {
+                future.complete(true);
+            }
+            return future;
+        };
+    }
+}
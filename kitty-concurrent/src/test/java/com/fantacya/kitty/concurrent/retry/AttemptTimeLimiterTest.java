@@ -1,5 +1,6 @@
 package com.fantacya.kitty.concurrent.retry;
 
+import com.fantacya.kitty.concurrent.TimeLimiterExecutor;
 import com.fantacya.kitty.concurrent.exception.UncheckedTimeoutException;
 import org.junit.Assert;
 import org.junit.Test;
@@ -34,6 +35,33 @@ public class AttemptTimeLimiterTest {
         }
     }
 
+    @Test
+    public void testSharedExecutorReplaced() throws ExecutionException, RetryException {
+        r.call(new SleepyOut(0L));
+        TimeLimiterExecutor.shared().shutdown();
+        r.call(new SleepyOut(0L));
+        Assert.assertFalse(TimeLimiterExecutor.shared().isShutdown());
+    }
+
+    @Test
+    public void testInterruptingAttemptTimeLimit() throws ExecutionException, RetryException {
+        Retryer<Void> interrupting = RetryerBuilder.<Void>newBuilder()
+                .withAttemptTimeLimiter(AttemptTimeLimiters.<Void>interruptingTimeLimit(Duration.ofMillis(100)))
+                .build();
+        interrupting.call(new SleepyOut(0L));
+
+        long start = System.nanoTime();
+        try {
+            interrupting.call(new SleepyOut(10 * 1000L));
+            Assert.fail("Expected timeout exception");
+        } catch (ExecutionException e) {
+            // expected
+            Assert.assertEquals(UncheckedTimeoutException.class, e.getCause().getClass());
+        }
+        Assert.assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+        Assert.assertFalse(Thread.currentThread().isInterrupted());
+    }
+
     static class SleepyOut implements Callable<Void> {
 
         final long sleepMs;
@@ -534,6 +534,54 @@ public class RetryerBuilderTest {
         assertTrue(listenerTwo.get());
     }
 
+    @Test
+    public void testFirstResultShortcutMatchesFullPath() {
+        for (int failures = -1; failures < 4; failures++) {
+            String expected = outcome(failures, RetryerBuilder.<String>newBuilder());
+            String withListener = outcome(failures, RetryerBuilder.<String>newBuilder()
+                    .withRetryListener(new RetryListener() {
+                        @Override
+                        public <V> void onRetry(Attempt<V> attempt) {
+                        }
+                    }));
+            String withResultPredicate = outcome(failures, RetryerBuilder.<String>newBuilder()
+                    .retryIfResult("retry"::equals));
+            assertEquals(expected, withListener);
+            assertEquals(expected, withResultPredicate);
+        }
+        assertEquals("execution:IllegalStateException", outcome(-1, RetryerBuilder.<String>newBuilder()));
+        assertEquals("result:ok", outcome(0, RetryerBuilder.<String>newBuilder()));
+        assertEquals("result:ok", outcome(2, RetryerBuilder.<String>newBuilder()));
+        assertEquals("retry:3:IOException", outcome(3, RetryerBuilder.<String>newBuilder()));
+    }
+
+    /**
+     * Runs a callable that fails {@code failures} times with a retried IOException and then returns "ok",
+     * or throws an IllegalStateException, which is not retried, if {@code failures} is negative
+     */
+    private String outcome(int failures, RetryerBuilder<String> builder) {
+        Retryer<String> retryer = builder
+                .retryIfExceptionOfType(IOException.class)
+                .withStopStrategy(StopStrategies.stopAfterAttempt(3))
+                .build();
+        AtomicInteger counter = new AtomicInteger();
+        try {
+            return "result:" + retryer.call(() -> {
+                if (failures < 0) {
+                    throw new IllegalStateException();
+                }
+                if (counter.incrementAndGet() <= failures) {
+                    throw new IOException();
+                }
+                return "ok";
+            });
+        } catch (ExecutionException e) {
+            return "execution:" + e.getCause().getClass().getSimpleName();
+        } catch (RetryException e) {
+            return "retry:" + e.getNumberOfFailedAttempts() + ":" + e.getLastFailedAttempt().getExceptionCause().getClass().getSimpleName();
+        }
+    }
+
     private void assertResultAttempt(Attempt actualAttempt, boolean expectedHasResult, Object expectedResult) {
         assertFalse(actualAttempt.hasException());
         assertEquals(expectedHasResult, actualAttempt.hasResult());
@@ -48,8 +48,7 @@ public interface DistributeLock {
      * @param run 执行函数，在本线程内执行
      */
     default void doWithLock(int expireTime, int timeout, Runnable run) {
-        Object stamp = lock(expireTime, timeout);
-        if (stamp != null) {
+        if (lock(expireTime, timeout)) {
             try {
                 run.run();
             } finally {
@@ -67,11 +66,11 @@ public interface DistributeLock {
      * @param callback 执行方法，在本线程内执行，获取锁成功时参数为true，失败时参数为false
      */
     default void doWithLock(int expireTime, int timeout, Consumer<Boolean> callback) {
-        Object stamp = lock(expireTime, timeout);
+        boolean locked = lock(expireTime, timeout);
         try {
-            callback.accept(stamp == null);
+            callback.accept(locked);
         } finally {
-            if (stamp != null) {
+            if (locked) {
                 release();
             }
         }
@@ -1,38 +1,38 @@
 package com.fantacya.kitty.lock;
 
-import com.fantacya.kitty.aop.AbstractAnnotationMethodAdvisor;
+import com.fantacya.kitty.aop.AbstractPlannedAnnotationMethodAdvisor;
+import com.fantacya.kitty.aop.AnnotationValidateException;
+import com.fantacya.kitty.aop.AnnotationValidator;
+import com.fantacya.kitty.aop.ExpressionEvaluator;
+import com.fantacya.kitty.aop.MethodExpression;
 import org.springframework.aop.framework.ReflectiveMethodInvocation;
 import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
-import org.springframework.context.expression.AnnotatedElementKey;
-import org.springframework.context.expression.CachedExpressionEvaluator;
-import org.springframework.context.expression.MethodBasedEvaluationContext;
-import org.springframework.core.DefaultParameterNameDiscoverer;
-import org.springframework.core.ParameterNameDiscoverer;
-import org.springframework.expression.EvaluationContext;
-import org.springframework.expression.Expression;
 import org.springframework.util.StringUtils;
 
 import java.lang.reflect.Method;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
- * @description:
+ * @description: {@link DistributeLocked} 注解的切面。锁的key的生成方式在方法匹配时确定：
+ * 预先编译SpEL表达式（常见的参数表达式直接读取参数），或者在第一次调用时查找并保存 {@link LockKeyGenerator} bean
  * @author: harri2012
  * @date: 2019-07-07 23:28
  */
-public class DistributeLockAdvisor extends AbstractAnnotationMethodAdvisor<DistributeLocked> implements ApplicationContextAware {
+public class DistributeLockAdvisor extends AbstractPlannedAnnotationMethodAdvisor<DistributeLocked, DistributeLockAdvisor.LockPlan>
+        implements ApplicationContextAware {
 
     private final DistributeLockProvider lockProvider;
 
-    private final ExpressionEvaluator<String> evaluator = new ExpressionEvaluator<>();
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
 
     private ApplicationContext applicationContext;
 
     public DistributeLockAdvisor(DistributeLockProvider lockProvider) {
+        super(false, false, validator(lockProvider));
         this.lockProvider = lockProvider;
     }
 
@@ -42,102 +42,123 @@ public class DistributeLockAdvisor extends AbstractAnnotationMethodAdvisor<Distr
     }
 
     @Override
-    public Object invoke(ReflectiveMethodInvocation invocation, DistributeLocked annotation) throws Throwable {
-        String key = annotation.key();
-        if (StringUtils.hasLength(key)) {
-            key = getKey(invocation.getThis(), invocation.getArguments(), invocation.getThis().getClass(),
-                    invocation.getMethod(), key);
-        } else if (StringUtils.hasLength(annotation.keyGenerator())) {
-            LockKeyGenerator generator = applicationContext.getBean(annotation.keyGenerator(), LockKeyGenerator.class);
-            key = generator.generate(invocation.getThis(), invocation.getMethod(), invocation.getArguments());
-        } else if (annotation.keyGeneratorClass() != LockKeyGenerator.class) {
-            LockKeyGenerator generator = (LockKeyGenerator) applicationContext.getBean(annotation.keyGeneratorClass());
-            key = generator.generate(invocation.getThis(), invocation.getMethod(), invocation.getArguments());
+    protected LockPlan compile(Class<?> targetClass, Method method, DistributeLocked annotation) {
+        return new LockPlan(keyResolver(targetClass, method, annotation),
+                annotation.autoExpireTime() * 1000, annotation.timeout(), annotation.mode());
+    }
+
+    @Override
+    public Object invoke(ReflectiveMethodInvocation invocation, DistributeLocked annotation, LockPlan plan) throws Throwable {
+        String key = plan.keyResolver.resolve(invocation);
+        DistributeLock lock = createLock(key, plan.mode);
+        if (!lock.lock(plan.expireTime, plan.timeout)) {
+            throw new LockException("acquire lock '" + key + "' failed");
+        }
+        try {
+            return invocation.proceed();
+        } finally {
+            lock.release();
         }
+    }
 
-        String lockKey = key;
-        Object[] result = new Object[1];
-        Throwable[] throwable = new Throwable[1];
-        lockProvider.createLock(key).doWithLock(annotation.autoExpireTime() * 1000, annotation.timeout(), locked -> {
-            if (locked) {
-                try {
-                    result[0] = invocation.proceed();
-                } catch (Throwable t) {
-                    throwable[0] = t;
-                }
-            } else {
-                throw new LockException("acquire lock '" + lockKey + "' failed");
+    /**
+     * 读写模式要求锁的提供者支持读写锁
+     */
+    private static AnnotationValidator<DistributeLocked> validator(DistributeLockProvider lockProvider) {
+        return (targetClass, method, annotation) -> {
+            if (annotation.mode() != LockMode.EXCLUSIVE && !lockProvider.supportsReadWriteLock()) {
+                throw new AnnotationValidateException("mode " + annotation.mode()
+                        + " of @DistributeLocked requires a provider supporting read-write locks, "
+                        + lockProvider.getClass().getName() + " does not, method: " + method);
             }
-        });
+        };
+    }
 
-        if (throwable[0] != null) {
-            throw throwable[0];
+    private DistributeLock createLock(String key, LockMode mode) {
+        switch (mode) {
+            case READ:
+                return lockProvider.createReadWriteLock(key).readLock();
+            case WRITE:
+                return lockProvider.createReadWriteLock(key).writeLock();
+            default:
+                return lockProvider.createLock(key);
         }
-        return result[0];
     }
 
-    private String getKey(Object object, Object[] args, Class clazz, Method method, String condition) {
-        EvaluationContext evaluationContext = evaluator.createEvaluationContext(object, clazz, method, args);
-        AnnotatedElementKey methodKey = new AnnotatedElementKey(method, clazz);
-        return evaluator.condition(condition, methodKey, evaluationContext, String.class);
+    private KeyResolver keyResolver(Class<?> targetClass, Method method, DistributeLocked annotation) {
+        String key = annotation.key();
+        if (StringUtils.hasLength(key)) {
+            MethodExpression expression = evaluator.compile(key, AopUtils.getMostSpecificMethod(method, targetClass));
+            return invocation -> expression.getStringValue(invocation.getThis(), invocation.getArguments());
+        }
+        if (StringUtils.hasLength(annotation.keyGenerator())) {
+            String beanName = annotation.keyGenerator();
+            return new GeneratorKeyResolver(() -> {
+                if (applicationContext == null) {
+                    throw new IllegalStateException("keyGenerator '" + beanName + "' requires an ApplicationContext, method: " + method);
+                }
+                return applicationContext.getBean(beanName, LockKeyGenerator.class);
+            });
+        }
+        if (annotation.keyGeneratorClass() != LockKeyGenerator.class) {
+            // 没有Spring容器时（见 StandaloneProxyFactory）直接创建实例
+            Class<? extends LockKeyGenerator> generatorClass = annotation.keyGeneratorClass();
+            return new GeneratorKeyResolver(() -> applicationContext == null ? BeanUtils.instantiateClass(generatorClass)
+                    : applicationContext.getBean(generatorClass));
+        }
+        return invocation -> key;
     }
 
-    static class ExpressionEvaluator<T> extends CachedExpressionEvaluator {
-        // shared param discoverer since it caches data internally
-        private final ParameterNameDiscoverer paramNameDiscoverer = new DefaultParameterNameDiscoverer();
-
-        private final Map<ExpressionKey, Expression> conditionCache = new ConcurrentHashMap<>(64);
-
-        private final Map<AnnotatedElementKey, Method> targetMethodCache = new ConcurrentHashMap<>(64);
+    /**
+     * 方法的执行计划
+     */
+    public static final class LockPlan {
+        private final KeyResolver keyResolver;
 
         /**
-         * Create the suitable {@link EvaluationContext} for the specified event handling
-         * on the specified method.
+         * 锁自动释放时长，单位毫秒
          */
-        public EvaluationContext createEvaluationContext(Object object, Class<?> targetClass, Method method, Object[] args) {
-
-            Method targetMethod = getTargetMethod(targetClass, method);
-            ExpressionRootObject root = new ExpressionRootObject(object, args);
-            return new MethodBasedEvaluationContext(root, targetMethod, args, this.paramNameDiscoverer);
-        }
+        private final int expireTime;
 
         /**
-         * Specify if the condition defined by the specified expression matches.
+         * 获取锁超时时长，单位毫秒
          */
-        public T condition(String conditionExpression, AnnotatedElementKey elementKey, EvaluationContext evalContext, Class<T> clazz) {
-            return getExpression(this.conditionCache, elementKey, conditionExpression).getValue(evalContext, clazz);
-        }
+        private final int timeout;
 
-        private Method getTargetMethod(Class<?> targetClass, Method method) {
-            AnnotatedElementKey methodKey = new AnnotatedElementKey(method, targetClass);
-            Method targetMethod = this.targetMethodCache.get(methodKey);
-            if (targetMethod == null) {
-                targetMethod = AopUtils.getMostSpecificMethod(method, targetClass);
-                if (targetMethod == null) {
-                    targetMethod = method;
-                }
-                this.targetMethodCache.put(methodKey, targetMethod);
-            }
-            return targetMethod;
+        private final LockMode mode;
+
+        LockPlan(KeyResolver keyResolver, int expireTime, int timeout, LockMode mode) {
+            this.keyResolver = keyResolver;
+            this.expireTime = expireTime;
+            this.timeout = timeout;
+            this.mode = mode;
         }
     }
 
-    public static class ExpressionRootObject {
-        private final Object object;
+    @FunctionalInterface
+    interface KeyResolver {
+        String resolve(ReflectiveMethodInvocation invocation);
+    }
 
-        private final Object[] args;
+    /**
+     * 方法匹配时bean可能还没有创建完成，因此在第一次调用时查找 {@link LockKeyGenerator}，之后直接使用
+     */
+    private static final class GeneratorKeyResolver implements KeyResolver {
+        private final Supplier<LockKeyGenerator> lookup;
 
-        public ExpressionRootObject(Object object, Object[] args) {
-            this.object = object;
-            this.args = args;
-        }
+        private volatile LockKeyGenerator generator;
 
-        public Object getObject() {
-            return object;
+        GeneratorKeyResolver(Supplier<LockKeyGenerator> lookup) {
+            this.lookup = lookup;
         }
 
-        public Object[] getArgs() {
-            return args;
+        @Override
+        public String resolve(ReflectiveMethodInvocation invocation) {
+            LockKeyGenerator generator = this.generator;
+            if (generator == null) {
+                this.generator = generator = lookup.get();
+            }
+            return generator.generate(invocation.getThis(), invocation.getMethod(), invocation.getArguments());
         }
     }
 }
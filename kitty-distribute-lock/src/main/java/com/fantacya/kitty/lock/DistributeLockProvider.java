@@ -1,5 +1,7 @@
 package com.fantacya.kitty.lock;
 
+import java.util.Collection;
+
 /**
  * @description:
  * @author: harri2012
@@ -8,4 +10,32 @@ package com.fantacya.kitty.lock;
 public interface DistributeLockProvider {
 
     DistributeLock createLock(String key);
+
+    /**
+     * 创建同时锁定多个key的锁，全部key都获取成功才算获取成功，释放时释放全部key。
+     * key去重后按字典序获取，避免多个请求以不同顺序获取而互相等待。
+     * 默认依次获取每个key的锁（见 {@link OrderedMultiLock}），支持的实现一次远程调用原子地获取全部key
+     * @param keys 锁的key，不能为空
+     * @return 多key锁，{@link DistributeLock#key()} 是以逗号连接的排序后的key
+     */
+    default DistributeLock createMultiLock(Collection<String> keys) {
+        return new OrderedMultiLock(this, keys);
+    }
+
+    /**
+     * @return 是否支持 {@link #createReadWriteLock}
+     */
+    default boolean supportsReadWriteLock() {
+        return false;
+    }
+
+    /**
+     * 创建读写锁
+     * @param key 锁的key
+     * @return 读写锁
+     * @throws UnsupportedOperationException 不支持读写锁，见 {@link #supportsReadWriteLock()}
+     */
+    default DistributeReadWriteLock createReadWriteLock(String key) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support read-write locks");
+    }
 }
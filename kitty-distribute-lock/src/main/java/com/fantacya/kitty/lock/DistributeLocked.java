@@ -1,6 +1,5 @@
 package com.fantacya.kitty.lock;
 
-import javax.crypto.KeyGenerator;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -48,6 +47,13 @@ public @interface DistributeLocked {
      */
     int timeout() default 500;
 
+    /**
+     * 锁模式，默认互斥。{@link LockMode#READ} 和 {@link LockMode#WRITE} 使用
+     * {@link DistributeLockProvider#createReadWriteLock} 创建的读写锁，同一个key的读锁可以同时持有
+     * @return
+     */
+    LockMode mode() default LockMode.EXCLUSIVE;
+
     /**
      * The bean name of the custom {@link LockKeyGenerator}
      * to use.
@@ -56,5 +62,9 @@ public @interface DistributeLocked {
      */
     String keyGenerator() default "";
 
-    Class<? extends KeyGenerator> keyGeneratorClass() default KeyGenerator.class;
+    /**
+     * The type of the custom {@link LockKeyGenerator} bean to use.
+     * <p>Mutually exclusive with the {@link #key} and {@link #keyGenerator} attributes.
+     */
+    Class<? extends LockKeyGenerator> keyGeneratorClass() default LockKeyGenerator.class;
 }
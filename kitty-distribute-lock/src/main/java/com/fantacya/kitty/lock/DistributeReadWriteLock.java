@@ -0,0 +1,24 @@
+package com.fantacya.kitty.lock;
+
+/**
+ * @description: 分布式读写锁。同一个key的读锁可以被多个持有者同时持有，写锁与读锁、其他写锁互斥。
+ * 每次获取都使用新创建的锁对象
+ */
+public interface DistributeReadWriteLock {
+
+    /**
+     * 获取锁的key
+     * @return
+     */
+    String key();
+
+    /**
+     * @return 新的读锁
+     */
+    DistributeLock readLock();
+
+    /**
+     * @return 新的写锁
+     */
+    DistributeLock writeLock();
+}
@@ -0,0 +1,276 @@
+package com.fantacya.kitty.lock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @description: 在分布式锁前加一层进程内的锁。同一个key的竞争者先在本进程内排队，只有获得本地锁的线程访问Redis、ZooKeeper或etcd，
+ * 其他线程在本地等待，不再各自轮询或排队；热点key在多线程的进程中只有一个远程获取在进行。
+ * <p>
+ * 锁可以被持有它的线程重入：同一个线程再次获取同一个key（无论是否是同一个 {@link DistributeLock} 对象）时直接成功，
+ * 不访问远程；最后一次释放时才释放远程锁。重入时沿用第一次获取时的自动失效时长。
+ * 获取和释放必须在同一个线程中进行。
+ * <p>
+ * 多key锁按key的顺序获取本地锁，本线程还没有持有的key通过一次 {@link DistributeLockProvider#createMultiLock} 获取远程锁，
+ * 这些key共用这个远程锁，因此嵌套获取时需要按获取的相反顺序释放
+ */
+public class LocalReentrantLockProvider implements DistributeLockProvider {
+
+    private final DistributeLockProvider delegate;
+
+    private final ConcurrentHashMap<String, KeyState> states = new ConcurrentHashMap<>(64);
+
+    /**
+     * @param delegate 创建远程锁
+     */
+    public LocalReentrantLockProvider(DistributeLockProvider delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public DistributeLock createLock(String key) {
+        return new LocalLock(key);
+    }
+
+    @Override
+    public DistributeLock createMultiLock(Collection<String> keys) {
+        return new LocalMultiLock(OrderedMultiLock.sortedKeys(keys));
+    }
+
+    @Override
+    public boolean supportsReadWriteLock() {
+        return delegate.supportsReadWriteLock();
+    }
+
+    /**
+     * 读写锁不经过本地的锁，直接使用远程的读写锁
+     */
+    @Override
+    public DistributeReadWriteLock createReadWriteLock(String key) {
+        return delegate.createReadWriteLock(key);
+    }
+
+    /**
+     * @return 正在获取或者被持有的key的数量
+     */
+    public int getActiveKeyCount() {
+        return states.size();
+    }
+
+    private KeyState register(String key) {
+        return states.compute(key, (k, state) -> {
+            if (state == null) {
+                state = new KeyState();
+            }
+            state.users++;
+            return state;
+        });
+    }
+
+    private void unregister(String key) {
+        states.computeIfPresent(key, (k, state) -> --state.users == 0 ? null : state);
+    }
+
+    /**
+     * 一个key在本进程内的状态
+     */
+    private static final class KeyState {
+        private final ReentrantLock local = new ReentrantLock();
+
+        /**
+         * 正在获取或持有锁的 {@link LocalLock} 数量，只在 {@link ConcurrentHashMap#compute} 中修改
+         */
+        private int users;
+
+        /**
+         * 持有的远程锁，多key锁的key共用一个远程锁，只由持有本地锁的线程访问
+         */
+        private DistributeLock remote;
+    }
+
+    private final class LocalLock implements DistributeLock {
+        private final String key;
+
+        private KeyState state;
+
+        LocalLock(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String key() {
+            return key;
+        }
+
+        @Override
+        public boolean lock(int expireTime, int timeout, int retryInterval) {
+            if (state != null) {
+                throw new IllegalStateException("lock " + key + " is already acquired by this object");
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            KeyState state = register(key);
+            boolean locked = false;
+            try {
+                if (state.local.isHeldByCurrentThread()) {
+                    state.local.lock();
+                    locked = true;
+                    return true;
+                }
+                if (!state.local.tryLock(timeout, TimeUnit.MILLISECONDS)) {
+                    return false;
+                }
+                try {
+                    int remaining = (int) TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    DistributeLock remote = delegate.createLock(key);
+                    if (remaining > 0 && remote.lock(expireTime, remaining, retryInterval)) {
+                        state.remote = remote;
+                        locked = true;
+                        return true;
+                    }
+                    return false;
+                } finally {
+                    if (!locked) {
+                        state.local.unlock();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LockException(e);
+            } finally {
+                if (locked) {
+                    this.state = state;
+                } else {
+                    unregister(key);
+                }
+            }
+        }
+
+        @Override
+        public void release() {
+            KeyState state = this.state;
+            if (state == null) {
+                throw new IllegalStateException("you haven't got lock " + key);
+            }
+            if (!state.local.isHeldByCurrentThread()) {
+                throw new IllegalStateException("lock " + key + " is held by another thread");
+            }
+            this.state = null;
+            try {
+                if (state.local.getHoldCount() == 1) {
+                    DistributeLock remote = state.remote;
+                    state.remote = null;
+                    remote.release();
+                }
+            } finally {
+                state.local.unlock();
+                unregister(key);
+            }
+        }
+    }
+
+    private final class LocalMultiLock implements DistributeLock {
+        private final List<String> keys;
+
+        private List<KeyState> states;
+
+        LocalMultiLock(List<String> keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public String key() {
+            return OrderedMultiLock.joinKeys(keys);
+        }
+
+        @Override
+        public boolean lock(int expireTime, int timeout, int retryInterval) {
+            if (states != null) {
+                throw new IllegalStateException("lock " + key() + " is already acquired by this object");
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            List<KeyState> registered = new ArrayList<>(keys.size());
+            int localLocked = 0;
+            boolean locked = false;
+            try {
+                List<String> remoteKeys = new ArrayList<>(keys.size());
+                List<KeyState> remoteStates = new ArrayList<>(keys.size());
+                for (String key : keys) {
+                    KeyState state = register(key);
+                    registered.add(state);
+                    if (state.local.isHeldByCurrentThread()) {
+                        state.local.lock();
+                    } else if (state.local.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                        remoteKeys.add(key);
+                        remoteStates.add(state);
+                    } else {
+                        return false;
+                    }
+                    localLocked++;
+                }
+                if (!remoteKeys.isEmpty()) {
+                    int remaining = (int) TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    DistributeLock remote = delegate.createMultiLock(remoteKeys);
+                    if (remaining <= 0 || !remote.lock(expireTime, remaining, retryInterval)) {
+                        return false;
+                    }
+                    for (KeyState state : remoteStates) {
+                        state.remote = remote;
+                    }
+                }
+                states = registered;
+                locked = true;
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LockException(e);
+            } finally {
+                if (!locked) {
+                    for (int i = localLocked - 1; i >= 0; i--) {
+                        registered.get(i).local.unlock();
+                    }
+                    for (String key : keys.subList(0, registered.size())) {
+                        unregister(key);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void release() {
+            List<KeyState> states = this.states;
+            if (states == null) {
+                throw new IllegalStateException("you haven't got lock " + key());
+            }
+            for (KeyState state : states) {
+                if (!state.local.isHeldByCurrentThread()) {
+                    throw new IllegalStateException("lock " + key() + " is held by another thread");
+                }
+            }
+            this.states = null;
+            try {
+                Set<DistributeLock> remotes = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (KeyState state : states) {
+                    if (state.local.getHoldCount() == 1) {
+                        remotes.add(state.remote);
+                        state.remote = null;
+                    }
+                }
+                for (DistributeLock remote : remotes) {
+                    remote.release();
+                }
+            } finally {
+                for (int i = states.size() - 1; i >= 0; i--) {
+                    states.get(i).local.unlock();
+                    unregister(keys.get(i));
+                }
+            }
+        }
+    }
+}
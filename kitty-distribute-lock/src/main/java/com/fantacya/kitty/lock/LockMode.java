@@ -0,0 +1,21 @@
+package com.fantacya.kitty.lock;
+
+/**
+ * @description: {@link DistributeLocked} 的锁模式
+ */
+public enum LockMode {
+    /**
+     * 互斥锁，{@link DistributeLockProvider#createLock}
+     */
+    EXCLUSIVE,
+
+    /**
+     * 读锁，多个读锁可以同时持有，与写锁互斥，{@link DistributeReadWriteLock#readLock()}
+     */
+    READ,
+
+    /**
+     * 写锁，与读锁和其他写锁互斥，{@link DistributeReadWriteLock#writeLock()}
+     */
+    WRITE
+}
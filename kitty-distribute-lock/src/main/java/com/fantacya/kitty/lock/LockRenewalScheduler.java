@@ -0,0 +1,185 @@
+package com.fantacya.kitty.lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description: 锁的自动续期。持有锁期间，每经过自动失效时长的1/3就把锁的有效期延长为自动失效时长，释放锁时停止续期；
+ * 持有者进程崩溃后锁在自动失效时长后释放，因此可以使用较短的自动失效时长，不必按临界区最长耗时设置。
+ * <p>
+ * 所有锁由一个线程续期，同一个 {@link LeaseRenewer} 的锁一次批量续期（例如Redis的一次脚本调用）。
+ * 一批续期时，同一个 {@link LeaseRenewer} 中已经过了续期间隔一半的锁也提前续期，使先后获取的锁合并到同一批中。
+ * 续期失败（锁已经过期或被其他人持有）时停止续期并记录日志。
+ * 自动失效时长应明显大于检查间隔。一个进程中的锁共用一个实例
+ */
+public class LockRenewalScheduler implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LockRenewalScheduler.class);
+
+    public static final int DEFAULT_CHECK_INTERVAL = 100;
+
+    private final Set<Lease<?>> leases = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService executor;
+
+    public LockRenewalScheduler() {
+        this(DEFAULT_CHECK_INTERVAL);
+    }
+
+    /**
+     * @param checkInterval 检查需要续期的锁的间隔，单位：毫秒
+     */
+    public LockRenewalScheduler(int checkInterval) {
+        Assert.isTrue(checkInterval > 0, "checkInterval must be positive");
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "kitty-lock-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::renewDue, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 开始为锁续期，获取锁成功后调用
+     * @param renewer 续期方式，相等的续期方式的锁批量续期
+     * @param lock 续期需要的锁的信息，需要是不可变的
+     * @param expireTime 自动失效时长，单位：毫秒
+     * @return 续期的租约，释放锁之前调用 {@link Lease#cancel()}
+     */
+    public <L> Lease<L> register(LeaseRenewer<L> renewer, L lock, int expireTime) {
+        Assert.isTrue(expireTime > 0, "expireTime must be positive");
+        Lease<L> lease = new Lease<>(this, renewer, lock, expireTime);
+        leases.add(lease);
+        return lease;
+    }
+
+    /**
+     * @return 正在续期的锁的数量
+     */
+    public int getLeaseCount() {
+        return leases.size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        leases.clear();
+    }
+
+    void renewDue() {
+        long now = System.nanoTime();
+        Map<LeaseRenewer<?>, List<Lease<?>>> candidates = new LinkedHashMap<>();
+        Set<LeaseRenewer<?>> due = new HashSet<>();
+        for (Lease<?> lease : leases) {
+            // 过了续期间隔一半的锁随同一批提前续期，否则相差一次检查的锁会一直分别续期
+            if (lease.nextRenewal - now < lease.renewInterval / 2) {
+                candidates.computeIfAbsent(lease.renewer, r -> new ArrayList<>()).add(lease);
+                if (now - lease.nextRenewal >= 0) {
+                    due.add(lease.renewer);
+                }
+            }
+        }
+        for (Map.Entry<LeaseRenewer<?>, List<Lease<?>>> entry : candidates.entrySet()) {
+            if (due.contains(entry.getKey())) {
+                renew(entry.getKey(), entry.getValue(), now);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <L> void renew(LeaseRenewer<L> renewer, List<Lease<?>> batch, long now) {
+        List<L> locks = new ArrayList<>(batch.size());
+        for (Lease<?> lease : batch) {
+            locks.add((L) lease.lock);
+        }
+        Set<L> lost;
+        try {
+            lost = Collections.newSetFromMap(new IdentityHashMap<>());
+            lost.addAll(renewer.renew(locks));
+        } catch (Exception e) {
+            // 暂时的错误，下次检查时重试
+            LOG.warn("failed to renew {} lock(s)", locks.size(), e);
+            return;
+        }
+        for (Lease<?> lease : batch) {
+            if (lost.contains(lease.lock)) {
+                if (leases.remove(lease)) {
+                    lease.lost = true;
+                    LOG.warn("lock is lost before release, stop renewing: {}", lease.lock);
+                }
+            } else {
+                lease.nextRenewal = now + lease.renewInterval;
+            }
+        }
+    }
+
+    /**
+     * 批量续期锁
+     * @param <L> 续期需要的锁的信息
+     */
+    @FunctionalInterface
+    public interface LeaseRenewer<L> {
+        /**
+         * 把一批锁的有效期延长为各自的自动失效时长
+         * @param locks 需要续期的锁
+         * @return 已经不再持有、无法续期的锁
+         * @throws Exception 续期失败，下次检查时重试
+         */
+        List<L> renew(List<L> locks) throws Exception;
+    }
+
+    /**
+     * 一个锁的续期
+     */
+    public static final class Lease<L> {
+        private final LockRenewalScheduler scheduler;
+        private final LeaseRenewer<L> renewer;
+        private final L lock;
+        private final long renewInterval;
+
+        private volatile long nextRenewal;
+
+        private volatile boolean lost;
+
+        Lease(LockRenewalScheduler scheduler, LeaseRenewer<L> renewer, L lock, int expireTime) {
+            this.scheduler = scheduler;
+            this.renewer = renewer;
+            this.lock = lock;
+            this.renewInterval = TimeUnit.MILLISECONDS.toNanos(expireTime) / 3;
+            this.nextRenewal = System.nanoTime() + renewInterval;
+        }
+
+        /**
+         * 停止续期
+         */
+        public void cancel() {
+            scheduler.leases.remove(this);
+        }
+
+        /**
+         * @return 续期时发现锁已经不再持有
+         */
+        public boolean isLost() {
+            return lost;
+        }
+
+        public L getLock() {
+            return lock;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.fantacya.kitty.lock;
+
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description: 按key的顺序依次获取每个key的锁，全部获取成功才算成功，任何一个失败时释放已经获取的锁。
+ * 所有多key锁都按相同的顺序获取，两个请求不会各自持有对方需要的锁而互相等待。
+ * 是 {@link DistributeLockProvider#createMultiLock} 的默认实现，每个key一次远程获取
+ */
+public class OrderedMultiLock implements DistributeLock {
+
+    private final DistributeLockProvider provider;
+
+    private final List<String> keys;
+
+    private List<DistributeLock> locks;
+
+    public OrderedMultiLock(DistributeLockProvider provider, Collection<String> keys) {
+        this.provider = provider;
+        this.keys = sortedKeys(keys);
+    }
+
+    /**
+     * 去重并排序，多key锁按这个顺序获取
+     * @param keys 锁的key
+     * @return 排序后的key
+     */
+    public static List<String> sortedKeys(Collection<String> keys) {
+        Assert.notEmpty(keys, "keys must not be empty");
+        Assert.noNullElements(keys.toArray(), "keys must not contain null");
+        return Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(keys)));
+    }
+
+    /**
+     * @param keys 排序后的key
+     * @return 多key锁的key，用于日志
+     */
+    public static String joinKeys(List<String> keys) {
+        return keys.size() == 1 ? keys.get(0) : String.join(",", keys);
+    }
+
+    @Override
+    public String key() {
+        return joinKeys(keys);
+    }
+
+    /**
+     * @return 排序后的key
+     */
+    public List<String> keys() {
+        return keys;
+    }
+
+    @Override
+    public boolean lock(int expireTime, int timeout, int retryInterval) {
+        if (locks != null) {
+            throw new IllegalStateException("lock " + key() + " is already acquired by this object");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        List<DistributeLock> acquired = new ArrayList<>(keys.size());
+        boolean locked = false;
+        try {
+            for (String key : keys) {
+                int remaining = (int) TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                DistributeLock lock = provider.createLock(key);
+                if (remaining <= 0 || !lock.lock(expireTime, remaining, retryInterval)) {
+                    return false;
+                }
+                acquired.add(lock);
+            }
+            locks = acquired;
+            locked = true;
+            return true;
+        } finally {
+            if (!locked) {
+                releaseAll(acquired);
+            }
+        }
+    }
+
+    @Override
+    public void release() {
+        List<DistributeLock> locks = this.locks;
+        if (locks == null) {
+            throw new IllegalStateException("you haven't got lock " + key());
+        }
+        this.locks = null;
+        releaseAll(locks);
+    }
+
+    /**
+     * 按获取的相反顺序释放，一个释放失败不影响其他的释放
+     */
+    private static void releaseAll(List<DistributeLock> locks) {
+        RuntimeException failure = null;
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            try {
+                locks.get(i).release();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
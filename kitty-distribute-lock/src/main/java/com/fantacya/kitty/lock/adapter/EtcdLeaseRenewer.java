@@ -0,0 +1,77 @@
+package com.fantacya.kitty.lock.adapter;
+
+import com.fantacya.kitty.lock.LockRenewalScheduler;
+import io.etcd.jetcd.Client;
+import io.etcd.jetcd.lease.LeaseKeepAliveResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * @description: 为 {@link EtcdLock} 续期。一批锁的租约同时发送 keep-alive，全部返回后再处理结果；
+ * 租约已经过期的锁不再续期，请求失败时下次检查重试
+ */
+class EtcdLeaseRenewer implements LockRenewalScheduler.LeaseRenewer<EtcdLeaseRenewer.Held> {
+
+    private final Client client;
+
+    EtcdLeaseRenewer(Client client) {
+        this.client = client;
+    }
+
+    @Override
+    public List<Held> renew(List<Held> locks) throws InterruptedException, ExecutionException {
+        List<CompletableFuture<LeaseKeepAliveResponse>> futures = new ArrayList<>(locks.size());
+        for (Held held : locks) {
+            futures.add(client.getLeaseClient().keepAliveOnce(held.leaseId));
+        }
+        List<Held> lost = new ArrayList<>();
+        ExecutionException failure = null;
+        for (int i = 0; i < locks.size(); i++) {
+            try {
+                if (futures.get(i).get().getTTL() <= 0) {
+                    lost.add(locks.get(i));
+                }
+            } catch (ExecutionException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return lost;
+    }
+
+    /**
+     * 同一个etcd客户端的锁批量续期
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof EtcdLeaseRenewer && ((EtcdLeaseRenewer) o).client == client;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(client);
+    }
+
+    /**
+     * 持有的锁
+     */
+    static final class Held {
+        private final String key;
+        private final long leaseId;
+
+        Held(String key, long leaseId) {
+            this.key = key;
+            this.leaseId = leaseId;
+        }
+
+        @Override
+        public String toString() {
+            return "EtcdLock{key=" + key + ", lease=" + Long.toHexString(leaseId) + "}";
+        }
+    }
+}
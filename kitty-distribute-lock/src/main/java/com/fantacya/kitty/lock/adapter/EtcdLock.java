@@ -1,11 +1,13 @@
 package com.fantacya.kitty.lock.adapter;
 
 import com.fantacya.kitty.lock.DistributeLock;
+import com.fantacya.kitty.lock.LockRenewalScheduler;
 import io.etcd.jetcd.ByteSequence;
 import io.etcd.jetcd.Client;
 import io.etcd.jetcd.lock.LockResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
 
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ExecutionException;
@@ -13,7 +15,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 /**
- * @description:
+ * @description: 基于etcd的锁，锁的有效期是租约的有效期。设置了 {@link LockRenewalScheduler} 时，持有锁期间自动续约，释放时停止
  * @author: harri2012
  * @created: 2019-08-04 01:23
  */
@@ -24,11 +26,25 @@ public class EtcdLock implements DistributeLock {
 
     private final String lockKey;
 
+    private final LockRenewalScheduler renewalScheduler;
+
     private LockResponse response;
 
+    private LockRenewalScheduler.Lease<EtcdLeaseRenewer.Held> lease;
+
     public EtcdLock(Client client, String lockKey) {
+        this(client, lockKey, null);
+    }
+
+    /**
+     * @param client etcd
+     * @param lockKey 锁的key
+     * @param renewalScheduler 自动续约，为null时不续约
+     */
+    public EtcdLock(Client client, String lockKey, @Nullable LockRenewalScheduler renewalScheduler) {
         this.client = client;
         this.lockKey = lockKey;
+        this.renewalScheduler = renewalScheduler;
     }
 
     @Override
@@ -39,12 +55,20 @@ public class EtcdLock implements DistributeLock {
     @Override
     public boolean lock(int expireTime, int timeout, int retryInterval) {
         int seconds = (int) Math.ceil(expireTime / 1000.0);
+        long leaseId = 0;
         try {
-            long leaseId = client.getLeaseClient().grant(seconds).get().getID();
+            leaseId = client.getLeaseClient().grant(seconds).get().getID();
             this.response = client.getLockClient().lock(ByteSequence.from(lockKey, StandardCharsets.UTF_8), leaseId).get(timeout, TimeUnit.MILLISECONDS);
+            if (renewalScheduler != null) {
+                this.lease = renewalScheduler.register(new EtcdLeaseRenewer(client), new EtcdLeaseRenewer.Held(lockKey, leaseId), expireTime);
+            }
             return true;
         } catch (InterruptedException | TimeoutException | ExecutionException e) {
             LOG.warn("acquire lock failed, lock key: {}", lockKey, e);
+            if (leaseId != 0) {
+                // 超时后请求仍在etcd中排队，撤销租约删除它，否则锁轮到它时会一直被占用到租约过期
+                client.getLeaseClient().revoke(leaseId);
+            }
             return false;
         }
     }
@@ -54,9 +78,14 @@ public class EtcdLock implements DistributeLock {
         if (response == null) {
             throw new IllegalStateException("you haven't got lock " + lockKey);
         }
+        if (lease != null) {
+            lease.cancel();
+            lease = null;
+        }
 
         try {
-            client.getLockClient().unlock(ByteSequence.from(lockKey, StandardCharsets.UTF_8)).get();
+            // 解锁需要使用获取锁时返回的key，而不是锁的名字
+            client.getLockClient().unlock(response.getKey()).get();
         } catch (InterruptedException | ExecutionException e) {
             LOG.warn("failed to release lock, lockKey = {}", lockKey, e);
         }
@@ -0,0 +1,42 @@
+package com.fantacya.kitty.lock.adapter;
+
+import com.fantacya.kitty.lock.DistributeLock;
+import com.fantacya.kitty.lock.DistributeLockProvider;
+import com.fantacya.kitty.lock.LockRenewalScheduler;
+import io.etcd.jetcd.Client;
+import org.springframework.lang.Nullable;
+
+import java.util.Collection;
+
+/**
+ * @description: 创建 {@link EtcdLock}，多key锁是 {@link EtcdMultiLock}
+ */
+public class EtcdLockProvider implements DistributeLockProvider {
+
+    private final Client client;
+
+    private final LockRenewalScheduler renewalScheduler;
+
+    public EtcdLockProvider(Client client) {
+        this(client, null);
+    }
+
+    /**
+     * @param client etcd
+     * @param renewalScheduler 自动续约，为null时不续约
+     */
+    public EtcdLockProvider(Client client, @Nullable LockRenewalScheduler renewalScheduler) {
+        this.client = client;
+        this.renewalScheduler = renewalScheduler;
+    }
+
+    @Override
+    public DistributeLock createLock(String key) {
+        return new EtcdLock(client, key, renewalScheduler);
+    }
+
+    @Override
+    public DistributeLock createMultiLock(Collection<String> keys) {
+        return new EtcdMultiLock(client, keys, renewalScheduler);
+    }
+}
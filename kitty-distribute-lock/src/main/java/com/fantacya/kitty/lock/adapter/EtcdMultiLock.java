@@ -0,0 +1,93 @@
+package com.fantacya.kitty.lock.adapter;
+
+import com.fantacya.kitty.lock.DistributeLock;
+import com.fantacya.kitty.lock.LockRenewalScheduler;
+import com.fantacya.kitty.lock.OrderedMultiLock;
+import io.etcd.jetcd.ByteSequence;
+import io.etcd.jetcd.Client;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @description: 同时锁定多个key的etcd锁。全部key共用一个租约，按key的顺序依次获取；
+ * 释放时撤销租约，一次请求删除全部key，获取失败时同样撤销租约，删除已经获取和仍在排队的key。
+ * 使用与 {@link EtcdLock} 相同的etcd锁，两者互斥
+ */
+public class EtcdMultiLock implements DistributeLock {
+    private static final Logger LOG = LoggerFactory.getLogger(EtcdMultiLock.class);
+
+    private final Client client;
+
+    private final List<String> keys;
+
+    private final LockRenewalScheduler renewalScheduler;
+
+    private long leaseId;
+
+    private LockRenewalScheduler.Lease<EtcdLeaseRenewer.Held> lease;
+
+    EtcdMultiLock(Client client, Collection<String> keys, LockRenewalScheduler renewalScheduler) {
+        this.client = client;
+        this.keys = OrderedMultiLock.sortedKeys(keys);
+        this.renewalScheduler = renewalScheduler;
+    }
+
+    @Override
+    public String key() {
+        return OrderedMultiLock.joinKeys(keys);
+    }
+
+    @Override
+    public boolean lock(int expireTime, int timeout, int retryInterval) {
+        if (leaseId != 0) {
+            throw new IllegalStateException("lock " + key() + " is already acquired by this object");
+        }
+        int seconds = (int) Math.ceil(expireTime / 1000.0);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        long leaseId = 0;
+        try {
+            leaseId = client.getLeaseClient().grant(seconds).get().getID();
+            for (String key : keys) {
+                long remaining = deadline - System.nanoTime();
+                client.getLockClient().lock(ByteSequence.from(key, StandardCharsets.UTF_8), leaseId)
+                        .get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+            }
+            this.leaseId = leaseId;
+            if (renewalScheduler != null) {
+                this.lease = renewalScheduler.register(new EtcdLeaseRenewer(client), new EtcdLeaseRenewer.Held(key(), leaseId), expireTime);
+            }
+            return true;
+        } catch (InterruptedException | TimeoutException | ExecutionException e) {
+            LOG.warn("acquire lock failed, lock keys: {}", keys, e);
+            if (leaseId != 0) {
+                client.getLeaseClient().revoke(leaseId);
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public void release() {
+        if (leaseId == 0) {
+            throw new IllegalStateException("you haven't got lock " + key());
+        }
+        if (lease != null) {
+            lease.cancel();
+            lease = null;
+        }
+
+        try {
+            client.getLeaseClient().revoke(leaseId).get();
+        } catch (InterruptedException | ExecutionException e) {
+            LOG.warn("failed to release lock, lock keys: {}", keys, e);
+        }
+        leaseId = 0;
+    }
+}
@@ -2,40 +2,133 @@ package com.fantacya.kitty.lock.adapter;
 
 import com.fantacya.kitty.lock.DistributeLock;
 import com.fantacya.kitty.lock.LockException;
+import com.fantacya.kitty.lock.LockRenewalScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 
-import java.text.SimpleDateFormat;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.Collections;
-import java.util.Date;
+import java.util.List;
 import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
- * @description:
+ * @description: 基于Redis的锁。默认以 {@code retryInterval} 为间隔轮询 {@code SET NX}；
+ * 设置了 {@link RedisLockNotifier} 时，释放锁时发布通知，等待的线程收到通知后立即重试，
+ * 没有通知时最多等待锁的剩余有效期或兜底间隔，此时忽略 {@code retryInterval}。
+ * 设置了 {@link LockRenewalScheduler} 时，持有锁期间自动续期，释放时停止续期
  * @author: harri2012
  * @created: 2019-07-07 23:33
  */
 public class RedisLock implements DistributeLock {
     private static final Logger LOG = LoggerFactory.getLogger(RedisLock.class);
-    private static final SimpleDateFormat SIMPLE_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final DateTimeFormatter STAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /**
+     * KEYS[1]: 锁的key
+     * ARGV[1]: 戳记
+     * ARGV[2]: 自动失效时长，毫秒
+     * 获取成功时返回0，否则返回锁的剩余有效期，毫秒，至少为1；锁没有有效期时返回-1
+     */
+    static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return 0 end\n"
+                    + "local ttl = redis.call('pttl', KEYS[1])\n"
+                    + "if ttl == 0 then return 1 end\n"
+                    + "return ttl",
+            Long.class);
+
+    /**
+     * 获取脚本获取成功时的返回值
+     */
+    static final long ACQUIRED = 0L;
+
+    static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('type', KEYS[1]).ok == 'string' and redis.call('get', KEYS[1]) == ARGV[1] then\n"
+                    + "  return redis.call('del', KEYS[1])\n"
+                    + "end\n"
+                    + "return 0",
+            Long.class);
+
+    /**
+     * KEYS[1]: 锁的key
+     * ARGV[1]: 戳记
+     * ARGV[2]: 释放通知的频道
+     */
+    static final RedisScript<Long> RELEASE_AND_PUBLISH_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('type', KEYS[1]).ok == 'string' and redis.call('get', KEYS[1]) == ARGV[1] then\n"
+                    + "  redis.call('del', KEYS[1])\n"
+                    + "  redis.call('publish', ARGV[2], KEYS[1])\n"
+                    + "  return 1\n"
+                    + "end\n"
+                    + "return 0",
+            Long.class);
+
+    static final Scripts EXCLUSIVE = new Scripts(ACQUIRE_SCRIPT, RELEASE_SCRIPT, RELEASE_AND_PUBLISH_SCRIPT);
 
     private final StringRedisTemplate redisTemplate;
 
     private final String key;
 
+    private final RedisLockNotifier notifier;
+
+    private final LockRenewalScheduler renewalScheduler;
+
+    private final RedisLockRenewer renewer;
+
+    private final Scripts scripts;
+
     private String stamp;
 
+    private LockRenewalScheduler.Lease<RedisLockRenewer.Held> lease;
+
     public RedisLock(@NonNull StringRedisTemplate redisTemplate, @NonNull String key) {
+        this(redisTemplate, key, null);
+    }
+
+    /**
+     * @param redisTemplate redis
+     * @param key 锁的key
+     * @param notifier 释放通知，为null时轮询
+     */
+    public RedisLock(@NonNull StringRedisTemplate redisTemplate, @NonNull String key, @Nullable RedisLockNotifier notifier) {
+        this(redisTemplate, key, notifier, null);
+    }
+
+    /**
+     * @param redisTemplate redis
+     * @param key 锁的key
+     * @param notifier 释放通知，为null时轮询
+     * @param renewalScheduler 自动续期，为null时不续期
+     */
+    public RedisLock(@NonNull StringRedisTemplate redisTemplate, @NonNull String key, @Nullable RedisLockNotifier notifier,
+                     @Nullable LockRenewalScheduler renewalScheduler) {
+        this(redisTemplate, key, notifier, renewalScheduler,
+                renewalScheduler == null ? null : new RedisLockRenewer(redisTemplate, RedisLockRenewer.DEFAULT_BATCH_SIZE),
+                EXCLUSIVE);
+    }
+
+    /**
+     * @param scripts 获取和释放的脚本，互斥锁为 {@link #EXCLUSIVE}，读写锁见 {@link RedisReadWriteLock}
+     */
+    RedisLock(StringRedisTemplate redisTemplate, String key, RedisLockNotifier notifier,
+              LockRenewalScheduler renewalScheduler, RedisLockRenewer renewer, Scripts scripts) {
         Assert.hasLength(key, "key must not be empty");
         this.redisTemplate = redisTemplate;
         this.key = key;
+        this.notifier = notifier;
+        this.renewalScheduler = renewalScheduler;
+        this.renewer = renewer;
+        this.scripts = scripts;
     }
 
     @Override
@@ -45,13 +138,39 @@ public class RedisLock implements DistributeLock {
 
     @Override
     public boolean lock(int expireTime, int timeout, int retryInterval) {
-        String stamp = "Locked@" + SIMPLE_DATE_FORMAT.format(new Date());
+        String stamp = newStamp();
+        boolean locked = notifier != null
+                ? lockNotified(stamp, expireTime, timeout)
+                : lockPolling(stamp, expireTime, timeout, retryInterval);
+        if (locked) {
+            this.stamp = stamp;
+            if (renewalScheduler != null) {
+                this.lease = renewalScheduler.register(renewer, new RedisLockRenewer.Held(key, stamp, expireTime), expireTime);
+            }
+        }
+        return locked;
+    }
+
+    /**
+     * 戳记区分锁的持有者，时间只用于排查问题
+     */
+    static String newStamp() {
+        return "Locked@" + STAMP_FORMATTER.format(LocalDateTime.now()) + "#" + UUID.randomUUID();
+    }
+
+    private boolean lockPolling(String stamp, int expireTime, int timeout, int retryInterval) {
         long now = System.currentTimeMillis();
         long deadline = now + timeout;
         while (now < deadline) {
-            Boolean result = redisTemplate.opsForValue().setIfAbsent(key, stamp, Duration.of(expireTime, ChronoUnit.MILLIS));
-            if (Objects.equals(result, Boolean.TRUE)) {
-                this.stamp = stamp;
+            if (scripts == EXCLUSIVE) {
+                Boolean result = redisTemplate.opsForValue().setIfAbsent(key, stamp, Duration.of(expireTime, ChronoUnit.MILLIS));
+                if (result == null) {
+                    throw noResult(key);
+                }
+                if (result) {
+                    return true;
+                }
+            } else if (tryAcquire(Collections.singletonList(key), stamp, String.valueOf(expireTime)) == ACQUIRED) {
                 return true;
             }
 
@@ -67,19 +186,85 @@ public class RedisLock implements DistributeLock {
         return false;
     }
 
+    /**
+     * 获取锁失败时等待释放通知，最多等待锁的剩余有效期和兜底间隔
+     */
+    private boolean lockNotified(String stamp, int expireTime, int timeout) {
+        List<String> keys = Collections.singletonList(key);
+        String expire = String.valueOf(expireTime);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        RedisLockNotifier.Waiters waiters = notifier.register(key);
+        try {
+            while (true) {
+                long version = waiters.version();
+                long ttl = tryAcquire(keys, stamp, expire);
+                if (ttl == ACQUIRED) {
+                    return true;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                long wait = Math.min(remaining, notifier.getFallbackNanos());
+                if (ttl > 0) {
+                    wait = Math.min(wait, TimeUnit.MILLISECONDS.toNanos(ttl));
+                }
+                waiters.await(version, wait);
+            }
+        } finally {
+            notifier.unregister(key);
+        }
+    }
+
+    /**
+     * @return 获取成功时返回 {@link #ACQUIRED}，否则返回锁的剩余有效期
+     */
+    private long tryAcquire(List<String> keys, String stamp, String expire) {
+        Long result = redisTemplate.execute(scripts.acquire, keys, stamp, expire);
+        if (result == null) {
+            throw noResult(key);
+        }
+        return result;
+    }
+
+    /**
+     * 在pipeline或事务中执行时没有结果，无法判断是否获取到锁
+     */
+    private static LockException noResult(String key) {
+        return new LockException("no reply while acquiring lock " + key + ", the script may have run in a pipeline or transaction");
+    }
+
     @Override
     public void release() {
         if (stamp == null) {
             throw new IllegalStateException("you haven't got lock " + key);
         }
+        if (lease != null) {
+            lease.cancel();
+            lease = null;
+        }
 
-        RedisScript<Integer> script = new DefaultRedisScript<>(
-                "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
-                Integer.class);
-        Integer result = redisTemplate.execute(script, Collections.singletonList(key), stamp);
-        if (!Objects.equals(result, 1)) {
+        Long result = notifier == null
+                ? redisTemplate.execute(scripts.release, Collections.singletonList(key), stamp)
+                : redisTemplate.execute(scripts.releaseAndPublish, Collections.singletonList(key), stamp, notifier.channel(key));
+        if (!Objects.equals(result, 1L)) {
             LOG.warn("lock is held by others, key={}", key);
         }
         stamp = null;
     }
+
+    /**
+     * 获取和释放锁的脚本，参数与 {@link #ACQUIRE_SCRIPT}、{@link #RELEASE_SCRIPT}、{@link #RELEASE_AND_PUBLISH_SCRIPT} 相同
+     */
+    static final class Scripts {
+        final RedisScript<Long> acquire;
+        final RedisScript<Long> release;
+        final RedisScript<Long> releaseAndPublish;
+
+        Scripts(RedisScript<Long> acquire, RedisScript<Long> release, RedisScript<Long> releaseAndPublish) {
+            this.acquire = acquire;
+            this.release = release;
+            this.releaseAndPublish = releaseAndPublish;
+        }
+    }
 }
@@ -0,0 +1,146 @@
+package com.fantacya.kitty.lock.adapter;
+
+import com.fantacya.kitty.lock.LockException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description: Redis锁的释放通知。{@link RedisLock} 释放锁时向 {@code 前缀 + key} 频道发布消息，
+ * 本类以一个模式订阅接收所有key的消息，唤醒本进程中等待该key的线程，等待的线程不再以固定间隔轮询Redis。
+ * 所有key共用 {@link RedisMessageListenerContainer} 的一个订阅连接。
+ * <p>
+ * 消息可能丢失（例如订阅连接断开、锁过期自动释放），因此等待时间不超过锁的剩余有效期和 {@link #setFallbackInterval 兜底间隔}，
+ * 之后再尝试获取锁
+ */
+public class RedisLockNotifier implements MessageListener {
+
+    public static final String DEFAULT_CHANNEL_PREFIX = "kitty:lock:";
+
+    public static final int DEFAULT_FALLBACK_INTERVAL = 200;
+
+    private final String channelPrefix;
+
+    private final ConcurrentHashMap<String, Waiters> waiters = new ConcurrentHashMap<>(64);
+
+    private volatile long fallbackNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_FALLBACK_INTERVAL);
+
+    public RedisLockNotifier(RedisMessageListenerContainer container) {
+        this(container, DEFAULT_CHANNEL_PREFIX);
+    }
+
+    /**
+     * @param container 订阅消息的容器，由调用方管理生命周期
+     * @param channelPrefix 频道前缀，频道为前缀加锁的key
+     */
+    public RedisLockNotifier(RedisMessageListenerContainer container, String channelPrefix) {
+        Assert.hasLength(channelPrefix, "channelPrefix must not be empty");
+        this.channelPrefix = channelPrefix;
+        container.addMessageListener(this, new PatternTopic(channelPrefix + "*"));
+    }
+
+    /**
+     * 设置兜底的轮询间隔，没有收到释放通知时最多等待的时长
+     * @param fallbackInterval 单位：毫秒
+     */
+    public void setFallbackInterval(int fallbackInterval) {
+        Assert.isTrue(fallbackInterval > 0, "fallbackInterval must be positive");
+        this.fallbackNanos = TimeUnit.MILLISECONDS.toNanos(fallbackInterval);
+    }
+
+    long getFallbackNanos() {
+        return fallbackNanos;
+    }
+
+    /**
+     * @return 锁的key对应的频道
+     */
+    String channel(String key) {
+        return channelPrefix + key;
+    }
+
+    String channelPrefix() {
+        return channelPrefix;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        if (channel.startsWith(channelPrefix)) {
+            Waiters w = waiters.get(channel.substring(channelPrefix.length()));
+            if (w != null) {
+                w.signal();
+            }
+        }
+    }
+
+    /**
+     * 开始等待key，之后发布的释放通知都会被记录。必须在尝试获取锁之前调用，并在结束时调用 {@link #unregister}
+     */
+    Waiters register(String key) {
+        return waiters.compute(key, (k, w) -> {
+            if (w == null) {
+                w = new Waiters();
+            }
+            w.count++;
+            return w;
+        });
+    }
+
+    void unregister(String key) {
+        waiters.computeIfPresent(key, (k, w) -> --w.count == 0 ? null : w);
+    }
+
+    /**
+     * @return 有线程在等待的key的数量
+     */
+    public int getWaitingKeyCount() {
+        return waiters.size();
+    }
+
+    /**
+     * 一个key的等待线程。以版本号记录收到的释放通知，尝试获取锁之前读取版本号，
+     * 等待时版本号已经变化说明期间锁被释放过，立即重试，不会错过通知
+     */
+    static final class Waiters {
+        /**
+         * 等待的线程数，只在 {@link ConcurrentHashMap#compute} 中修改
+         */
+        private int count;
+
+        private long version;
+
+        synchronized long version() {
+            return version;
+        }
+
+        synchronized void signal() {
+            version++;
+            notifyAll();
+        }
+
+        /**
+         * 等待版本号变化或者超时
+         * @param seen 尝试获取锁之前读取的版本号
+         * @param nanos 最多等待的时长
+         */
+        synchronized void await(long seen, long nanos) {
+            long deadline = System.nanoTime() + nanos;
+            try {
+                while (version == seen && nanos > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, nanos);
+                    nanos = deadline - System.nanoTime();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LockException(e);
+            }
+        }
+    }
+}
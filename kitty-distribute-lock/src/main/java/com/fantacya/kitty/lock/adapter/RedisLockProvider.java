@@ -0,0 +1,82 @@
+package com.fantacya.kitty.lock.adapter;
+
+import com.fantacya.kitty.lock.DistributeLock;
+import com.fantacya.kitty.lock.DistributeLockProvider;
+import com.fantacya.kitty.lock.DistributeReadWriteLock;
+import com.fantacya.kitty.lock.LockRenewalScheduler;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.Collection;
+
+/**
+ * @description: 创建 {@link RedisLock}。设置了 {@link RedisLockNotifier} 时，锁释放时通知等待的线程，不再轮询；
+ * 设置了 {@link LockRenewalScheduler} 时，持有的锁自动续期，同一个redis的锁批量续期。
+ * 多key锁是 {@link RedisMultiLock}，一次脚本调用获取全部key；读写锁是 {@link RedisReadWriteLock}
+ */
+public class RedisLockProvider implements DistributeLockProvider {
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisLockNotifier notifier;
+
+    private final LockRenewalScheduler renewalScheduler;
+
+    private RedisLockRenewer renewer;
+
+    public RedisLockProvider(@NonNull StringRedisTemplate redisTemplate) {
+        this(redisTemplate, null);
+    }
+
+    /**
+     * @param redisTemplate redis
+     * @param notifier 释放通知，为null时轮询
+     */
+    public RedisLockProvider(@NonNull StringRedisTemplate redisTemplate, @Nullable RedisLockNotifier notifier) {
+        this(redisTemplate, notifier, null);
+    }
+
+    /**
+     * @param redisTemplate redis
+     * @param notifier 释放通知，为null时轮询
+     * @param renewalScheduler 自动续期，为null时不续期
+     */
+    public RedisLockProvider(@NonNull StringRedisTemplate redisTemplate, @Nullable RedisLockNotifier notifier,
+                             @Nullable LockRenewalScheduler renewalScheduler) {
+        this.redisTemplate = redisTemplate;
+        this.notifier = notifier;
+        this.renewalScheduler = renewalScheduler;
+        this.renewer = new RedisLockRenewer(redisTemplate, RedisLockRenewer.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param renewBatchSize 一次脚本调用最多续期的锁的数量，默认100；Redis Cluster 中key不在同一个slot时设为1
+     */
+    public void setRenewBatchSize(int renewBatchSize) {
+        this.renewer = new RedisLockRenewer(redisTemplate, renewBatchSize);
+    }
+
+    @Override
+    public DistributeLock createLock(String key) {
+        return new RedisLock(redisTemplate, key, notifier, renewalScheduler, renewalScheduler == null ? null : renewer, RedisLock.EXCLUSIVE);
+    }
+
+    /**
+     * Redis Cluster 中全部key必须在同一个slot
+     */
+    @Override
+    public DistributeLock createMultiLock(Collection<String> keys) {
+        return new RedisMultiLock(redisTemplate, keys, notifier, renewalScheduler, renewalScheduler == null ? null : renewer);
+    }
+
+    @Override
+    public boolean supportsReadWriteLock() {
+        return true;
+    }
+
+    @Override
+    public DistributeReadWriteLock createReadWriteLock(String key) {
+        return new RedisReadWriteLock(redisTemplate, key, notifier, renewalScheduler, renewalScheduler == null ? null : renewer);
+    }
+}
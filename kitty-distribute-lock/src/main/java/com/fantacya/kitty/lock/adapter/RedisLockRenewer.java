@@ -0,0 +1,119 @@
+package com.fantacya.kitty.lock.adapter;
+
+import com.fantacya.kitty.lock.LockRenewalScheduler;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @description: 为 {@link RedisLock} 续期。一批锁通过一次脚本调用续期，只有戳记仍然相同的锁才延长有效期。
+ * Redis Cluster 中一次脚本调用的key必须在同一个slot，此时把 {@link RedisLockProvider#setRenewBatchSize(int)} 设为1，或者使用hash tag
+ */
+class RedisLockRenewer implements LockRenewalScheduler.LeaseRenewer<RedisLockRenewer.Held> {
+
+    static final int DEFAULT_BATCH_SIZE = 100;
+
+    /**
+     * KEYS[i]: 锁的key
+     * ARGV[2i-1]: 戳记
+     * ARGV[2i]: 自动失效时长，毫秒
+     * 返回每个锁是否续期成功，1或0。读写锁（hash）由多个持有者共享有效期，只延长不缩短
+     */
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "local result = {}\n"
+                    + "for i = 1, #KEYS do\n"
+                    + "  local t = redis.call('type', KEYS[i]).ok\n"
+                    + "  local expire = tonumber(ARGV[2 * i])\n"
+                    + "  if t == 'string' and redis.call('get', KEYS[i]) == ARGV[2 * i - 1] then\n"
+                    + "    redis.call('pexpire', KEYS[i], expire)\n"
+                    + "    result[i] = 1\n"
+                    + "  elseif t == 'hash' and redis.call('hexists', KEYS[i], ARGV[2 * i - 1]) == 1 then\n"
+                    + "    if redis.call('pttl', KEYS[i]) < expire then redis.call('pexpire', KEYS[i], expire) end\n"
+                    + "    result[i] = 1\n"
+                    + "  else\n"
+                    + "    result[i] = 0\n"
+                    + "  end\n"
+                    + "end\n"
+                    + "return result",
+            List.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final int batchSize;
+
+    /**
+     * @param redisTemplate redis
+     * @param batchSize 一次脚本调用最多续期的锁的数量
+     */
+    RedisLockRenewer(StringRedisTemplate redisTemplate, int batchSize) {
+        Assert.isTrue(batchSize > 0, "batchSize must be positive");
+        this.redisTemplate = redisTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public List<Held> renew(List<Held> locks) {
+        List<Held> lost = new ArrayList<>();
+        for (int from = 0; from < locks.size(); from += batchSize) {
+            List<Held> batch = locks.subList(from, Math.min(from + batchSize, locks.size()));
+            List<String> keys = new ArrayList<>(batch.size());
+            Object[] args = new Object[batch.size() * 2];
+            for (int i = 0; i < batch.size(); i++) {
+                Held held = batch.get(i);
+                keys.add(held.key);
+                args[2 * i] = held.stamp;
+                args[2 * i + 1] = String.valueOf(held.expireTime);
+            }
+            List<?> result = redisTemplate.execute(RENEW_SCRIPT, keys, args);
+            for (int i = 0; i < batch.size(); i++) {
+                Object renewed = result == null ? null : result.get(i);
+                if (!(renewed instanceof Number) || ((Number) renewed).intValue() != 1) {
+                    lost.add(batch.get(i));
+                }
+            }
+        }
+        return lost;
+    }
+
+    /**
+     * 同一个redis的锁批量续期
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof RedisLockRenewer)) {
+            return false;
+        }
+        RedisLockRenewer other = (RedisLockRenewer) o;
+        return other.redisTemplate == redisTemplate && other.batchSize == batchSize;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(redisTemplate);
+    }
+
+    /**
+     * 持有的锁
+     */
+    static final class Held {
+        private final String key;
+        private final String stamp;
+        private final int expireTime;
+
+        Held(String key, String stamp, int expireTime) {
+            this.key = key;
+            this.stamp = stamp;
+            this.expireTime = expireTime;
+        }
+
+        @Override
+        public String toString() {
+            return "RedisLock{key=" + key + ", stamp=" + stamp + "}";
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.fantacya.kitty.lock.adapter;
+
+import com.fantacya.kitty.lock.DistributeLock;
+import com.fantacya.kitty.lock.LockException;
+import com.fantacya.kitty.lock.LockRenewalScheduler;
+import com.fantacya.kitty.lock.OrderedMultiLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description: 同时锁定多个key的Redis锁。一次脚本调用检查全部key都没有被持有后一起设置，要么全部获取，要么都不获取，
+ * 获取和释放都只需要一次往返；与锁定单个key的 {@link RedisLock} 互斥。
+ * 设置了 {@link RedisLockNotifier} 时，获取失败后等待阻塞的那个key的释放通知。
+ * Redis Cluster 中全部key必须在同一个slot（使用hash tag），否则使用 {@link OrderedMultiLock}
+ */
+public class RedisMultiLock implements DistributeLock {
+    private static final Logger LOG = LoggerFactory.getLogger(RedisMultiLock.class);
+
+    /**
+     * KEYS: 锁的key
+     * ARGV[1]: 戳记
+     * ARGV[2]: 自动失效时长，毫秒
+     * 获取成功时返回{0}，否则返回第一个被持有的key的序号（从1开始）和它的剩余有效期，毫秒
+     */
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #KEYS do\n"
+                    + "  local ttl = redis.call('pttl', KEYS[i])\n"
+                    + "  if ttl ~= -2 then return {i, ttl} end\n"
+                    + "end\n"
+                    + "for i = 1, #KEYS do\n"
+                    + "  redis.call('set', KEYS[i], ARGV[1], 'PX', ARGV[2])\n"
+                    + "end\n"
+                    + "return {0}",
+            List.class);
+
+    /**
+     * KEYS: 锁的key
+     * ARGV[1]: 戳记
+     * ARGV[2]: 释放通知的频道前缀，为空时不通知
+     * 返回释放的key的数量
+     */
+    static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "local released = 0\n"
+                    + "for i = 1, #KEYS do\n"
+                    + "  if redis.call('type', KEYS[i]).ok == 'string' and redis.call('get', KEYS[i]) == ARGV[1] then\n"
+                    + "    redis.call('del', KEYS[i])\n"
+                    + "    if ARGV[2] ~= '' then redis.call('publish', ARGV[2] .. KEYS[i], KEYS[i]) end\n"
+                    + "    released = released + 1\n"
+                    + "  end\n"
+                    + "end\n"
+                    + "return released",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final List<String> keys;
+
+    private final RedisLockNotifier notifier;
+
+    private final LockRenewalScheduler renewalScheduler;
+
+    private final RedisLockRenewer renewer;
+
+    private String stamp;
+
+    private List<LockRenewalScheduler.Lease<RedisLockRenewer.Held>> leases;
+
+    RedisMultiLock(StringRedisTemplate redisTemplate, Collection<String> keys, RedisLockNotifier notifier,
+                   LockRenewalScheduler renewalScheduler, RedisLockRenewer renewer) {
+        this.redisTemplate = redisTemplate;
+        this.keys = OrderedMultiLock.sortedKeys(keys);
+        this.notifier = notifier;
+        this.renewalScheduler = renewalScheduler;
+        this.renewer = renewer;
+    }
+
+    @Override
+    public String key() {
+        return OrderedMultiLock.joinKeys(keys);
+    }
+
+    @Override
+    public boolean lock(int expireTime, int timeout, int retryInterval) {
+        if (stamp != null) {
+            throw new IllegalStateException("lock " + key() + " is already acquired by this object");
+        }
+        String stamp = RedisLock.newStamp();
+        boolean locked = notifier != null
+                ? lockNotified(stamp, expireTime, timeout)
+                : lockPolling(stamp, expireTime, timeout, retryInterval);
+        if (locked) {
+            this.stamp = stamp;
+            if (renewalScheduler != null) {
+                List<LockRenewalScheduler.Lease<RedisLockRenewer.Held>> leases = new ArrayList<>(keys.size());
+                for (String key : keys) {
+                    leases.add(renewalScheduler.register(renewer, new RedisLockRenewer.Held(key, stamp, expireTime), expireTime));
+                }
+                this.leases = leases;
+            }
+        }
+        return locked;
+    }
+
+    /**
+     * @return 获取成功时返回null，否则返回第一个被持有的key的序号（从0开始）和它的剩余有效期
+     */
+    private long[] tryAcquire(String stamp, String expire) {
+        List<?> result = redisTemplate.execute(ACQUIRE_SCRIPT, keys, stamp, expire);
+        if (result == null || result.isEmpty()) {
+            // 在pipeline或事务中执行时没有结果，无法判断是否获取到锁
+            throw new LockException("no reply while acquiring lock " + key() + ", the script may have run in a pipeline or transaction");
+        }
+        if (((Number) result.get(0)).longValue() == 0) {
+            return null;
+        }
+        return new long[]{((Number) result.get(0)).longValue() - 1, ((Number) result.get(1)).longValue()};
+    }
+
+    private boolean lockPolling(String stamp, int expireTime, int timeout, int retryInterval) {
+        String expire = String.valueOf(expireTime);
+        long deadline = System.currentTimeMillis() + timeout;
+        while (true) {
+            if (tryAcquire(stamp, expire) == null) {
+                return true;
+            }
+            if (System.currentTimeMillis() + retryInterval >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(retryInterval);
+            } catch (InterruptedException e) {
+                throw new LockException(e);
+            }
+        }
+    }
+
+    /**
+     * 获取失败时只等待阻塞的那个key的释放通知，最多等待它的剩余有效期和兜底间隔
+     */
+    private boolean lockNotified(String stamp, int expireTime, int timeout) {
+        String expire = String.valueOf(expireTime);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        List<RedisLockNotifier.Waiters> waiters = new ArrayList<>(keys.size());
+        try {
+            for (String key : keys) {
+                waiters.add(notifier.register(key));
+            }
+            long[] versions = new long[keys.size()];
+            while (true) {
+                for (int i = 0; i < versions.length; i++) {
+                    versions[i] = waiters.get(i).version();
+                }
+                long[] blocked = tryAcquire(stamp, expire);
+                if (blocked == null) {
+                    return true;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                long wait = Math.min(remaining, notifier.getFallbackNanos());
+                if (blocked[1] > 0) {
+                    wait = Math.min(wait, TimeUnit.MILLISECONDS.toNanos(blocked[1]));
+                }
+                int index = (int) blocked[0];
+                waiters.get(index).await(versions[index], wait);
+            }
+        } finally {
+            for (int i = 0; i < waiters.size(); i++) {
+                notifier.unregister(keys.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void release() {
+        if (stamp == null) {
+            throw new IllegalStateException("you haven't got lock " + key());
+        }
+        if (leases != null) {
+            leases.forEach(LockRenewalScheduler.Lease::cancel);
+            leases = null;
+        }
+
+        Long released = redisTemplate.execute(RELEASE_SCRIPT, keys, stamp, notifier == null ? "" : notifier.channelPrefix());
+        if (released == null || released != keys.size()) {
+            LOG.warn("some locks are held by others, keys={}, released={}", keys, released);
+        }
+        stamp = null;
+    }
+}
@@ -0,0 +1,109 @@
+package com.fantacya.kitty.lock.adapter;
+
+import com.fantacya.kitty.lock.DistributeLock;
+import com.fantacya.kitty.lock.DistributeReadWriteLock;
+import com.fantacya.kitty.lock.LockRenewalScheduler;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * @description: 基于Redis的读写锁。锁是一个hash：{@code mode} 字段是 {@code read} 或 {@code write}，
+ * 每个持有者一个以戳记为名的字段；最后一个持有者释放时删除hash并发布释放通知。
+ * 读锁之间共享hash的有效期，获取和续期时只延长不缩短，持有读锁的进程崩溃后要等到全部读锁过期才能获取写锁。
+ * 持续有读锁时写锁会一直等待。
+ * <p>
+ * 写锁与同一个key的 {@link RedisLock} 和 {@link RedisMultiLock} 互斥，读锁与它们也互斥
+ */
+public class RedisReadWriteLock implements DistributeReadWriteLock {
+
+    /**
+     * KEYS[1]: 锁的key
+     * ARGV[1]: 戳记
+     * ARGV[2]: 自动失效时长，毫秒
+     * 获取成功时返回0，否则返回锁的剩余有效期，毫秒，与 {@link RedisLock#ACQUIRE_SCRIPT} 相同
+     */
+    static final RedisScript<Long> READ_ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local t = redis.call('type', KEYS[1]).ok\n"
+                    + "if t == 'none' then\n"
+                    + "  redis.call('hmset', KEYS[1], 'mode', 'read', ARGV[1], 1)\n"
+                    + "  redis.call('pexpire', KEYS[1], ARGV[2])\n"
+                    + "  return 0\n"
+                    + "end\n"
+                    + "if t == 'hash' and redis.call('hget', KEYS[1], 'mode') == 'read' then\n"
+                    + "  redis.call('hset', KEYS[1], ARGV[1], 1)\n"
+                    + "  if redis.call('pttl', KEYS[1]) < tonumber(ARGV[2]) then redis.call('pexpire', KEYS[1], ARGV[2]) end\n"
+                    + "  return 0\n"
+                    + "end\n"
+                    + "local ttl = redis.call('pttl', KEYS[1])\n"
+                    + "if ttl == 0 then return 1 end\n"
+                    + "return ttl",
+            Long.class);
+
+    /**
+     * 参数与 {@link #READ_ACQUIRE_SCRIPT} 相同
+     */
+    static final RedisScript<Long> WRITE_ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 then\n"
+                    + "  redis.call('hmset', KEYS[1], 'mode', 'write', ARGV[1], 1)\n"
+                    + "  redis.call('pexpire', KEYS[1], ARGV[2])\n"
+                    + "  return 0\n"
+                    + "end\n"
+                    + "local ttl = redis.call('pttl', KEYS[1])\n"
+                    + "if ttl == 0 then return 1 end\n"
+                    + "return ttl",
+            Long.class);
+
+    /**
+     * KEYS[1]: 锁的key
+     * ARGV[1]: 戳记
+     * ARGV[2]: 释放通知的频道，没有时不通知
+     * 释放成功时返回1，否则返回0
+     */
+    static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('type', KEYS[1]).ok ~= 'hash' or redis.call('hdel', KEYS[1], ARGV[1]) == 0 then return 0 end\n"
+                    + "if redis.call('hlen', KEYS[1]) <= 1 then\n"
+                    + "  redis.call('del', KEYS[1])\n"
+                    + "  if ARGV[2] then redis.call('publish', ARGV[2], KEYS[1]) end\n"
+                    + "end\n"
+                    + "return 1",
+            Long.class);
+
+    static final RedisLock.Scripts READ = new RedisLock.Scripts(READ_ACQUIRE_SCRIPT, RELEASE_SCRIPT, RELEASE_SCRIPT);
+
+    static final RedisLock.Scripts WRITE = new RedisLock.Scripts(WRITE_ACQUIRE_SCRIPT, RELEASE_SCRIPT, RELEASE_SCRIPT);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final String key;
+
+    private final RedisLockNotifier notifier;
+
+    private final LockRenewalScheduler renewalScheduler;
+
+    private final RedisLockRenewer renewer;
+
+    RedisReadWriteLock(StringRedisTemplate redisTemplate, String key, RedisLockNotifier notifier,
+                       LockRenewalScheduler renewalScheduler, RedisLockRenewer renewer) {
+        this.redisTemplate = redisTemplate;
+        this.key = key;
+        this.notifier = notifier;
+        this.renewalScheduler = renewalScheduler;
+        this.renewer = renewer;
+    }
+
+    @Override
+    public String key() {
+        return key;
+    }
+
+    @Override
+    public DistributeLock readLock() {
+        return new RedisLock(redisTemplate, key, notifier, renewalScheduler, renewer, READ);
+    }
+
+    @Override
+    public DistributeLock writeLock() {
+        return new RedisLock(redisTemplate, key, notifier, renewalScheduler, renewer, WRITE);
+    }
+}
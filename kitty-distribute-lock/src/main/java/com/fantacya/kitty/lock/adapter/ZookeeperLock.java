@@ -25,8 +25,16 @@ public class ZookeeperLock implements DistributeLock {
     private Date lockTime;
 
     public ZookeeperLock(CuratorFramework client, String lockPath) {
+        this(new InterProcessMutex(client, lockPath), lockPath);
+    }
+
+    /**
+     * @param lock 锁，例如 {@link org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock} 的读锁或写锁
+     * @param lockPath 锁的路径
+     */
+    ZookeeperLock(InterProcessMutex lock, String lockPath) {
         this.lockPath = lockPath;
-        this.lock = new InterProcessMutex(client, lockPath);
+        this.lock = lock;
     }
 
     @Override
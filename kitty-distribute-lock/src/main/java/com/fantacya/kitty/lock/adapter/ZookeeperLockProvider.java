@@ -0,0 +1,34 @@
+package com.fantacya.kitty.lock.adapter;
+
+import com.fantacya.kitty.lock.DistributeLock;
+import com.fantacya.kitty.lock.DistributeLockProvider;
+import com.fantacya.kitty.lock.DistributeReadWriteLock;
+import org.apache.curator.framework.CuratorFramework;
+
+/**
+ * @description: 创建 {@link ZookeeperLock}，锁的key是ZooKeeper的路径。
+ * 多key锁使用默认的 {@link com.fantacya.kitty.lock.OrderedMultiLock}，按路径的顺序依次获取；读写锁是 {@link ZookeeperReadWriteLock}
+ */
+public class ZookeeperLockProvider implements DistributeLockProvider {
+
+    private final CuratorFramework client;
+
+    public ZookeeperLockProvider(CuratorFramework client) {
+        this.client = client;
+    }
+
+    @Override
+    public DistributeLock createLock(String key) {
+        return new ZookeeperLock(client, key);
+    }
+
+    @Override
+    public boolean supportsReadWriteLock() {
+        return true;
+    }
+
+    @Override
+    public DistributeReadWriteLock createReadWriteLock(String key) {
+        return new ZookeeperReadWriteLock(client, key);
+    }
+}
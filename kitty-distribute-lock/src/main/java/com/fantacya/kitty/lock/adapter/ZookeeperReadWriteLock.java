@@ -0,0 +1,40 @@
+package com.fantacya.kitty.lock.adapter;
+
+import com.fantacya.kitty.lock.DistributeLock;
+import com.fantacya.kitty.lock.DistributeReadWriteLock;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
+
+/**
+ * @description: 基于Curator {@link InterProcessReadWriteLock} 的读写锁，锁的key是ZooKeeper的路径。
+ * 不要与同一个路径的 {@link ZookeeperLock} 混用
+ */
+public class ZookeeperReadWriteLock implements DistributeReadWriteLock {
+
+    private final CuratorFramework client;
+
+    private final String lockPath;
+
+    public ZookeeperReadWriteLock(CuratorFramework client, String lockPath) {
+        this.client = client;
+        this.lockPath = lockPath;
+    }
+
+    @Override
+    public String key() {
+        return lockPath;
+    }
+
+    /**
+     * 每次创建新的 {@link InterProcessReadWriteLock}，Curator的锁在同一个对象内可重入，不同的获取需要互相独立
+     */
+    @Override
+    public DistributeLock readLock() {
+        return new ZookeeperLock(new InterProcessReadWriteLock(client, lockPath).readLock(), lockPath);
+    }
+
+    @Override
+    public DistributeLock writeLock() {
+        return new ZookeeperLock(new InterProcessReadWriteLock(client, lockPath).writeLock(), lockPath);
+    }
+}
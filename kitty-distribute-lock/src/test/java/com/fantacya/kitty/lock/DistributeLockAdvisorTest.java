@@ -0,0 +1,144 @@
+package com.fantacya.kitty.lock;
+
+import com.fantacya.kitty.aop.AnnotationValidateException;
+import com.fantacya.kitty.aop.DeferredAnnotationValidation;
+import com.fantacya.kitty.aop.StandaloneProxyFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DistributeLockAdvisorTest {
+
+    private final List<String> events = new ArrayList<>();
+
+    @Test
+    public void testLockMode() {
+        Inventory inventory = new StandaloneProxyFactory(new DistributeLockAdvisor(new RecordingProvider()))
+                .getProxy(new InventoryImpl(), Inventory.class);
+        inventory.get("apple");
+        inventory.put("apple");
+        inventory.reset("apple");
+        assertEquals(Arrays.asList("read:apple", "release:apple", "write:apple", "release:apple",
+                "exclusive:apple", "release:apple"), events);
+    }
+
+    @Test
+    public void testReadWriteModeRequiresSupport() throws Exception {
+        DistributeLockAdvisor advisor = new DistributeLockAdvisor(key -> {
+            throw new AssertionError("no lock expected");
+        });
+        advisor.afterPropertiesSet();
+        try {
+            advisor.getPointcut().getMethodMatcher().matches(InventoryImpl.class.getMethod("get", String.class), InventoryImpl.class);
+            fail("Expected annotation validate exception");
+        } catch (AnnotationValidateException e) {
+            assertTrue(e.getMessage().startsWith("mode READ of @DistributeLocked requires a provider supporting read-write locks"));
+        }
+        assertTrue(advisor.getPointcut().getMethodMatcher().matches(InventoryImpl.class.getMethod("reset", String.class), InventoryImpl.class));
+    }
+
+    @Test
+    public void testDeferredReadWriteModeValidation() throws Exception {
+        DeferredAnnotationValidation validation = new DeferredAnnotationValidation();
+        DistributeLockAdvisor advisor = new DistributeLockAdvisor(key -> {
+            throw new AssertionError("no lock expected");
+        });
+        advisor.setDeferredValidation(validation);
+        advisor.afterPropertiesSet();
+        for (String name : new String[]{"get", "put", "reset"}) {
+            assertTrue(advisor.getPointcut().getMethodMatcher().matches(InventoryImpl.class.getMethod(name, String.class), InventoryImpl.class));
+        }
+        assertEquals(3, validation.getPendingCount());
+        try {
+            validation.validate();
+            fail("Expected annotation validate exception");
+        } catch (AnnotationValidateException e) {
+            assertTrue(e.getMessage().startsWith("2 annotation validation(s) failed:"));
+            assertTrue(e.getMessage().contains("mode READ of @DistributeLocked"));
+            assertTrue(e.getMessage().contains("mode WRITE of @DistributeLocked"));
+        }
+    }
+
+    public interface Inventory {
+        void get(String name);
+
+        void put(String name);
+
+        void reset(String name);
+    }
+
+    public static class InventoryImpl implements Inventory {
+        @Override
+        @DistributeLocked(key = "#name", mode = LockMode.READ)
+        public void get(String name) {
+        }
+
+        @Override
+        @DistributeLocked(key = "#name", mode = LockMode.WRITE)
+        public void put(String name) {
+        }
+
+        @Override
+        @DistributeLocked(key = "#name")
+        public void reset(String name) {
+        }
+    }
+
+    private class RecordingProvider implements DistributeLockProvider {
+        @Override
+        public DistributeLock createLock(String key) {
+            return lock("exclusive", key);
+        }
+
+        @Override
+        public boolean supportsReadWriteLock() {
+            return true;
+        }
+
+        @Override
+        public DistributeReadWriteLock createReadWriteLock(String key) {
+            return new DistributeReadWriteLock() {
+                @Override
+                public String key() {
+                    return key;
+                }
+
+                @Override
+                public DistributeLock readLock() {
+                    return lock("read", key);
+                }
+
+                @Override
+                public DistributeLock writeLock() {
+                    return lock("write", key);
+                }
+            };
+        }
+
+        private DistributeLock lock(String mode, String key) {
+            return new DistributeLock() {
+                @Override
+                public String key() {
+                    return key;
+                }
+
+                @Override
+                public boolean lock(int expireTime, int timeout, int retryInterval) {
+                    events.add(mode + ":" + key);
+                    return true;
+                }
+
+                @Override
+                public void release() {
+                    events.add("release:" + key);
+                }
+            };
+        }
+    }
+}
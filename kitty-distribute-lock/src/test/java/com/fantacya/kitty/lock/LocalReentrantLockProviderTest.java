@@ -0,0 +1,187 @@
+package com.fantacya.kitty.lock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LocalReentrantLockProviderTest {
+
+    private final CountingProvider remote = new CountingProvider();
+
+    private final LocalReentrantLockProvider provider = new LocalReentrantLockProvider(remote);
+
+    @Test
+    public void testReentrant() {
+        DistributeLock outer = provider.createLock("order:1");
+        DistributeLock inner = provider.createLock("order:1");
+        assertTrue(outer.lock(1000, 100));
+        assertTrue(inner.lock(1000, 100));
+        assertEquals(1, remote.acquires.get());
+
+        inner.release();
+        assertTrue(remote.held.containsKey("order:1"));
+        outer.release();
+        assertFalse(remote.held.containsKey("order:1"));
+        assertEquals(1, remote.releases.get());
+        assertEquals(0, provider.getActiveKeyCount());
+    }
+
+    @Test
+    public void testSerializesLocalContenders() throws Exception {
+        int threads = 8;
+        int rounds = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger inside = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < rounds; i++) {
+                        DistributeLock lock = provider.createLock("hot");
+                        assertTrue(lock.lock(1000, 5000));
+                        assertEquals(1, inside.incrementAndGet());
+                        inside.decrementAndGet();
+                        lock.release();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // 远程锁从未被本进程内的线程竞争，每次获取都一次成功
+        assertEquals(threads * rounds, remote.acquires.get());
+        assertEquals(0, remote.contended.get());
+        assertEquals(0, provider.getActiveKeyCount());
+    }
+
+    @Test
+    public void testRemoteFailureReleasesLocalLock() {
+        remote.held.put("order:2", "other process");
+        DistributeLock lock = provider.createLock("order:2");
+        assertFalse(lock.lock(1000, 50));
+        assertEquals(0, provider.getActiveKeyCount());
+
+        remote.held.remove("order:2");
+        assertTrue(lock.lock(1000, 50));
+        lock.release();
+    }
+
+    @Test
+    public void testLocalTimeout() throws Exception {
+        DistributeLock holder = provider.createLock("order:3");
+        assertTrue(holder.lock(1000, 100));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertFalse(executor.submit(() -> provider.createLock("order:3").lock(1000, 50)).get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, remote.acquires.get());
+        holder.release();
+    }
+
+    @Test
+    public void testReleaseNotHeld() {
+        try {
+            provider.createLock("order:4").release();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testMultiLockReentersHeldKeys() {
+        DistributeLock single = provider.createLock("order:5");
+        assertTrue(single.lock(1000, 100));
+        DistributeLock multi = provider.createMultiLock(Arrays.asList("order:6", "order:5", "order:7"));
+        assertTrue(multi.lock(1000, 100));
+        // order:5 已经由本线程持有，只为另外两个key获取远程锁
+        assertEquals(3, remote.acquires.get());
+
+        multi.release();
+        assertTrue(remote.held.containsKey("order:5"));
+        assertFalse(remote.held.containsKey("order:6"));
+        assertFalse(remote.held.containsKey("order:7"));
+        single.release();
+        assertTrue(remote.held.isEmpty());
+        assertEquals(0, provider.getActiveKeyCount());
+    }
+
+    @Test
+    public void testMultiLockFailureReleasesLocalLocks() throws Exception {
+        remote.held.put("order:9", "other process");
+        DistributeLock multi = provider.createMultiLock(Arrays.asList("order:8", "order:9"));
+        assertFalse(multi.lock(1000, 50));
+        assertEquals(0, provider.getActiveKeyCount());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertTrue(executor.submit(() -> {
+                DistributeLock lock = provider.createLock("order:8");
+                boolean locked = lock.lock(1000, 50);
+                lock.release();
+                return locked;
+            }).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 在内存中模拟远程锁，记录获取和释放次数
+     */
+    static class CountingProvider implements DistributeLockProvider {
+        final ConcurrentHashMap<String, Object> held = new ConcurrentHashMap<>();
+        final AtomicInteger acquires = new AtomicInteger();
+        final AtomicInteger releases = new AtomicInteger();
+        final AtomicInteger contended = new AtomicInteger();
+
+        @Override
+        public DistributeLock createLock(String key) {
+            return new DistributeLock() {
+                private final Object owner = new Object();
+
+                @Override
+                public String key() {
+                    return key;
+                }
+
+                @Override
+                public boolean lock(int expireTime, int timeout, int retryInterval) {
+                    if (held.putIfAbsent(key, owner) == null) {
+                        acquires.incrementAndGet();
+                        return true;
+                    }
+                    contended.incrementAndGet();
+                    return false;
+                }
+
+                @Override
+                public void release() {
+                    held.remove(key, owner);
+                    releases.incrementAndGet();
+                }
+            };
+        }
+    }
+}
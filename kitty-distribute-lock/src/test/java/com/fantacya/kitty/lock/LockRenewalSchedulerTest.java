@@ -0,0 +1,115 @@
+package com.fantacya.kitty.lock;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LockRenewalSchedulerTest {
+
+    private final LockRenewalScheduler scheduler = new LockRenewalScheduler(10);
+
+    @After
+    public void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    public void testRenewsInBatches() throws Exception {
+        RecordingRenewer renewer = new RecordingRenewer();
+        List<LockRenewalScheduler.Lease<String>> leases = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            leases.add(scheduler.register(renewer, "lock:" + i, 150));
+        }
+        Thread.sleep(400);
+        for (LockRenewalScheduler.Lease<String> lease : leases) {
+            lease.cancel();
+        }
+        assertEquals(0, scheduler.getLeaseCount());
+
+        // 每50毫秒续期一次，同时注册的锁在同一批中续期
+        assertTrue("batches: " + renewer.batches, renewer.batches.size() >= 3);
+        for (List<String> batch : renewer.batches) {
+            assertEquals(5, batch.size());
+        }
+    }
+
+    @Test
+    public void testLeasesAcquiredApartRenewTogether() throws Exception {
+        RecordingRenewer renewer = new RecordingRenewer();
+        LockRenewalScheduler.Lease<String> first = scheduler.register(renewer, "first", 150);
+        Thread.sleep(15);
+        LockRenewalScheduler.Lease<String> second = scheduler.register(renewer, "second", 150);
+        Thread.sleep(400);
+        first.cancel();
+        second.cancel();
+
+        // 先后获取的锁合并到同一批中续期
+        assertTrue("batches: " + renewer.batches, renewer.batches.size() >= 3);
+        for (List<String> batch : renewer.batches) {
+            assertEquals(2, batch.size());
+        }
+    }
+
+    @Test
+    public void testCancelStopsRenewal() throws Exception {
+        RecordingRenewer renewer = new RecordingRenewer();
+        scheduler.register(renewer, "lock", 60).cancel();
+        Thread.sleep(100);
+        assertTrue(renewer.batches.isEmpty());
+    }
+
+    @Test
+    public void testLostLockStopsRenewal() throws Exception {
+        RecordingRenewer renewer = new RecordingRenewer();
+        String lost = "lost";
+        renewer.lost.add(lost);
+        LockRenewalScheduler.Lease<String> lostLease = scheduler.register(renewer, lost, 60);
+        LockRenewalScheduler.Lease<String> held = scheduler.register(renewer, "held", 60);
+        Thread.sleep(150);
+
+        assertTrue(lostLease.isLost());
+        assertFalse(held.isLost());
+        assertEquals(1, scheduler.getLeaseCount());
+        long lostRenewals = renewer.batches.stream().filter(batch -> batch.contains(lost)).count();
+        assertEquals(1, lostRenewals);
+        held.cancel();
+    }
+
+    @Test
+    public void testFailureIsRetried() throws Exception {
+        RecordingRenewer renewer = new RecordingRenewer();
+        renewer.failures = 2;
+        LockRenewalScheduler.Lease<String> lease = scheduler.register(renewer, "lock", 60);
+        Thread.sleep(150);
+        assertFalse(lease.isLost());
+        // 失败后下次检查立即重试，不等待下一个续期周期
+        assertTrue("batches: " + renewer.batches, renewer.batches.size() >= 3);
+        lease.cancel();
+    }
+
+    static class RecordingRenewer implements LockRenewalScheduler.LeaseRenewer<String> {
+        final List<List<String>> batches = new CopyOnWriteArrayList<>();
+        final List<String> lost = new CopyOnWriteArrayList<>();
+        volatile int failures;
+
+        @Override
+        public List<String> renew(List<String> locks) throws Exception {
+            batches.add(new ArrayList<>(locks));
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException("connection refused");
+            }
+            List<String> result = new ArrayList<>(locks);
+            result.retainAll(lost);
+            return result.isEmpty() ? Collections.emptyList() : result;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.fantacya.kitty.lock;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OrderedMultiLockTest {
+
+    private final LocalReentrantLockProviderTest.CountingProvider provider = new LocalReentrantLockProviderTest.CountingProvider();
+
+    @Test
+    public void testSortedAndDistinct() {
+        DistributeLock lock = provider.createMultiLock(Arrays.asList("order:3", "order:1", "order:2", "order:1"));
+        assertEquals("order:1,order:2,order:3", lock.key());
+        assertTrue(lock.lock(1000, 100));
+        assertEquals(3, provider.held.size());
+        lock.release();
+        assertTrue(provider.held.isEmpty());
+        assertEquals(3, provider.releases.get());
+    }
+
+    @Test
+    public void testFailureReleasesAcquired() {
+        provider.held.put("order:2", "other process");
+        DistributeLock lock = provider.createMultiLock(Arrays.asList("order:1", "order:2", "order:3"));
+        assertFalse(lock.lock(1000, 100));
+        // order:1 获取后释放，order:3 没有尝试获取
+        assertEquals(1, provider.acquires.get());
+        assertEquals(1, provider.releases.get());
+        assertEquals(Collections.singleton("order:2"), provider.held.keySet());
+    }
+}
@@ -0,0 +1,194 @@
+package com.fantacya.kitty.lock.adapter;
+
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stands in for Redis in tests: runs the lock scripts in Java against an in-memory map with
+ * expirations, and delivers published messages to a listener.
+ */
+class InProcessRedisTemplate extends StringRedisTemplate {
+
+    private final Map<String, Entry> values = new HashMap<>();
+
+    final AtomicInteger scriptCalls = new AtomicInteger();
+
+    final AtomicInteger publishes = new AtomicInteger();
+
+    volatile MessageListener listener;
+
+    /**
+     * Simulates scripts executed in a pipeline or transaction, which return no reply.
+     */
+    volatile boolean noReply;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        scriptCalls.incrementAndGet();
+        List<String> channels = new ArrayList<>();
+        T result;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            values.values().removeIf(entry -> entry.expireAt <= now);
+            String key = keys.get(0);
+            Entry entry = values.get(key);
+            if (script == RedisLock.ACQUIRE_SCRIPT) {
+                if (entry == null) {
+                    values.put(key, new Entry((String) args[0], now + Long.parseLong((String) args[1])));
+                    result = (T) Long.valueOf(RedisLock.ACQUIRED);
+                } else {
+                    result = (T) Long.valueOf(Math.max(1L, entry.expireAt - now));
+                }
+            } else if (script == RedisLock.RELEASE_SCRIPT || script == RedisLock.RELEASE_AND_PUBLISH_SCRIPT) {
+                if (entry != null && args[0].equals(entry.value)) {
+                    values.remove(key);
+                    result = (T) Long.valueOf(1L);
+                    if (script == RedisLock.RELEASE_AND_PUBLISH_SCRIPT) {
+                        channels.add((String) args[1]);
+                    }
+                } else {
+                    result = (T) Long.valueOf(0L);
+                }
+            } else if (script == RedisMultiLock.ACQUIRE_SCRIPT) {
+                List<Long> blocked = new ArrayList<>();
+                for (int i = 0; i < keys.size() && blocked.isEmpty(); i++) {
+                    Entry current = values.get(keys.get(i));
+                    if (current != null) {
+                        blocked.add((long) i + 1);
+                        blocked.add(current.expireAt - now);
+                    }
+                }
+                if (blocked.isEmpty()) {
+                    for (String k : keys) {
+                        values.put(k, new Entry((String) args[0], now + Long.parseLong((String) args[1])));
+                    }
+                    blocked.add(0L);
+                }
+                result = (T) blocked;
+            } else if (script == RedisMultiLock.RELEASE_SCRIPT) {
+                long released = 0;
+                for (String k : keys) {
+                    Entry current = values.get(k);
+                    if (current != null && args[0].equals(current.value)) {
+                        values.remove(k);
+                        released++;
+                        if (!"".equals(args[1])) {
+                            channels.add(args[1] + k);
+                        }
+                    }
+                }
+                result = (T) Long.valueOf(released);
+            } else if (script == RedisLockRenewer.RENEW_SCRIPT) {
+                List<Long> renewed = new ArrayList<>(keys.size());
+                for (int i = 0; i < keys.size(); i++) {
+                    Entry current = values.get(keys.get(i));
+                    long expireAt = now + Long.parseLong((String) args[2 * i + 1]);
+                    if (current != null && args[2 * i].equals(current.value)) {
+                        current.expireAt = expireAt;
+                        renewed.add(1L);
+                    } else if (current != null && current.holders.contains(args[2 * i])) {
+                        current.expireAt = Math.max(current.expireAt, expireAt);
+                        renewed.add(1L);
+                    } else {
+                        renewed.add(0L);
+                    }
+                }
+                result = (T) renewed;
+            } else if (script == RedisReadWriteLock.READ_ACQUIRE_SCRIPT || script == RedisReadWriteLock.WRITE_ACQUIRE_SCRIPT) {
+                String mode = script == RedisReadWriteLock.READ_ACQUIRE_SCRIPT ? "read" : "write";
+                long expireAt = now + Long.parseLong((String) args[1]);
+                if (entry == null) {
+                    entry = Entry.hash(mode, expireAt);
+                    entry.holders.add((String) args[0]);
+                    values.put(key, entry);
+                    result = (T) Long.valueOf(RedisLock.ACQUIRED);
+                } else if ("read".equals(mode) && mode.equals(entry.mode)) {
+                    entry.holders.add((String) args[0]);
+                    entry.expireAt = Math.max(entry.expireAt, expireAt);
+                    result = (T) Long.valueOf(RedisLock.ACQUIRED);
+                } else {
+                    result = (T) Long.valueOf(Math.max(1L, entry.expireAt - now));
+                }
+            } else if (script == RedisReadWriteLock.RELEASE_SCRIPT) {
+                if (entry != null && entry.holders.remove(args[0])) {
+                    if (entry.holders.isEmpty()) {
+                        values.remove(key);
+                        if (args.length > 1) {
+                            channels.add((String) args[1]);
+                        }
+                    }
+                    result = (T) Long.valueOf(1L);
+                } else {
+                    result = (T) Long.valueOf(0L);
+                }
+            } else {
+                throw new UnsupportedOperationException(script.getScriptAsString());
+            }
+        }
+        if (result instanceof Number && script.getResultType() != Long.class) {
+            // Spring Data Redis reads integer replies only into Long, Lettuce fails on other types
+            throw new IllegalStateException("integer reply read as " + script.getResultType());
+        }
+        for (String channel : channels) {
+            publish(channel, keys.get(0));
+        }
+        return noReply ? null : result;
+    }
+
+    /**
+     * Simulates the lock having expired and been taken by someone else.
+     */
+    synchronized void overwrite(String key, String value, long expireTime) {
+        values.put(key, new Entry(value, System.currentTimeMillis() + expireTime));
+    }
+
+    synchronized boolean exists(String key) {
+        Entry entry = values.get(key);
+        return entry != null && entry.expireAt > System.currentTimeMillis();
+    }
+
+    private void publish(String channel, String body) {
+        publishes.incrementAndGet();
+        MessageListener listener = this.listener;
+        if (listener != null) {
+            listener.onMessage(new DefaultMessage(channel.getBytes(StandardCharsets.UTF_8),
+                    body.getBytes(StandardCharsets.UTF_8)), null);
+        }
+    }
+
+    /**
+     * Either a string value, or a read-write lock hash with a mode and a set of holders.
+     */
+    private static final class Entry {
+        private final String value;
+        private final String mode;
+        private final Set<String> holders = new HashSet<>();
+        private long expireAt;
+
+        Entry(String value, long expireAt) {
+            this(value, null, expireAt);
+        }
+
+        private Entry(String value, String mode, long expireAt) {
+            this.value = value;
+            this.mode = mode;
+            this.expireAt = expireAt;
+        }
+
+        static Entry hash(String mode, long expireAt) {
+            return new Entry(null, mode, expireAt);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.fantacya.kitty.lock.adapter;
+
+import com.fantacya.kitty.lock.DistributeLock;
+import com.fantacya.kitty.lock.LockException;
+import com.fantacya.kitty.lock.LockRenewalScheduler;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RedisLockTest {
+
+    private InProcessRedisTemplate redis;
+
+    private RedisLockNotifier notifier;
+
+    @Before
+    public void setUp() {
+        redis = new InProcessRedisTemplate();
+        notifier = new RedisLockNotifier(new RedisMessageListenerContainer());
+        redis.listener = notifier;
+    }
+
+    @Test
+    public void testLockAndRelease() {
+        RedisLockProvider provider = new RedisLockProvider(redis, notifier);
+        RedisLock lock = (RedisLock) provider.createLock("order:1");
+        assertTrue(lock.lock(1000, 100));
+        assertTrue(redis.exists("order:1"));
+        assertFalse(provider.createLock("order:1").lock(1000, 50));
+        lock.release();
+        assertFalse(redis.exists("order:1"));
+        assertEquals(1, redis.publishes.get());
+        assertEquals(0, notifier.getWaitingKeyCount());
+    }
+
+    @Test
+    public void testWaiterWokenByRelease() throws Exception {
+        notifier.setFallbackInterval(5000);
+        RedisLock holder = new RedisLock(redis, "order:2", notifier);
+        assertTrue(holder.lock(10000, 100));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Future<Long> waited = executor.submit(() -> {
+                RedisLock waiter = new RedisLock(redis, "order:2", notifier);
+                started.countDown();
+                long start = System.nanoTime();
+                assertTrue(waiter.lock(10000, 5000));
+                long elapsed = System.nanoTime() - start;
+                waiter.release();
+                return elapsed;
+            });
+            started.await();
+            Thread.sleep(200);
+            int callsWhileHeld = redis.scriptCalls.get();
+            holder.release();
+
+            long elapsed = waited.get(5, TimeUnit.SECONDS);
+            // 等待期间不轮询，释放后立即获取
+            assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(2000));
+            assertTrue("script calls while waiting: " + callsWhileHeld, callsWhileHeld <= 3);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, notifier.getWaitingKeyCount());
+    }
+
+    @Test
+    public void testWaitsForExpiry() {
+        // 锁过期时没有通知，等待的线程按锁的剩余有效期等待后获取
+        notifier.setFallbackInterval(5000);
+        RedisLock holder = new RedisLock(redis, "order:3", notifier);
+        assertTrue(holder.lock(100, 100));
+        long start = System.nanoTime();
+        assertTrue(new RedisLock(redis, "order:3", notifier).lock(1000, 2000));
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(1500));
+        assertEquals(0, redis.publishes.get());
+    }
+
+    @Test
+    public void testTimeout() {
+        RedisLock holder = new RedisLock(redis, "order:4", notifier);
+        assertTrue(holder.lock(10000, 100));
+        long start = System.nanoTime();
+        assertFalse(new RedisLock(redis, "order:4", notifier).lock(10000, 300));
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(300));
+        assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(2000));
+    }
+
+    @Test
+    public void testRenewal() throws Exception {
+        try (LockRenewalScheduler scheduler = new LockRenewalScheduler(10)) {
+            RedisLockProvider provider = new RedisLockProvider(redis, notifier, scheduler);
+            RedisLock first = (RedisLock) provider.createLock("order:5");
+            RedisLock second = (RedisLock) provider.createLock("order:6");
+            assertTrue(first.lock(150, 100));
+            assertTrue(second.lock(150, 100));
+            assertEquals(2, scheduler.getLeaseCount());
+
+            // 持有时间超过自动失效时长，锁仍然有效
+            int before = redis.scriptCalls.get();
+            Thread.sleep(400);
+            assertTrue(redis.exists("order:5"));
+            assertTrue(redis.exists("order:6"));
+            int renewals = redis.scriptCalls.get() - before;
+            // 两个锁在同一次脚本调用中续期，每50毫秒一次
+            assertTrue("renewals: " + renewals, renewals >= 3 && renewals <= 10);
+
+            first.release();
+            second.release();
+            assertEquals(0, scheduler.getLeaseCount());
+            assertFalse(redis.exists("order:5"));
+        }
+    }
+
+    @Test
+    public void testRenewalStopsWhenLost() throws Exception {
+        try (LockRenewalScheduler scheduler = new LockRenewalScheduler(10)) {
+            RedisLock lock = new RedisLock(redis, "order:7", notifier, scheduler);
+            assertTrue(lock.lock(150, 100));
+            redis.overwrite("order:7", "other process", 10000);
+            Thread.sleep(150);
+            assertEquals(0, scheduler.getLeaseCount());
+            lock.release();
+            // 不会删除其他人持有的锁
+            assertTrue(redis.exists("order:7"));
+        }
+    }
+
+    @Test
+    public void testNoReplyIsNotAcquired() {
+        redis.noReply = true;
+        try {
+            new RedisLock(redis, "order:9", notifier).lock(10000, 100);
+            fail("expected LockException");
+        } catch (LockException e) {
+            // 没有结果时无法判断是否获取到锁
+            assertTrue(e.getMessage().startsWith("no reply while acquiring lock order:9"));
+        }
+        assertEquals(0, notifier.getWaitingKeyCount());
+    }
+
+    @Test
+    public void testStampsAreUnique() {
+        RedisLock first = new RedisLock(redis, "order:8", notifier);
+        assertTrue(first.lock(10000, 100));
+        first.release();
+        RedisLock second = new RedisLock(redis, "order:8", notifier);
+        assertTrue(second.lock(10000, 100));
+        // 同一毫秒内获取的锁戳记也不同，前一个持有者重复释放不会删除后一个持有者的锁
+        redis.execute(RedisLock.RELEASE_SCRIPT, Collections.singletonList("order:8"), "stale");
+        assertTrue(redis.exists("order:8"));
+        second.release();
+    }
+
+    @Test
+    public void testMultiLockIsAtomic() {
+        RedisLockProvider provider = new RedisLockProvider(redis, notifier);
+        RedisLock single = new RedisLock(redis, "order:b", notifier);
+        assertTrue(single.lock(10000, 100));
+
+        DistributeLock multi = provider.createMultiLock(Arrays.asList("order:c", "order:b", "order:a"));
+        assertEquals("order:a,order:b,order:c", multi.key());
+        assertFalse(multi.lock(10000, 50));
+        // 一个key被持有时其他key都不设置
+        assertFalse(redis.exists("order:a"));
+        assertFalse(redis.exists("order:c"));
+
+        single.release();
+        int before = redis.scriptCalls.get();
+        assertTrue(multi.lock(10000, 50));
+        assertEquals(1, redis.scriptCalls.get() - before);
+        assertTrue(redis.exists("order:a") && redis.exists("order:b") && redis.exists("order:c"));
+        assertFalse(new RedisLock(redis, "order:c", notifier).lock(10000, 50));
+
+        int publishes = redis.publishes.get();
+        multi.release();
+        assertFalse(redis.exists("order:a") || redis.exists("order:b") || redis.exists("order:c"));
+        assertEquals(3, redis.publishes.get() - publishes);
+        assertEquals(0, notifier.getWaitingKeyCount());
+    }
+
+    @Test
+    public void testMultiLockNoReplyIsNotAcquired() {
+        redis.noReply = true;
+        for (RedisLockProvider provider : Arrays.asList(new RedisLockProvider(redis, notifier), new RedisLockProvider(redis))) {
+            try {
+                provider.createMultiLock(Arrays.asList("order:f", "order:g")).lock(10000, 100);
+                fail("expected LockException");
+            } catch (LockException e) {
+                assertTrue(e.getMessage().startsWith("no reply while acquiring lock order:f,order:g"));
+            }
+        }
+        assertEquals(0, notifier.getWaitingKeyCount());
+    }
+
+    @Test
+    public void testMultiLockWokenByRelease() throws Exception {
+        notifier.setFallbackInterval(5000);
+        RedisLockProvider provider = new RedisLockProvider(redis, notifier);
+        RedisLock holder = new RedisLock(redis, "order:e", notifier);
+        assertTrue(holder.lock(10000, 100));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> waited = executor.submit(() -> {
+                DistributeLock multi = provider.createMultiLock(Arrays.asList("order:d", "order:e"));
+                long start = System.nanoTime();
+                assertTrue(multi.lock(10000, 5000));
+                long elapsed = System.nanoTime() - start;
+                multi.release();
+                return elapsed;
+            });
+            Thread.sleep(200);
+            holder.release();
+            assertTrue(waited.get(5, TimeUnit.SECONDS) < TimeUnit.MILLISECONDS.toNanos(2000));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, notifier.getWaitingKeyCount());
+    }
+}
@@ -0,0 +1,134 @@
+package com.fantacya.kitty.lock.adapter;
+
+import com.fantacya.kitty.lock.DistributeLock;
+import com.fantacya.kitty.lock.DistributeReadWriteLock;
+import com.fantacya.kitty.lock.LockException;
+import com.fantacya.kitty.lock.LockRenewalScheduler;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RedisReadWriteLockTest {
+
+    private InProcessRedisTemplate redis;
+
+    private RedisLockNotifier notifier;
+
+    private RedisLockProvider provider;
+
+    @Before
+    public void setUp() {
+        redis = new InProcessRedisTemplate();
+        notifier = new RedisLockNotifier(new RedisMessageListenerContainer());
+        redis.listener = notifier;
+        provider = new RedisLockProvider(redis, notifier);
+    }
+
+    @Test
+    public void testReadersShare() {
+        DistributeReadWriteLock rw = provider.createReadWriteLock("stock:1");
+        DistributeLock first = rw.readLock();
+        DistributeLock second = rw.readLock();
+        assertTrue(first.lock(10000, 100));
+        assertTrue(second.lock(10000, 100));
+        assertFalse(rw.writeLock().lock(10000, 50));
+        assertFalse(provider.createLock("stock:1").lock(10000, 50));
+
+        first.release();
+        assertTrue(redis.exists("stock:1"));
+        assertEquals(0, redis.publishes.get());
+        second.release();
+        assertFalse(redis.exists("stock:1"));
+        assertEquals(1, redis.publishes.get());
+    }
+
+    @Test
+    public void testWriterExcludesAll() {
+        DistributeReadWriteLock rw = provider.createReadWriteLock("stock:2");
+        DistributeLock writer = rw.writeLock();
+        assertTrue(writer.lock(10000, 100));
+        assertFalse(rw.readLock().lock(10000, 50));
+        assertFalse(rw.writeLock().lock(10000, 50));
+        writer.release();
+        assertFalse(redis.exists("stock:2"));
+
+        // 被互斥锁持有时读锁和写锁都获取失败
+        DistributeLock exclusive = provider.createLock("stock:2");
+        assertTrue(exclusive.lock(10000, 100));
+        assertFalse(rw.readLock().lock(10000, 50));
+        assertFalse(rw.writeLock().lock(10000, 50));
+        exclusive.release();
+    }
+
+    @Test
+    public void testWriterWokenByLastReader() throws Exception {
+        notifier.setFallbackInterval(5000);
+        DistributeReadWriteLock rw = provider.createReadWriteLock("stock:3");
+        DistributeLock reader = rw.readLock();
+        assertTrue(reader.lock(10000, 100));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> waited = executor.submit(() -> {
+                DistributeLock writer = rw.writeLock();
+                long start = System.nanoTime();
+                assertTrue(writer.lock(10000, 5000));
+                long elapsed = System.nanoTime() - start;
+                writer.release();
+                return elapsed;
+            });
+            Thread.sleep(200);
+            reader.release();
+            assertTrue(waited.get(5, TimeUnit.SECONDS) < TimeUnit.MILLISECONDS.toNanos(2000));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, notifier.getWaitingKeyCount());
+    }
+
+    @Test
+    public void testReadLockRenewal() throws Exception {
+        try (LockRenewalScheduler scheduler = new LockRenewalScheduler(10)) {
+            DistributeReadWriteLock rw = new RedisLockProvider(redis, notifier, scheduler).createReadWriteLock("stock:4");
+            DistributeLock shortReader = rw.readLock();
+            DistributeLock longReader = rw.readLock();
+            assertTrue(longReader.lock(150, 100));
+            assertTrue(shortReader.lock(150, 100));
+            shortReader.release();
+            Thread.sleep(400);
+            assertTrue(redis.exists("stock:4"));
+            assertEquals(1, scheduler.getLeaseCount());
+            longReader.release();
+            assertFalse(redis.exists("stock:4"));
+        }
+    }
+
+    @Test
+    public void testNoReplyIsNotAcquired() {
+        redis.noReply = true;
+        // 等待通知和轮询两种获取方式
+        for (RedisLockProvider p : Arrays.asList(provider, new RedisLockProvider(redis))) {
+            DistributeReadWriteLock rw = p.createReadWriteLock("stock:5");
+            for (DistributeLock lock : Arrays.asList(rw.readLock(), rw.writeLock())) {
+                try {
+                    lock.lock(10000, 100);
+                    fail("expected LockException");
+                } catch (LockException e) {
+                    assertTrue(e.getMessage().startsWith("no reply while acquiring lock stock:5"));
+                }
+            }
+        }
+        assertEquals(0, notifier.getWaitingKeyCount());
+    }
+}
@@ -0,0 +1,106 @@
+package com.fantacya.kitty.ratelimiter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TokenBucketRateLimiter#tryAcquire(int)} on a limiter shared by 1, 8 and 64 threads,
+ * against a synchronized token bucket that refills on each call, the way Guava's RateLimiter does.
+ * <p>
+ * With a high rate most calls are granted and every call writes the shared state. With a low rate
+ * almost every call is rejected, which the lock-free limiter answers without writing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBucketRateLimiterBenchmark {
+
+    @Param({"1000000000", "1000"})
+    private double permitsPerSecond;
+
+    private TokenBucketRateLimiter lockFree;
+
+    private SynchronizedTokenBucket synchronizedBucket;
+
+    @Setup
+    public void setUp() {
+        lockFree = TokenBucketRateLimiter.create(permitsPerSecond, 1000);
+        synchronizedBucket = new SynchronizedTokenBucket(permitsPerSecond, 1000);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean lockFree1() {
+        return lockFree.tryAcquire(1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean lockFree8() {
+        return lockFree.tryAcquire(1);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean lockFree64() {
+        return lockFree.tryAcquire(1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean synchronized1() {
+        return synchronizedBucket.tryAcquire(1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean synchronized8() {
+        return synchronizedBucket.tryAcquire(1);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean synchronized64() {
+        return synchronizedBucket.tryAcquire(1);
+    }
+
+    private static final class SynchronizedTokenBucket {
+        private final double permitsPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        SynchronizedTokenBucket(double permitsPerSecond, int capacity) {
+            this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        synchronized boolean tryAcquire(int permits) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+            lastRefill = now;
+            if (tokens < permits) {
+                return false;
+            }
+            tokens -= permits;
+            return true;
+        }
+    }
+}
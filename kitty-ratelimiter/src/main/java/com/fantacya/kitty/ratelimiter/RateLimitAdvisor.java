@@ -0,0 +1,156 @@
+package com.fantacya.kitty.ratelimiter;
+
+import com.fantacya.kitty.aop.AbstractPlannedAnnotationMethodAdvisor;
+import com.fantacya.kitty.aop.AnnotationValidateException;
+import com.fantacya.kitty.aop.ExpressionEvaluator;
+import com.fantacya.kitty.aop.MethodExpression;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * @description: {@link RateLimited} 注解的切面。每个方法和key对应一个 {@link TokenBucketRateLimiter}，
+ * 保存在有数量上限的 {@link RateLimiterRegistry} 中。key表达式在方法匹配时编译；没有key的方法共用一个限流器，
+ * 直接保存在执行计划中
+ */
+public class RateLimitAdvisor extends AbstractPlannedAnnotationMethodAdvisor<RateLimited, RateLimitAdvisor.RateLimitPlan> {
+
+    public static final int DEFAULT_MAX_LIMITERS = 10000;
+
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+
+    private final RateLimiterRegistry<LimiterKey> registry;
+
+    public RateLimitAdvisor() {
+        this(DEFAULT_MAX_LIMITERS);
+    }
+
+    /**
+     * @param maxLimiters 限流器数量上限，超过时淘汰最近未使用的限流器
+     */
+    public RateLimitAdvisor(int maxLimiters) {
+        super(false, false, RateLimitAdvisor::validate);
+        this.registry = new RateLimiterRegistry<>(maxLimiters);
+    }
+
+    @Override
+    protected RateLimitPlan compile(Class<?> targetClass, Method method, RateLimited annotation) {
+        if (StringUtils.hasLength(annotation.key())) {
+            return new RateLimitPlan(annotation,
+                    evaluator.compile(annotation.key(), AopUtils.getMostSpecificMethod(method, targetClass)), null);
+        }
+        return new RateLimitPlan(annotation, null, createLimiter(annotation));
+    }
+
+    @Override
+    public Object invoke(ReflectiveMethodInvocation invocation, RateLimited annotation, RateLimitPlan plan) throws Throwable {
+        String key = "";
+        RateLimiter limiter = plan.limiter;
+        if (limiter == null) {
+            key = plan.key.getStringValue(invocation.getThis(), invocation.getArguments());
+            limiter = registry.get(new LimiterKey(plan, key), k -> createLimiter(k.plan.annotation));
+        }
+
+        boolean acquired = plan.timeout != null
+                ? limiter.tryAcquire(plan.permits, plan.timeout)
+                : limiter.tryAcquire(plan.permits);
+        if (!acquired) {
+            throw new RateLimitedException("rate limit exceeded, method=" + invocation.getMethod().getName() + ", key=" + key);
+        }
+        return invocation.proceed();
+    }
+
+    public RateLimiterRegistry<?> getRegistry() {
+        return registry;
+    }
+
+    private static RateLimiter createLimiter(RateLimited annotation) {
+        return annotation.capacity() > 0
+                ? TokenBucketRateLimiter.create(annotation.permitsPerSecond(), annotation.capacity())
+                : TokenBucketRateLimiter.create(annotation.permitsPerSecond());
+    }
+
+    private static void validate(Class<?> targetClass, Method method, RateLimited annotation) {
+        double permitsPerSecond = annotation.permitsPerSecond();
+        if (!(permitsPerSecond > 0 && permitsPerSecond <= TokenBucketRateLimiter.MAX_PERMITS_PER_SECOND)) {
+            throw new AnnotationValidateException("permitsPerSecond of @RateLimited must be > 0 and <= 1e9, method: " + method);
+        }
+        if (annotation.capacity() < 0) {
+            throw new AnnotationValidateException("capacity of @RateLimited must be >= 0, method: " + method);
+        }
+        int capacity = annotation.capacity() > 0 ? annotation.capacity() : TokenBucketRateLimiter.defaultCapacity(permitsPerSecond);
+        if (capacity > TokenBucketRateLimiter.maxCapacity(permitsPerSecond)) {
+            throw new AnnotationValidateException("capacity of @RateLimited must be <= "
+                    + TokenBucketRateLimiter.maxCapacity(permitsPerSecond) + " at this permitsPerSecond, method: " + method);
+        }
+        if (annotation.permits() <= 0 || annotation.permits() > capacity) {
+            throw new AnnotationValidateException("permits of @RateLimited must be > 0 and <= capacity, method: " + method);
+        }
+        if (annotation.timeout() < 0) {
+            throw new AnnotationValidateException("timeout of @RateLimited must be >= 0, method: " + method);
+        }
+    }
+
+    /**
+     * 方法的执行计划
+     */
+    public static final class RateLimitPlan {
+        private final RateLimited annotation;
+
+        /**
+         * 编译好的key表达式，没有key时为null
+         */
+        private final MethodExpression key;
+
+        /**
+         * 没有key时方法共用的限流器
+         */
+        private final RateLimiter limiter;
+
+        private final int permits;
+
+        /**
+         * 等待许可的超时时长，不等待时为null
+         */
+        private final Duration timeout;
+
+        RateLimitPlan(RateLimited annotation, MethodExpression key, RateLimiter limiter) {
+            this.annotation = annotation;
+            this.key = key;
+            this.limiter = limiter;
+            this.permits = annotation.permits();
+            this.timeout = annotation.timeout() > 0 ? Duration.ofMillis(annotation.timeout()) : null;
+        }
+    }
+
+    private static final class LimiterKey {
+        private final RateLimitPlan plan;
+        private final String key;
+
+        LimiterKey(RateLimitPlan plan, String key) {
+            this.plan = plan;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            LimiterKey that = (LimiterKey) o;
+            return plan == that.plan && Objects.equals(key, that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(plan) + Objects.hashCode(key);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.fantacya.kitty.ratelimiter;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @description: 对方法调用限流，每个key使用一个独立的令牌桶
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+
+    /**
+     * 限流的key，SpEL表达式，例如 {@code #tenantId}。为空时整个方法共用一个令牌桶。
+     * <p>表达式可以通过 {@code #root.object}、{@code #root.args} 访问目标对象和参数，
+     * 也可以通过 {@code #p0}、{@code #a0} 或参数名访问参数
+     * @return
+     */
+    String key() default "";
+
+    /**
+     * 每秒产生的许可数
+     * @return
+     */
+    double permitsPerSecond();
+
+    /**
+     * 令牌桶容量，即允许的突发调用数。为0时容量为一秒产生的许可数
+     * @return
+     */
+    int capacity() default 0;
+
+    /**
+     * 每次调用需要的许可数
+     * @return
+     */
+    int permits() default 1;
+
+    /**
+     * 等待许可的超时时长，单位毫秒。为0时不等待，许可不足立即失败
+     * @return
+     */
+    long timeout() default 0;
+}
@@ -0,0 +1,21 @@
+package com.fantacya.kitty.ratelimiter;
+
+/**
+ * @description: 调用被限流时抛出的异常
+ */
+public class RateLimitedException extends RuntimeException {
+    public RateLimitedException() {
+    }
+
+    public RateLimitedException(String message) {
+        super(message);
+    }
+
+    public RateLimitedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public RateLimitedException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,49 @@
+package com.fantacya.kitty.ratelimiter;
+
+import java.time.Duration;
+
+/**
+ * A rate limiter distributes permits at a configurable rate. Permits that are not used accumulate
+ * up to the capacity of the limiter, which bounds the size of a burst.
+ * <p>
+ * Permits are not released: acquiring permits only slows down the caller, or rejects it.
+ */
+public interface RateLimiter {
+
+    /**
+     * Acquires the given number of permits if they are available right away.
+     *
+     * @param permits the number of permits to acquire
+     * @return <code>true</code> if the permits were acquired, <code>false</code> otherwise
+     * @throws IllegalArgumentException if the number of permits is negative, zero, or larger than the capacity
+     */
+    boolean tryAcquire(int permits);
+
+    /**
+     * Acquires the given number of permits if they become available within the given timeout, waiting
+     * until then. Returns <code>false</code> right away if they cannot be available in time.
+     *
+     * @param permits the number of permits to acquire
+     * @param timeout the maximum time to wait for the permits
+     * @return <code>true</code> if the permits were acquired, <code>false</code> otherwise
+     * @throws InterruptedException     if the thread is interrupted while waiting, the permits are
+     *                                  acquired nevertheless
+     * @throws IllegalArgumentException if the number of permits is negative, zero, or larger than the capacity
+     */
+    boolean tryAcquire(int permits, Duration timeout) throws InterruptedException;
+
+    /**
+     * Acquires the given number of permits, waiting until they are available.
+     *
+     * @param permits the number of permits to acquire
+     * @throws InterruptedException     if the thread is interrupted while waiting, the permits are
+     *                                  acquired nevertheless
+     * @throws IllegalArgumentException if the number of permits is negative, zero, or larger than the capacity
+     */
+    void acquire(int permits) throws InterruptedException;
+
+    /**
+     * @return the number of permits that {@link #tryAcquire(int)} could acquire right now
+     */
+    int availablePermits();
+}
@@ -0,0 +1,110 @@
+package com.fantacya.kitty.ratelimiter;
+
+import com.fantacya.kitty.core.common.Preconditions;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * @description: 按key保存限流器，数量有上限。
+ * <p>超过上限时由插入的线程清扫。{@link TokenBucketRateLimiter} 只有令牌已满时才和新建的限流器等价，
+ * 因此只淘汰令牌已满的；仍有欠账的限流器不论是否被访问都保留，否则淘汰后重建会重置限流。
+ * 全部限流器都有欠账时数量会超过上限，欠账在 capacity / permitsPerSecond 秒内还清后下一次插入即可淘汰。
+ * 其它类型的限流器无法判断状态，按CLOCK（second chance）算法淘汰：查找时只设置访问标记，
+ * 淘汰上一轮清扫后没有被访问过的限流器。
+ * 清扫期间其它线程的查找和插入不受阻塞，因此数量可能短暂超过上限
+ */
+public class RateLimiterRegistry<K> {
+
+    private final ConcurrentHashMap<K, Entry> limiters;
+
+    private final int maxSize;
+
+    private final ReentrantLock sweepLock = new ReentrantLock();
+
+    /**
+     * @param maxSize 限流器数量上限
+     */
+    public RateLimiterRegistry(int maxSize) {
+        Preconditions.checkArgument(maxSize > 0, "maxSize must be > 0 but is %s", maxSize);
+        this.maxSize = maxSize;
+        this.limiters = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+    }
+
+    /**
+     * 获取key对应的限流器，不存在时创建
+     * @param key 限流key
+     * @param factory 创建限流器
+     * @return
+     */
+    public RateLimiter get(K key, Function<? super K, ? extends RateLimiter> factory) {
+        Entry entry = limiters.get(key);
+        if (entry != null) {
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            return entry.limiter;
+        }
+
+        entry = limiters.computeIfAbsent(key, k -> new Entry(factory.apply(k)));
+        if (limiters.size() > maxSize) {
+            sweep(entry);
+        }
+        return entry.limiter;
+    }
+
+    public int size() {
+        return limiters.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private void sweep(Entry inserted) {
+        if (!sweepLock.tryLock()) {
+            return;
+        }
+        try {
+            // 最多两轮：第一轮清除访问标记，第二轮可以淘汰其它类型的限流器
+            for (int round = 0; round < 2 && limiters.size() > maxSize; round++) {
+                Iterator<Map.Entry<K, Entry>> iterator = limiters.entrySet().iterator();
+                while (iterator.hasNext() && limiters.size() > maxSize) {
+                    Entry entry = iterator.next().getValue();
+                    if (entry == inserted) {
+                        continue;
+                    }
+                    if (entry.isEvictable()) {
+                        iterator.remove();
+                    } else if (entry.referenced) {
+                        entry.referenced = false;
+                    }
+                }
+            }
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private static final class Entry {
+        private final RateLimiter limiter;
+        /**
+         * 令牌桶的容量，其它类型的限流器为-1
+         */
+        private final int capacity;
+        private volatile boolean referenced;
+
+        Entry(RateLimiter limiter) {
+            this.limiter = limiter;
+            this.capacity = limiter instanceof TokenBucketRateLimiter
+                    ? ((TokenBucketRateLimiter) limiter).getCapacity() : -1;
+        }
+
+        boolean isEvictable() {
+            return capacity < 0 ? !referenced : limiter.availablePermits() >= capacity;
+        }
+    }
+}
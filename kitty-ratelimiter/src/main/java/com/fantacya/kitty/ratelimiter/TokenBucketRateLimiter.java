@@ -0,0 +1,183 @@
+package com.fantacya.kitty.ratelimiter;
+
+import com.fantacya.kitty.core.common.Preconditions;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A lock-free token bucket.
+ * <p>
+ * The tokens and the time of the last refill are folded into a single long: the time at which the
+ * bucket becomes full again, in nanoseconds relative to the creation of the limiter. The number of
+ * tokens at time <code>now</code> is <code>capacity - (full - now) / interval</code>, so taking
+ * <code>n</code> tokens moves that time <code>n * interval</code> further, and a bucket whose time is
+ * in the past is full. Every operation is a single compare-and-set on that long, and requests that
+ * are rejected do not write it at all.
+ * <p>
+ * Waiting callers reserve their tokens before they sleep, so waiters are served in the order in
+ * which they arrived and a waiter cannot be starved by callers that do not wait.
+ */
+public final class TokenBucketRateLimiter implements RateLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The highest supported rate, one permit per nanosecond.
+     */
+    public static final double MAX_PERMITS_PER_SECOND = NANOS_PER_SECOND;
+
+    private final double permitsPerSecond;
+    private final int capacity;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final LongSupplier ticker;
+    private final Sleeper sleeper;
+    private final long origin;
+    /**
+     * time at which the bucket is full, relative to {@link #origin}
+     */
+    private final AtomicLong fullAt;
+
+    TokenBucketRateLimiter(double permitsPerSecond, int capacity, LongSupplier ticker, Sleeper sleeper) {
+        Preconditions.checkArgument(permitsPerSecond > 0 && permitsPerSecond <= MAX_PERMITS_PER_SECOND,
+                "permitsPerSecond must be > 0 and <= 1e9 but is %s", permitsPerSecond);
+        Preconditions.checkArgument(capacity > 0, "capacity must be > 0 but is %s", capacity);
+        Preconditions.checkArgument(capacity <= maxCapacity(permitsPerSecond),
+                "capacity must be <= %s at %s permits per second but is %s", maxCapacity(permitsPerSecond), permitsPerSecond, capacity);
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = capacity;
+        this.intervalNanos = intervalNanos(permitsPerSecond);
+        this.burstNanos = capacity * intervalNanos;
+        this.ticker = Objects.requireNonNull(ticker);
+        this.sleeper = Objects.requireNonNull(sleeper);
+        this.origin = ticker.getAsLong();
+        this.fullAt = new AtomicLong(0L);
+    }
+
+    /**
+     * Creates a limiter that can burst one second worth of permits.
+     *
+     * @param permitsPerSecond the rate at which permits are produced
+     */
+    public static TokenBucketRateLimiter create(double permitsPerSecond) {
+        return create(permitsPerSecond, defaultCapacity(permitsPerSecond));
+    }
+
+    /**
+     * @param permitsPerSecond the rate at which permits are produced
+     * @return the capacity used by {@link #create(double)}, one second worth of permits and at least one
+     */
+    public static int defaultCapacity(double permitsPerSecond) {
+        return (int) Math.max(1L, Math.min(Integer.MAX_VALUE, (long) permitsPerSecond));
+    }
+
+    /**
+     * Very low rates with a large capacity would overflow the burst window.
+     *
+     * @param permitsPerSecond the rate at which permits are produced, in (0, {@link #MAX_PERMITS_PER_SECOND}]
+     * @return the largest capacity supported at that rate
+     */
+    public static long maxCapacity(double permitsPerSecond) {
+        return Long.MAX_VALUE / intervalNanos(permitsPerSecond);
+    }
+
+    private static long intervalNanos(double permitsPerSecond) {
+        return Math.max(1L, Math.round(NANOS_PER_SECOND / permitsPerSecond));
+    }
+
+    /**
+     * Creates a limiter that starts full.
+     *
+     * @param permitsPerSecond the rate at which permits are produced
+     * @param capacity         the maximum number of permits that accumulate while unused
+     */
+    public static TokenBucketRateLimiter create(double permitsPerSecond, int capacity) {
+        return new TokenBucketRateLimiter(permitsPerSecond, capacity, System::nanoTime, TimeUnit.NANOSECONDS::sleep);
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        long cost = cost(permits);
+        long now = now();
+        for (; ; ) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + cost;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(int permits, Duration timeout) throws InterruptedException {
+        Objects.requireNonNull(timeout, "timeout may not be null");
+        return reserveAndWait(cost(permits), timeout.isNegative() ? 0L : timeout.toNanos());
+    }
+
+    @Override
+    public void acquire(int permits) throws InterruptedException {
+        reserveAndWait(cost(permits), Long.MAX_VALUE);
+    }
+
+    @Override
+    public int availablePermits() {
+        long now = now();
+        long debt = Math.max(fullAt.get(), now) - now;
+        // acquire() may reserve past the capacity, leaving no permits until the debt is back under burstNanos
+        return (int) Math.max(0L, (burstNanos - debt) / intervalNanos);
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private boolean reserveAndWait(long cost, long timeoutNanos) throws InterruptedException {
+        long now = now();
+        long waitNanos;
+        for (; ; ) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + cost;
+            waitNanos = next - now - burstNanos;
+            if (waitNanos > timeoutNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        if (waitNanos > 0) {
+            sleeper.sleep(waitNanos);
+        }
+        return true;
+    }
+
+    private long cost(int permits) {
+        Preconditions.checkArgument(permits > 0 && permits <= capacity,
+                "permits must be > 0 and <= %s but is %s", capacity, permits);
+        return permits * intervalNanos;
+    }
+
+    private long now() {
+        return ticker.getAsLong() - origin;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TokenBucketRateLimiter[permitsPerSecond=%s, capacity=%d]", permitsPerSecond, capacity);
+    }
+
+    interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+}
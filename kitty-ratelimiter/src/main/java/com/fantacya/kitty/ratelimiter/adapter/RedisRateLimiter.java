@@ -0,0 +1,225 @@
+package com.fantacya.kitty.ratelimiter.adapter;
+
+import com.fantacya.kitty.core.common.Preconditions;
+import com.fantacya.kitty.ratelimiter.RateLimiter;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @description: 基于Redis的集群限流器，所有实例共享同一个令牌桶。
+ * <p>令牌桶使用GCRA算法保存为一个值：令牌桶重新填满的时间，以Redis服务器的时钟（{@code TIME}）为准，
+ * 因此不受各实例时钟偏差影响。每次获取许可只执行一次Lua脚本，即一次网络往返。
+ * <p>设置了 {@code leaseSize} 时，限流器一次从Redis预取最多 {@code leaseSize} 个许可，在本地分配，
+ * 减少对Redis的调用。未用完的许可在 {@code leaseTime} 后作废，以免某个实例长期占用许可；
+ * 预取的许可已经计入Redis中的令牌桶，因此全局限流不会被突破，代价是许可可能没有被充分使用。
+ */
+public class RedisRateLimiter implements RateLimiter {
+
+    /**
+     * KEYS[1]: 令牌桶的key
+     * ARGV[1]: 产生一个许可的间隔，微秒
+     * ARGV[2]: 令牌桶容量对应的时长，微秒
+     * ARGV[3]: 最少获取的许可数，为0时只查询可用的许可数
+     * ARGV[4]: 最多获取的许可数
+     * 返回获取的许可数；许可不足时返回负数，其绝对值为需要等待的微秒数
+     */
+    private static final String SCRIPT_TEXT = "redis.replicate_commands()\n"
+            + "local t = redis.call('TIME')\n"
+            + "local now = tonumber(t[1]) * 1000000 + tonumber(t[2])\n"
+            + "local interval = tonumber(ARGV[1])\n"
+            + "local burst = tonumber(ARGV[2])\n"
+            + "local min = tonumber(ARGV[3])\n"
+            + "local max = tonumber(ARGV[4])\n"
+            + "local tat = tonumber(redis.call('GET', KEYS[1]) or now)\n"
+            + "if tat < now then tat = now end\n"
+            + "local available = math.floor((burst - (tat - now)) / interval)\n"
+            + "if min == 0 then return available end\n"
+            + "if available < min then return -(tat + min * interval - burst - now) end\n"
+            + "local granted = math.min(available, max)\n"
+            + "tat = tat + granted * interval\n"
+            + "redis.call('SET', KEYS[1], string.format('%.0f', tat), 'PX', math.ceil((tat - now) / 1000) + 1)\n"
+            + "return granted\n";
+
+    private static final RedisScript<Long> SCRIPT = new DefaultRedisScript<>(SCRIPT_TEXT, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final List<String> keys;
+
+    private final int capacity;
+
+    private final String intervalMicros;
+
+    private final String burstMicros;
+
+    private final int leaseSize;
+
+    private final long leaseNanos;
+
+    private volatile Lease lease;
+
+    /**
+     * 构造不预取许可的限流器
+     * @param redisTemplate redis
+     * @param key 令牌桶的key
+     * @param permitsPerSecond 每秒产生的许可数
+     * @param capacity 令牌桶容量
+     */
+    public RedisRateLimiter(@NonNull StringRedisTemplate redisTemplate, @NonNull String key,
+                            double permitsPerSecond, int capacity) {
+        this(redisTemplate, key, permitsPerSecond, capacity, 0, Duration.ZERO);
+    }
+
+    /**
+     * @param redisTemplate redis
+     * @param key 令牌桶的key
+     * @param permitsPerSecond 每秒产生的许可数
+     * @param capacity 令牌桶容量
+     * @param leaseSize 每次从Redis预取的最大许可数，为0时不预取
+     * @param leaseTime 预取的许可的有效期
+     */
+    public RedisRateLimiter(@NonNull StringRedisTemplate redisTemplate, @NonNull String key,
+                            double permitsPerSecond, int capacity, int leaseSize, @NonNull Duration leaseTime) {
+        Assert.hasLength(key, "key must not be empty");
+        Preconditions.checkArgument(permitsPerSecond > 0 && permitsPerSecond <= TimeUnit.SECONDS.toMicros(1),
+                "permitsPerSecond must be > 0 and <= 1e6 but is %s", permitsPerSecond);
+        Preconditions.checkArgument(capacity > 0, "capacity must be > 0 but is %s", capacity);
+        Preconditions.checkArgument(leaseSize >= 0 && leaseSize <= capacity,
+                "leaseSize must be >= 0 and <= capacity but is %s", leaseSize);
+        Objects.requireNonNull(leaseTime, "leaseTime may not be null");
+        Preconditions.checkArgument(leaseSize == 0 || !(leaseTime.isNegative() || leaseTime.isZero()),
+                "leaseTime must be > 0 but is %s", leaseTime);
+        this.redisTemplate = Objects.requireNonNull(redisTemplate);
+        this.keys = Collections.singletonList(key);
+        this.capacity = capacity;
+        long interval = Math.max(1L, Math.round(TimeUnit.SECONDS.toMicros(1) / permitsPerSecond));
+        this.intervalMicros = String.valueOf(interval);
+        this.burstMicros = String.valueOf(interval * capacity);
+        this.leaseSize = leaseSize;
+        this.leaseNanos = leaseTime.toNanos();
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        return acquireOrWait(permits) == 0L;
+    }
+
+    @Override
+    public boolean tryAcquire(int permits, Duration timeout) throws InterruptedException {
+        Objects.requireNonNull(timeout, "timeout may not be null");
+        long deadline = System.nanoTime() + Math.max(0L, timeout.toNanos());
+        for (; ; ) {
+            long waitNanos = acquireOrWait(permits);
+            if (waitNanos == 0L) {
+                return true;
+            }
+            if (System.nanoTime() + waitNanos - deadline > 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    @Override
+    public void acquire(int permits) throws InterruptedException {
+        for (; ; ) {
+            long waitNanos = acquireOrWait(permits);
+            if (waitNanos == 0L) {
+                return;
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * 可用的许可数，包括本地预取的许可。需要访问Redis
+     */
+    @Override
+    public int availablePermits() {
+        long available = eval(0, 0);
+        Lease current = lease;
+        int leased = current != null && current.isValid(System.nanoTime()) ? current.remaining.get() : 0;
+        return (int) Math.min(capacity, available + leased);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return 0 if the permits were acquired, or the nanoseconds to wait before they may be available
+     */
+    private long acquireOrWait(int permits) {
+        Preconditions.checkArgument(permits > 0 && permits <= capacity,
+                "permits must be > 0 and <= %s but is %s", capacity, permits);
+        if (leaseSize == 0 || permits > leaseSize) {
+            long granted = eval(permits, permits);
+            return granted > 0 ? 0L : waitNanos(granted);
+        }
+
+        Lease current = lease;
+        if (current != null && current.isValid(System.nanoTime()) && current.take(permits)) {
+            return 0L;
+        }
+        long requested = System.nanoTime();
+        long granted = eval(permits, leaseSize);
+        if (granted <= 0) {
+            return waitNanos(granted);
+        }
+        if (granted > permits) {
+            // 许可的有效期从发出请求开始计算，保守估计
+            lease = new Lease((int) (granted - permits), requested + leaseNanos);
+        }
+        return 0L;
+    }
+
+    private long eval(int min, int max) {
+        Long result = redisTemplate.execute(SCRIPT, keys, intervalMicros, burstMicros,
+                String.valueOf(min), String.valueOf(max));
+        if (result == null) {
+            // 在pipeline或事务中执行时没有结果，无法判断是否获取到许可
+            throw new IllegalStateException("rate limit script returned no result for key " + keys.get(0));
+        }
+        return result;
+    }
+
+    private static long waitNanos(long result) {
+        return TimeUnit.MICROSECONDS.toNanos(-result);
+    }
+
+    private static final class Lease {
+        private final AtomicInteger remaining;
+        private final long expiresAt;
+
+        Lease(int permits, long expiresAt) {
+            this.remaining = new AtomicInteger(permits);
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isValid(long now) {
+            return now - expiresAt < 0;
+        }
+
+        boolean take(int permits) {
+            for (; ; ) {
+                int current = remaining.get();
+                if (current < permits) {
+                    return false;
+                }
+                if (remaining.compareAndSet(current, current - permits)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
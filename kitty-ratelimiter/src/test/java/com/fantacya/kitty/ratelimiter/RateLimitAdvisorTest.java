@@ -0,0 +1,131 @@
+package com.fantacya.kitty.ratelimiter;
+
+import com.fantacya.kitty.aop.AnnotationValidateException;
+import com.fantacya.kitty.aop.DeferredAnnotationValidation;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RateLimitAdvisorTest {
+
+    private RateLimitAdvisor advisor;
+
+    private TenantService service;
+
+    @Before
+    public void setUp() throws Exception {
+        advisor = new RateLimitAdvisor(100);
+        advisor.afterPropertiesSet();
+        service = proxy(new TenantService(), advisor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(T target, RateLimitAdvisor advisor) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(advisor);
+        return (T) factory.getProxy();
+    }
+
+    @Test
+    public void testLimitsPerKey() {
+        assertEquals("a", service.query("a"));
+        assertEquals("a", service.query("a"));
+        try {
+            service.query("a");
+            fail("Expected rate limited exception");
+        } catch (RateLimitedException e) {
+            assertEquals("rate limit exceeded, method=query, key=tenant:a", e.getMessage());
+        }
+        assertEquals("b", service.query("b"));
+        assertEquals(2, advisor.getRegistry().size());
+    }
+
+    @Test
+    public void testLimitsPerMethod() {
+        assertEquals(1, service.ping());
+        try {
+            service.ping();
+            fail("Expected rate limited exception");
+        } catch (RateLimitedException e) {
+            assertEquals("rate limit exceeded, method=ping, key=", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testNotAdvised() {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, service.echo(i));
+        }
+        assertEquals(0, advisor.getRegistry().size());
+    }
+
+    @Test
+    public void testInvalidAnnotation() throws Exception {
+        for (String name : new String[]{"call", "tooFast", "tooLarge"}) {
+            try {
+                advisor.getPointcut().getMethodMatcher().matches(InvalidService.class.getMethod(name), InvalidService.class);
+                fail("Expected annotation validate exception for " + name);
+            } catch (AnnotationValidateException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testDeferredValidation() throws Exception {
+        DeferredAnnotationValidation validation = new DeferredAnnotationValidation();
+        RateLimitAdvisor deferred = new RateLimitAdvisor(100);
+        deferred.setDeferredValidation(validation);
+        deferred.afterPropertiesSet();
+        for (String name : new String[]{"call", "tooFast", "tooLarge"}) {
+            assertTrue(deferred.getPointcut().getMethodMatcher().matches(InvalidService.class.getMethod(name), InvalidService.class));
+        }
+        try {
+            validation.validate();
+            fail("Expected annotation validate exception");
+        } catch (AnnotationValidateException e) {
+            assertTrue(e.getMessage().startsWith("3 annotation validation(s) failed:"));
+        }
+
+        TenantService tenants = proxy(new TenantService(), deferred);
+        assertEquals("a", tenants.query("a"));
+        assertEquals(1, tenants.ping());
+    }
+
+    public static class TenantService {
+
+        @RateLimited(key = "'tenant:' + #p0", permitsPerSecond = 0.001, capacity = 2)
+        public String query(String tenant) {
+            return tenant;
+        }
+
+        @RateLimited(permitsPerSecond = 0.001, capacity = 1)
+        public int ping() {
+            return 1;
+        }
+
+        public int echo(int i) {
+            return i;
+        }
+    }
+
+    public static class InvalidService {
+
+        @RateLimited(permitsPerSecond = 1, permits = 2)
+        public void call() {
+        }
+
+        @RateLimited(permitsPerSecond = 2e9)
+        public void tooFast() {
+        }
+
+        @RateLimited(permitsPerSecond = 1e-9, capacity = 10)
+        public void tooLarge() {
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.fantacya.kitty.ratelimiter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RateLimiterRegistryTest {
+
+    @Test
+    public void testReturnsSameLimiterForKey() {
+        RateLimiterRegistry<String> registry = new RateLimiterRegistry<>(10);
+        RateLimiter limiter = registry.get("a", k -> TokenBucketRateLimiter.create(1));
+        assertSame(limiter, registry.get("a", k -> TokenBucketRateLimiter.create(1)));
+        assertNotSame(limiter, registry.get("b", k -> TokenBucketRateLimiter.create(1)));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void testBoundedSize() {
+        RateLimiterRegistry<Integer> registry = new RateLimiterRegistry<>(100);
+        for (int i = 0; i < 10000; i++) {
+            registry.get(i, k -> TokenBucketRateLimiter.create(1));
+        }
+        assertTrue(registry.size() <= 100);
+    }
+
+    @Test
+    public void testKeepsDepletedLimitersInUse() {
+        RateLimiterRegistry<Integer> registry = new RateLimiterRegistry<>(10);
+        RateLimiter hot = registry.get(-1, k -> TokenBucketRateLimiter.create(1, 1));
+        assertTrue(hot.tryAcquire(1));
+        for (int i = 0; i < 1000; i++) {
+            assertSame(hot, registry.get(-1, k -> TokenBucketRateLimiter.create(1, 1)));
+            registry.get(i, k -> TokenBucketRateLimiter.create(1, 1));
+        }
+        assertSame(hot, registry.get(-1, k -> TokenBucketRateLimiter.create(1, 1)));
+    }
+
+    @Test
+    public void testKeepsDepletedLimitersNotInUse() {
+        RateLimiterRegistry<Integer> registry = new RateLimiterRegistry<>(10);
+        RateLimiter depleted = registry.get(-1, k -> TokenBucketRateLimiter.create(1, 1));
+        assertTrue(depleted.tryAcquire(1));
+        for (int i = 0; i < 1000; i++) {
+            registry.get(i, k -> TokenBucketRateLimiter.create(1, 1));
+        }
+        assertTrue(registry.size() <= 10);
+        assertSame(depleted, registry.get(-1, k -> TokenBucketRateLimiter.create(1, 1)));
+        assertFalse(depleted.tryAcquire(1));
+    }
+
+    @Test
+    public void testInvalidMaxSize() {
+        try {
+            new RateLimiterRegistry<String>(0);
+            fail("Expected illegal argument exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("maxSize must be > 0 but is 0", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.fantacya.kitty.ratelimiter;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TokenBucketRateLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong(123456789L);
+    private final AtomicLong slept = new AtomicLong();
+
+    private TokenBucketRateLimiter limiter(double permitsPerSecond, int capacity) {
+        return new TokenBucketRateLimiter(permitsPerSecond, capacity, nanos::get, n -> {
+            slept.addAndGet(n);
+            nanos.addAndGet(n);
+        });
+    }
+
+    private void advance(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    public void testStartsFull() {
+        TokenBucketRateLimiter limiter = limiter(10, 5);
+        assertEquals(5, limiter.availablePermits());
+        assertTrue(limiter.tryAcquire(3));
+        assertTrue(limiter.tryAcquire(2));
+        assertFalse(limiter.tryAcquire(1));
+        assertEquals(0, limiter.availablePermits());
+    }
+
+    @Test
+    public void testRefillsAtRate() {
+        TokenBucketRateLimiter limiter = limiter(10, 5);
+        assertTrue(limiter.tryAcquire(5));
+        advance(99);
+        assertFalse(limiter.tryAcquire(1));
+        advance(1);
+        assertTrue(limiter.tryAcquire(1));
+        assertFalse(limiter.tryAcquire(1));
+        advance(250);
+        assertEquals(2, limiter.availablePermits());
+    }
+
+    @Test
+    public void testDoesNotAccumulateBeyondCapacity() {
+        TokenBucketRateLimiter limiter = limiter(10, 5);
+        advance(TimeUnit.HOURS.toMillis(1));
+        assertEquals(5, limiter.availablePermits());
+        assertTrue(limiter.tryAcquire(5));
+        assertFalse(limiter.tryAcquire(1));
+    }
+
+    @Test
+    public void testTryAcquireWithTimeoutWaits() throws InterruptedException {
+        TokenBucketRateLimiter limiter = limiter(10, 5);
+        assertTrue(limiter.tryAcquire(5));
+        assertFalse(limiter.tryAcquire(2, Duration.ofMillis(199)));
+        assertEquals(0, slept.get());
+        assertTrue(limiter.tryAcquire(2, Duration.ofMillis(200)));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), slept.get());
+        assertFalse(limiter.tryAcquire(1));
+    }
+
+    @Test
+    public void testAcquireReservesInArrivalOrder() throws InterruptedException {
+        TokenBucketRateLimiter limiter = limiter(10, 1);
+        limiter.acquire(1);
+        assertEquals(0, slept.get());
+        limiter.acquire(1);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), slept.get());
+        limiter.acquire(1);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), slept.get());
+    }
+
+    @Test
+    public void testNoNegativePermitsWhileReserved() throws InterruptedException {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, nanos::get, n -> {
+        });
+        limiter.acquire(1);
+        limiter.acquire(1);
+        limiter.acquire(1);
+        assertEquals(0, limiter.availablePermits());
+        advance(299);
+        assertEquals(0, limiter.availablePermits());
+        advance(1);
+        assertEquals(1, limiter.availablePermits());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        TokenBucketRateLimiter limiter = limiter(10, 5);
+        try {
+            limiter.tryAcquire(6);
+            fail("Expected illegal argument exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("permits must be > 0 and <= 5 but is 6", e.getMessage());
+        }
+        try {
+            limiter.tryAcquire(0);
+            fail("Expected illegal argument exception");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            TokenBucketRateLimiter.create(0);
+            fail("Expected illegal argument exception");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            limiter(1e-9, 10);
+            fail("Expected illegal argument exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("capacity must be <= 9 at 1.0E-9 permits per second but is 10", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testConcurrentCallersNeverExceedCapacity() throws InterruptedException {
+        TokenBucketRateLimiter limiter = limiter(1, 1000);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 1000; j++) {
+                    if (limiter.tryAcquire(1)) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1000, granted.get());
+    }
+}
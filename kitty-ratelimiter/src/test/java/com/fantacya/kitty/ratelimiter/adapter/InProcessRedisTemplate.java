@@ -0,0 +1,56 @@
+package com.fantacya.kitty.ratelimiter.adapter;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stands in for Redis in tests: runs the rate limiter script in Java against an in-memory map,
+ * with a clock that only moves when told to.
+ */
+class InProcessRedisTemplate extends StringRedisTemplate {
+
+    private final Map<String, Long> values = new HashMap<>();
+
+    final AtomicInteger scriptCalls = new AtomicInteger();
+
+    private long nowMicros = 1565489000000000L;
+
+    /**
+     * Makes scripts return null, as they do inside a pipeline or transaction.
+     */
+    volatile boolean noResult;
+
+    synchronized void advanceMillis(long millis) {
+        nowMicros += millis * 1000;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        scriptCalls.incrementAndGet();
+        if (noResult) {
+            return null;
+        }
+        long interval = Long.parseLong((String) args[0]);
+        long burst = Long.parseLong((String) args[1]);
+        long min = Long.parseLong((String) args[2]);
+        long max = Long.parseLong((String) args[3]);
+
+        long tat = Math.max(values.getOrDefault(keys.get(0), nowMicros), nowMicros);
+        long available = Math.floorDiv(burst - (tat - nowMicros), interval);
+        if (min == 0) {
+            return (T) Long.valueOf(available);
+        }
+        if (available < min) {
+            return (T) Long.valueOf(-(tat + min * interval - burst - nowMicros));
+        }
+        long granted = Math.min(available, max);
+        values.put(keys.get(0), tat + granted * interval);
+        return (T) Long.valueOf(granted);
+    }
+}
@@ -0,0 +1,110 @@
+package com.fantacya.kitty.ratelimiter.adapter;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RedisRateLimiterTest {
+
+    private final InProcessRedisTemplate redis = new InProcessRedisTemplate();
+
+    @Test
+    public void testSharedBucket() {
+        RedisRateLimiter first = new RedisRateLimiter(redis, "quota", 10, 5);
+        RedisRateLimiter second = new RedisRateLimiter(redis, "quota", 10, 5);
+        assertTrue(first.tryAcquire(3));
+        assertTrue(second.tryAcquire(2));
+        assertFalse(first.tryAcquire(1));
+        assertFalse(second.tryAcquire(1));
+        assertEquals(0, first.availablePermits());
+
+        redis.advanceMillis(100);
+        assertTrue(second.tryAcquire(1));
+        assertFalse(first.tryAcquire(1));
+        assertEquals(7, redis.scriptCalls.get());
+    }
+
+    @Test
+    public void testOneScriptCallPerDecision() {
+        RedisRateLimiter limiter = new RedisRateLimiter(redis, "quota", 10, 5);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire(1);
+        }
+        assertEquals(10, redis.scriptCalls.get());
+    }
+
+    @Test
+    public void testLeaseAmortizesScriptCalls() {
+        RedisRateLimiter limiter = new RedisRateLimiter(redis, "quota", 100, 100, 10, Duration.ofMinutes(1));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire(1));
+        }
+        assertFalse(limiter.tryAcquire(1));
+        assertEquals(11, redis.scriptCalls.get());
+    }
+
+    @Test
+    public void testLeasedPermitsCountAgainstGlobalQuota() {
+        RedisRateLimiter leasing = new RedisRateLimiter(redis, "quota", 10, 10, 8, Duration.ofMinutes(1));
+        RedisRateLimiter other = new RedisRateLimiter(redis, "quota", 10, 10);
+        assertTrue(leasing.tryAcquire(1));
+        assertTrue(other.tryAcquire(2));
+        assertFalse(other.tryAcquire(1));
+        for (int i = 0; i < 7; i++) {
+            assertTrue(leasing.tryAcquire(1));
+        }
+        assertFalse(leasing.tryAcquire(1));
+    }
+
+    @Test
+    public void testExpiredLeaseIsDropped() throws InterruptedException {
+        RedisRateLimiter limiter = new RedisRateLimiter(redis, "quota", 1000, 1000, 10, Duration.ofMillis(1));
+        assertTrue(limiter.tryAcquire(1));
+        Thread.sleep(5);
+        assertTrue(limiter.tryAcquire(1));
+        assertEquals(2, redis.scriptCalls.get());
+    }
+
+    @Test
+    public void testTryAcquireWithTimeout() throws InterruptedException {
+        RedisRateLimiter limiter = new RedisRateLimiter(redis, "quota", 0.01, 1);
+        assertTrue(limiter.tryAcquire(1));
+        // the next permit is 100 seconds away
+        assertFalse(limiter.tryAcquire(1, Duration.ofMillis(10)));
+        assertEquals(2, redis.scriptCalls.get());
+    }
+
+    @Test
+    public void testNoScriptResult() throws InterruptedException {
+        RedisRateLimiter limiter = new RedisRateLimiter(redis, "quota", 10, 5);
+        redis.noResult = true;
+        try {
+            limiter.acquire(1);
+            fail("Expected illegal state exception");
+        } catch (IllegalStateException e) {
+            assertEquals("rate limit script returned no result for key quota", e.getMessage());
+        }
+        assertEquals(1, redis.scriptCalls.get());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        try {
+            new RedisRateLimiter(redis, "quota", 10, 5, 6, Duration.ofSeconds(1));
+            fail("Expected illegal argument exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("leaseSize must be >= 0 and <= capacity but is 6", e.getMessage());
+        }
+        try {
+            new RedisRateLimiter(redis, "quota", 10, 5).tryAcquire(6);
+            fail("Expected illegal argument exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("permits must be > 0 and <= 5 but is 6", e.getMessage());
+        }
+    }
+}
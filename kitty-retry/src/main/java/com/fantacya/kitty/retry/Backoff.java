@@ -0,0 +1,31 @@
+package com.fantacya.kitty.retry;
+
+/**
+ * @description: 重试之间的等待策略，对应 {@link com.fantacya.kitty.concurrent.retry.WaitStrategies}
+ */
+public enum Backoff {
+    /**
+     * 每次等待 {@link Retryable#delay()}
+     */
+    FIXED,
+
+    /**
+     * 在 {@link Retryable#delay()} 和 {@link Retryable#maxDelay()} 之间随机等待
+     */
+    RANDOM,
+
+    /**
+     * 第n次重试等待 n * {@link Retryable#delay()}
+     */
+    INCREMENTING,
+
+    /**
+     * 第n次重试等待 {@link Retryable#delay()} * 2^n，不超过 {@link Retryable#maxDelay()}
+     */
+    EXPONENTIAL,
+
+    /**
+     * 第n次重试等待 {@link Retryable#delay()} * fibonacci(n)，不超过 {@link Retryable#maxDelay()}
+     */
+    FIBONACCI
+}
@@ -0,0 +1,133 @@
+package com.fantacya.kitty.retry;
+
+import com.fantacya.kitty.aop.AbstractPlannedAnnotationMethodAdvisor;
+import com.fantacya.kitty.aop.AnnotationValidateException;
+import com.fantacya.kitty.concurrent.retry.Attempt;
+import com.fantacya.kitty.concurrent.retry.AttemptTimeLimiters;
+import com.fantacya.kitty.concurrent.retry.RetryException;
+import com.fantacya.kitty.concurrent.retry.Retryer;
+import com.fantacya.kitty.concurrent.retry.RetryerBuilder;
+import com.fantacya.kitty.concurrent.retry.StopStrategies;
+import com.fantacya.kitty.concurrent.retry.StopStrategy;
+import com.fantacya.kitty.concurrent.retry.WaitStrategies;
+import com.fantacya.kitty.concurrent.retry.WaitStrategy;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description: {@link Retryable} 注解的切面。每个方法的 {@link Retryer} 作为执行计划在匹配时构建，拦截时直接使用。
+ * 重试失败时抛出最后一次调用的异常
+ */
+public class RetryAdvisor extends AbstractPlannedAnnotationMethodAdvisor<Retryable, Retryer<Object>> {
+
+    public RetryAdvisor() {
+        super(false, false, RetryAdvisor::validate);
+    }
+
+    @Override
+    protected Retryer<Object> compile(Class<?> targetClass, Method method, Retryable annotation) {
+        return buildRetryer(annotation);
+    }
+
+    @Override
+    public Object invoke(ReflectiveMethodInvocation invocation, Retryable annotation, Retryer<Object> retryer) throws Throwable {
+        try {
+            return retryer.call(() -> proceed(invocation));
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (RetryException e) {
+            Attempt<?> lastAttempt = e.getLastFailedAttempt();
+            if (lastAttempt.hasException()) {
+                throw unwrap(lastAttempt.getExceptionCause());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 每次调用都从当前拦截器的位置继续执行，以便多次调用
+     */
+    private static Object proceed(ReflectiveMethodInvocation invocation) throws Exception {
+        try {
+            return invocation.invocableClone().proceed();
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        if (t instanceof UndeclaredThrowableException && t.getCause() != null) {
+            return t.getCause();
+        }
+        return t;
+    }
+
+    static Retryer<Object> buildRetryer(Retryable annotation) {
+        RetryerBuilder<Object> builder = RetryerBuilder.newBuilder();
+        if (annotation.retryOn().length == 0) {
+            builder.retryIfException();
+        } else {
+            for (Class<? extends Throwable> type : annotation.retryOn()) {
+                builder.retryIfExceptionOfType(type);
+            }
+        }
+
+        StopStrategy stopStrategy = StopStrategies.stopAfterAttempt(annotation.maxAttempts());
+        if (annotation.stopAfter() > 0) {
+            StopStrategy afterAttempt = stopStrategy;
+            StopStrategy afterDelay = StopStrategies.stopAfterDelay(Duration.ofMillis(annotation.stopAfter()));
+            stopStrategy = attempt -> afterAttempt.shouldStop(attempt) || afterDelay.shouldStop(attempt);
+        }
+        builder.withStopStrategy(stopStrategy);
+        builder.withWaitStrategy(waitStrategy(annotation));
+
+        if (annotation.attemptTimeout() > 0) {
+            builder.withAttemptTimeLimiter(AttemptTimeLimiters.interruptingTimeLimit(
+                    Duration.ofMillis(annotation.attemptTimeout())));
+        }
+        return builder.build();
+    }
+
+    private static WaitStrategy waitStrategy(Retryable annotation) {
+        long delay = annotation.delay();
+        long maxDelay = annotation.maxDelay() > 0 ? annotation.maxDelay() : Long.MAX_VALUE;
+        switch (annotation.backoff()) {
+            case RANDOM:
+                return WaitStrategies.randomWait(delay, TimeUnit.MILLISECONDS, maxDelay, TimeUnit.MILLISECONDS);
+            case INCREMENTING:
+                return WaitStrategies.incrementingWait(delay, TimeUnit.MILLISECONDS, delay, TimeUnit.MILLISECONDS);
+            case EXPONENTIAL:
+                return WaitStrategies.exponentialWait(Math.max(1L, delay), maxDelay, TimeUnit.MILLISECONDS);
+            case FIBONACCI:
+                return WaitStrategies.fibonacciWait(Math.max(1L, delay), maxDelay, TimeUnit.MILLISECONDS);
+            case FIXED:
+            default:
+                return delay > 0 ? WaitStrategies.fixedWait(delay, TimeUnit.MILLISECONDS) : WaitStrategies.noWait();
+        }
+    }
+
+    private static void validate(Class<?> targetClass, Method method, Retryable annotation) {
+        if (annotation.maxAttempts() < 1) {
+            throw new AnnotationValidateException("maxAttempts of @Retryable must be >= 1, method: " + method);
+        }
+        if (annotation.stopAfter() < 0 || annotation.delay() < 0 || annotation.maxDelay() < 0
+                || annotation.attemptTimeout() < 0) {
+            throw new AnnotationValidateException("durations of @Retryable must be >= 0, method: " + method);
+        }
+        if (annotation.backoff() == Backoff.RANDOM && annotation.maxDelay() <= annotation.delay()) {
+            throw new AnnotationValidateException("maxDelay of @Retryable must be > delay for random backoff, method: " + method);
+        }
+        if ((annotation.backoff() == Backoff.EXPONENTIAL || annotation.backoff() == Backoff.FIBONACCI)
+                && annotation.maxDelay() > 0 && annotation.maxDelay() <= Math.max(1L, annotation.delay())) {
+            throw new AnnotationValidateException("maxDelay of @Retryable must be > delay and > 1 for "
+                    + annotation.backoff().name().toLowerCase() + " backoff, method: " + method);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.fantacya.kitty.retry;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @description: 方法调用抛出异常时重试
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Retryable {
+
+    /**
+     * 需要重试的异常类型，包括子类。为空时任何 {@link Exception} 都重试
+     * @return
+     */
+    Class<? extends Throwable>[] retryOn() default {};
+
+    /**
+     * 最多调用次数，包括第一次调用
+     * @return
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * 从第一次调用开始，超过该时长后不再重试，单位毫秒。为0时不限制
+     * @return
+     */
+    long stopAfter() default 0;
+
+    /**
+     * 重试之间的等待策略
+     * @return
+     */
+    Backoff backoff() default Backoff.FIXED;
+
+    /**
+     * 等待时长，单位毫秒，含义见 {@link Backoff}
+     * @return
+     */
+    long delay() default 0;
+
+    /**
+     * 最大等待时长，单位毫秒，含义见 {@link Backoff}。为0时不限制
+     * @return
+     */
+    long maxDelay() default 0;
+
+    /**
+     * 每次调用的超时时长，单位毫秒，超时后中断调用线程。为0时不限制
+     * @return
+     */
+    long attemptTimeout() default 0;
+}
@@ -0,0 +1,171 @@
+package com.fantacya.kitty.retry;
+
+import com.fantacya.kitty.aop.AnnotationValidateException;
+import com.fantacya.kitty.aop.DeferredAnnotationValidation;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RetryAdvisorTest {
+
+    private RetryAdvisor advisor;
+
+    private FlakyService service;
+
+    @Before
+    public void setUp() throws Exception {
+        advisor = new RetryAdvisor();
+        advisor.afterPropertiesSet();
+        ProxyFactory factory = new ProxyFactory(new FlakyService());
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(advisor);
+        service = (FlakyService) factory.getProxy();
+    }
+
+    @Test
+    public void testRetryerBuiltWhenMatched() throws Exception {
+        assertNotNull(retryer("failTimes", int.class));
+        assertNull(advisor.getPointcut().getMatchedMethod(FlakyService.class, FlakyService.class.getMethod("calls")));
+    }
+
+    private Object retryer(String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return advisor.getPointcut().getMatchedMethod(FlakyService.class,
+                FlakyService.class.getMethod(name, parameterTypes)).getPlan();
+    }
+
+    @Test
+    public void testRetriesUntilSuccess() throws Exception {
+        assertEquals("ok", service.failTimes(2));
+        assertEquals(3, service.calls());
+    }
+
+    @Test
+    public void testThrowsLastExceptionWhenAttemptsExhausted() {
+        try {
+            service.failTimes(5);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("failure 3", e.getMessage());
+        }
+        assertEquals(3, service.calls());
+    }
+
+    @Test
+    public void testDoesNotRetryOtherExceptions() {
+        try {
+            service.illegalState();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(1, service.calls());
+    }
+
+    @Test
+    public void testAttemptTimeout() throws Exception {
+        assertEquals("ok", service.slowOnce());
+        assertEquals(2, service.calls());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testSameRetryerForEveryCall() throws Exception {
+        service.failTimes(0);
+        Object retryer = retryer("failTimes", int.class);
+        service.failTimes(0);
+        assertSame(retryer, retryer("failTimes", int.class));
+    }
+
+    @Test
+    public void testInvalidAnnotation() throws Exception {
+        try {
+            advisor.getPointcut().getMethodMatcher().matches(InvalidService.class.getMethod("call"), InvalidService.class);
+            fail("Expected annotation validate exception");
+        } catch (AnnotationValidateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDeferredValidation() throws Exception {
+        DeferredAnnotationValidation validation = new DeferredAnnotationValidation();
+        RetryAdvisor deferred = new RetryAdvisor();
+        deferred.setDeferredValidation(validation);
+        deferred.afterPropertiesSet();
+        for (String name : new String[]{"call", "backoff"}) {
+            assertTrue(deferred.getPointcut().getMethodMatcher().matches(InvalidService.class.getMethod(name), InvalidService.class));
+        }
+        assertEquals(2, validation.getPendingCount());
+        try {
+            validation.validate();
+            fail("Expected annotation validate exception");
+        } catch (AnnotationValidateException e) {
+            assertTrue(e.getMessage().startsWith("2 annotation validation(s) failed:"));
+            assertTrue(e.getMessage().contains("maxAttempts of @Retryable must be >= 1"));
+            assertTrue(e.getMessage().contains("maxDelay of @Retryable must be > delay"));
+        }
+    }
+
+    @Test
+    public void testMaxDelayNotAboveDelay() throws Exception {
+        try {
+            advisor.getPointcut().getMethodMatcher().matches(InvalidService.class.getMethod("backoff"), InvalidService.class);
+            fail("Expected annotation validate exception");
+        } catch (AnnotationValidateException e) {
+            assertTrue(e.getMessage().startsWith("maxDelay of @Retryable must be > delay and > 1 for exponential backoff"));
+        }
+    }
+
+    public static class FlakyService {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Retryable(retryOn = IOException.class, maxAttempts = 3, backoff = Backoff.EXPONENTIAL, delay = 1, maxDelay = 10)
+        public String failTimes(int failures) throws IOException {
+            int call = calls.incrementAndGet();
+            if (call <= failures) {
+                throw new IOException("failure " + call);
+            }
+            return "ok";
+        }
+
+        @Retryable(retryOn = IOException.class)
+        public void illegalState() {
+            calls.incrementAndGet();
+            throw new IllegalStateException();
+        }
+
+        @Retryable(attemptTimeout = 50)
+        public String slowOnce() throws InterruptedException {
+            if (calls.incrementAndGet() == 1) {
+                Thread.sleep(10000);
+            }
+            return "ok";
+        }
+
+        public int calls() {
+            return calls.get();
+        }
+    }
+
+    public static class InvalidService {
+
+        @Retryable(maxAttempts = 0)
+        public void call() {
+        }
+
+        @Retryable(backoff = Backoff.EXPONENTIAL, delay = 100, maxDelay = 100)
+        public void backoff() {
+        }
+    }
+}